@@ -0,0 +1,153 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * AhoCorasick.java
+ */
+
+/**
+ * Aho-Corasick automaton over bytes, finding every occurrence of any of a
+ * set of byte patterns in a single pass. The failure links are compiled
+ * into a full transition table, so scanning a byte is one array lookup
+ * whatever the number of patterns. Matching can ignore ASCII case, which is
+ * folded into the table as well.
+ *
+ *
+ * @author Vy Thai
+ * @since 2020-11-06
+ */
+final class AhoCorasick {
+    /** Transition table: next state = delta[state * 256 + byte] */
+    private final int[] delta;
+    /** Patterns ending in each state, including those reached by failure links */
+    private final int[][] outputs;
+
+    /**
+     * Builds the automaton.
+     *
+     * @param patterns the non-empty patterns
+     * @param ignoreCase true to match ASCII letters in either case
+     */
+    AhoCorasick(List<byte[]> patterns, boolean ignoreCase) {
+        // trie
+        List<int[]> trie = new ArrayList<>();
+        List<List<Integer>> found = new ArrayList<>();
+        trie.add(newState());
+        found.add(new ArrayList<>());
+        for (int p = 0; p < patterns.size(); p++) {
+            int state = 0;
+            for (byte b : patterns.get(p)) {
+                int c = fold(b & 0xFF, ignoreCase);
+                if (trie.get(state)[c] < 0) {
+                    trie.get(state)[c] = trie.size();
+                    trie.add(newState());
+                    found.add(new ArrayList<>());
+                }
+                state = trie.get(state)[c];
+            }
+            found.get(state).add(p);
+        }
+
+        // breadth-first: complete the transitions and collect outputs along failure links
+        int states = trie.size();
+        delta = new int[states * 256];
+        outputs = new int[states][];
+        int[] failure = new int[states];
+        Deque<Integer> queue = new ArrayDeque<>();
+        for (int c = 0; c < 256; c++) {
+            int next = trie.get(0)[c];
+            delta[c] = next < 0 ? 0 : next;
+            if (next > 0) queue.add(next);
+        }
+        outputs[0] = toArray(found.get(0));
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            List<Integer> out = found.get(state);
+            for (int p : outputs[failure[state]]) out.add(p);
+            outputs[state] = toArray(out);
+            for (int c = 0; c < 256; c++) {
+                int next = trie.get(state)[c];
+                if (next < 0) {
+                    delta[state * 256 + c] = delta[failure[state] * 256 + c];
+                } else {
+                    failure[next] = delta[failure[state] * 256 + c];
+                    delta[state * 256 + c] = next;
+                    queue.add(next);
+                }
+            }
+        }
+
+        if (ignoreCase) {
+            for (int state = 0; state < states; state++) {
+                for (int c = 'A'; c <= 'Z'; c++) delta[state * 256 + c] = delta[state * 256 + c + ('a' - 'A')];
+            }
+        }
+    }
+
+    /**
+     * Gets the start state.
+     *
+     * @return the state before any input
+     */
+    int start() {
+        return 0;
+    }
+
+    /**
+     * Advances by one byte.
+     *
+     * @param state the current state
+     * @param b the next byte
+     * @return the next state
+     */
+    int next(int state, byte b) {
+        return delta[state << 8 | b & 0xFF];
+    }
+
+    /**
+     * Gets the patterns that end at a state.
+     *
+     * @param state the state
+     * @return pattern indexes, empty if none
+     */
+    int[] matches(int state) {
+        return outputs[state];
+    }
+
+    /**
+     * Creates a trie state without transitions.
+     *
+     * @return transitions, -1 for none
+     */
+    private static int[] newState() {
+        int[] next = new int[256];
+        Arrays.fill(next, -1);
+        return next;
+    }
+
+    /**
+     * Folds an ASCII letter to lower case.
+     *
+     * @param c the byte value
+     * @param ignoreCase true to fold
+     * @return the folded value
+     */
+    private static int fold(int c, boolean ignoreCase) {
+        return ignoreCase && c >= 'A' && c <= 'Z' ? c + ('a' - 'A') : c;
+    }
+
+    /**
+     * Copies a list of ints.
+     *
+     * @param list the list
+     * @return the array
+     */
+    private static int[] toArray(List<Integer> list) {
+        int[] array = new int[list.size()];
+        for (int i = 0; i < array.length; i++) array[i] = list.get(i);
+        return array;
+    }
+}
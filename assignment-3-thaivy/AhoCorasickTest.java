@@ -0,0 +1,84 @@
+import static org.junit.Assert.*;
+import org.junit.Test;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * AhoCorasickTest.java
+ */
+
+/**
+ * JUnit tests for AhoCorasick class
+ *
+ *
+ * @author Vy Thai
+ * @since 2020-11-06
+ */
+public class AhoCorasickTest {
+    /**
+     * Runs an automaton over text.
+     *
+     * @param automaton the automaton
+     * @param text the text
+     * @param patterns number of patterns
+     * @return match count per pattern
+     */
+    private static int[] count(AhoCorasick automaton, String text, int patterns) {
+        int[] counts = new int[patterns];
+        int state = automaton.start();
+        for (byte b : text.getBytes(StandardCharsets.UTF_8)) {
+            state = automaton.next(state, b);
+            for (int p : automaton.matches(state)) counts[p]++;
+        }
+        return counts;
+    }
+
+    /**
+     * Encodes patterns as UTF-8.
+     *
+     * @param patterns the patterns
+     * @return the encoded patterns
+     */
+    private static List<byte[]> encode(String... patterns) {
+        List<byte[]> encoded = new ArrayList<>();
+        for (String pattern : patterns) encoded.add(pattern.getBytes(StandardCharsets.UTF_8));
+        return encoded;
+    }
+
+    /**
+     * Test method for matching through failure links
+     */
+    @Test
+    public void testOverlapping() {
+        // the classic example: matches end inside other matches
+        AhoCorasick automaton = new AhoCorasick(encode("he", "she", "his", "hers"), false);
+        assertArrayEquals("overlapping", new int[] {1, 1, 0, 1}, count(automaton, "ushers", 4));
+        assertArrayEquals("repeated", new int[] {3, 0, 0, 0}, count(automaton, "hehehe", 4));
+        assertArrayEquals("none", new int[] {0, 0, 0, 0}, count(automaton, "xyz", 4));
+    }
+
+    /**
+     * Test method for case-insensitive matching
+     */
+    @Test
+    public void testIgnoreCase() {
+        AhoCorasick sensitive = new AhoCorasick(encode("Error"), false);
+        AhoCorasick insensitive = new AhoCorasick(encode("Error"), true);
+        assertArrayEquals("sensitive", new int[] {1}, count(sensitive, "error Error ERROR", 1));
+        assertArrayEquals("insensitive", new int[] {3}, count(insensitive, "error Error ERROR", 1));
+    }
+
+    /**
+     * Test method for patterns beyond ASCII and duplicate patterns
+     */
+    @Test
+    public void testBytes() {
+        AhoCorasick automaton = new AhoCorasick(encode("caf\u00e9", "\u00e9", "\u00e9"), true);
+        assertArrayEquals("utf-8", new int[] {1, 2, 2}, count(automaton, "CAF\u00e9 \u00e9", 3));
+        assertEquals("start", 0, automaton.matches(automaton.start()).length);
+        assertTrue("in order", Arrays.equals(new int[] {1, 2}, automaton.matches(automaton.next(automaton.next(0,
+                (byte) 0xC3), (byte) 0xA9))));
+    }
+}
@@ -0,0 +1,497 @@
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * AnimationInfo.java
+ */
+
+/**
+ * Frame count, timing and loop count of GIF, PNG/APNG and WebP images, read
+ * by walking the container as a stream: GIF blocks, PNG chunks and WebP
+ * RIFF chunks are parsed from their headers and the compressed pixel data
+ * is skipped without being decompressed, so the cost is that of reading the
+ * bytes and the memory used is constant. Still images are reported as a
+ * single frame played once.
+ *
+ *
+ * @author Vy Thai
+ * @since 2020-11-27
+ */
+public class AnimationInfo {
+    /** Play count meaning the animation loops forever */
+    public static final int FOREVER = 0;
+
+    /** PNG file signature */
+    private static final byte[] PNG_SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+
+    private final String format;
+    private final int width;
+    private final int height;
+    private final int frameCount;
+    private final long duration;
+    private final int loopCount;
+
+    /**
+     * Create an instance with the animation properties.
+     *
+     * @param format "gif", "png" or "webp"
+     * @param width canvas width in pixels
+     * @param height canvas height in pixels
+     * @param frameCount number of frames
+     * @param duration total duration of one play in milliseconds
+     * @param loopCount number of times the animation plays, or {@link #FOREVER}
+     */
+    public AnimationInfo(String format, int width, int height, int frameCount, long duration, int loopCount) {
+        this.format = format;
+        this.width = width;
+        this.height = height;
+        this.frameCount = frameCount;
+        this.duration = duration;
+        this.loopCount = loopCount;
+    }
+
+    /**
+     * Gets the image format.
+     *
+     * @return "gif", "png" or "webp"
+     */
+    public String getFormat() {
+        return format;
+    }
+
+    /**
+     * Gets the canvas width.
+     *
+     * @return width in pixels
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Gets the canvas height.
+     *
+     * @return height in pixels
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Gets the number of frames.
+     *
+     * @return frame count, 1 for a still image
+     */
+    public int getFrameCount() {
+        return frameCount;
+    }
+
+    /**
+     * Gets the total duration of one play of the animation, as the sum of the
+     * frame delays stored in the image. Browsers stretch very short GIF
+     * delays, so GIFs may play slower than this.
+     *
+     * @return duration in milliseconds, 0 for a still image
+     */
+    public long getDuration() {
+        return duration;
+    }
+
+    /**
+     * Gets the number of times the animation plays.
+     *
+     * @return play count, or {@link #FOREVER} if it loops forever
+     */
+    public int getLoopCount() {
+        return loopCount;
+    }
+
+    /**
+     * Determines whether the image has more than one frame.
+     *
+     * @return true if animated
+     */
+    public boolean isAnimated() {
+        return frameCount > 1;
+    }
+
+    @Override
+    public String toString() {
+        return "AnimationInfo[format=" + format + ", width=" + width + ", height=" + height + ", frameCount="
+                + frameCount + ", duration=" + duration + ", loopCount=" + loopCount + "]";
+    }
+
+    /**
+     * Reads the animation properties of a GIF, PNG/APNG or WebP image.
+     *
+     * @param in the image content, positioned at its start
+     * @return the animation properties
+     * @throws IOException if content unavailable, truncated or not a supported format
+     */
+    static AnimationInfo read(InputStream in) throws IOException {
+        Stream stream = new Stream(in);
+        byte[] head = stream.bytes(6);
+        String magic = new String(head, 0, 6, StandardCharsets.ISO_8859_1);
+        if (magic.equals("GIF87a") || magic.equals("GIF89a")) return readGif(stream);
+        if (startsWith(head, PNG_SIGNATURE, 6)) return readPng(stream);
+        if (magic.startsWith("RIFF")) return readWebp(stream);
+        throw new IOException("Unsupported image format.");
+    }
+
+    /**
+     * Walks the blocks of a GIF after its signature. Frames are image
+     * descriptors, each delayed by the graphic control extension before it;
+     * the loop count comes from the NETSCAPE2.0 application extension.
+     *
+     * @param stream the content after the signature
+     * @return the animation properties
+     * @throws IOException if the GIF is truncated or corrupt
+     */
+    private static AnimationInfo readGif(Stream stream) throws IOException {
+        byte[] screen = stream.bytes(7);
+        int width = u16le(screen, 0);
+        int height = u16le(screen, 2);
+        if ((screen[4] & 0x80) != 0) stream.skip(3L << ((screen[4] & 7) + 1));
+
+        int frames = 0;
+        long duration = 0;
+        int delay = 0;
+        // without the application extension the animation plays once
+        int loops = 1;
+        while (true) {
+            int block = stream.optionalU8();
+            // a missing trailer is common and harmless
+            if (block < 0 || block == 0x3B) break;
+            if (block == 0x2C) {
+                byte[] descriptor = stream.bytes(9);
+                if ((descriptor[8] & 0x80) != 0) stream.skip(3L << ((descriptor[8] & 7) + 1));
+                // LZW minimum code size, then the image data
+                stream.skip(1);
+                stream.skipSubBlocks();
+                frames++;
+                duration += delay * 10L;
+                delay = 0;
+            } else if (block == 0x21) {
+                int label = stream.u8();
+                byte[] first = stream.subBlock();
+                // an empty first sub-block already terminated the extension
+                if (first.length == 0) continue;
+                if (label == 0xF9 && first.length >= 3) {
+                    delay = u16le(first, 1);
+                } else if (label == 0xFF) {
+                    String application = new String(first, StandardCharsets.ISO_8859_1);
+                    if (application.equals("NETSCAPE2.0") || application.equals("ANIMEXTS1.0")) {
+                        byte[] data = stream.subBlock();
+                        if (data.length == 0) continue;
+                        if (data.length >= 3 && data[0] == 1) {
+                            int repeats = u16le(data, 1);
+                            // the count is of repeats after the first play
+                            loops = repeats == 0 ? FOREVER : repeats + 1;
+                        }
+                    }
+                }
+                stream.skipSubBlocks();
+            } else {
+                throw new IOException("Corrupt GIF block.");
+            }
+        }
+        return new AnimationInfo("gif", width, height, frames, duration, frames > 1 ? loops : 1);
+    }
+
+    /**
+     * Walks the chunks of a PNG after its signature. An APNG has an "acTL"
+     * chunk with the play count and one "fcTL" chunk with the delay of each
+     * frame; image data chunks are skipped.
+     *
+     * @param stream the content after the first six bytes
+     * @return the animation properties
+     * @throws IOException if the PNG is truncated or corrupt
+     */
+    private static AnimationInfo readPng(Stream stream) throws IOException {
+        byte[] rest = stream.bytes(2);
+        if (rest[0] != PNG_SIGNATURE[6] || rest[1] != PNG_SIGNATURE[7]) throw new IOException("Unsupported image format.");
+
+        int width = 0;
+        int height = 0;
+        boolean animated = false;
+        int loops = 1;
+        int frames = 0;
+        long duration = 0;
+        while (true) {
+            byte[] header = stream.optionalBytes(8);
+            if (header == null) break;
+            long length = u32be(header, 0);
+            String type = new String(header, 4, 4, StandardCharsets.ISO_8859_1);
+            long remaining = length;
+            if (type.equals("IHDR") && length >= 8) {
+                byte[] ihdr = stream.bytes(8);
+                width = (int) u32be(ihdr, 0);
+                height = (int) u32be(ihdr, 4);
+                remaining -= 8;
+            } else if (type.equals("acTL") && length >= 8) {
+                byte[] actl = stream.bytes(8);
+                animated = true;
+                loops = (int) u32be(actl, 4);
+                remaining -= 8;
+            } else if (type.equals("fcTL") && length >= 26) {
+                byte[] fctl = stream.bytes(26);
+                int numerator = u16be(fctl, 20);
+                int denominator = u16be(fctl, 22);
+                // a zero denominator means hundredths of a second
+                duration += numerator * 1000L / (denominator == 0 ? 100 : denominator);
+                frames++;
+                remaining -= 26;
+            } else if (type.equals("IEND")) {
+                break;
+            }
+            // the rest of the chunk and its CRC
+            stream.skip(remaining + 4);
+        }
+        if (!animated || frames == 0) return new AnimationInfo("png", width, height, 1, 0, 1);
+        return new AnimationInfo("png", width, height, frames, duration, loops);
+    }
+
+    /**
+     * Walks the chunks of a WebP RIFF container. An animated WebP has a
+     * "VP8X" chunk with the canvas size, an "ANIM" chunk with the loop count
+     * and one "ANMF" chunk per frame with its duration; the bitstream inside
+     * each frame is skipped.
+     *
+     * @param stream the content after the first six bytes
+     * @return the animation properties
+     * @throws IOException if the WebP is truncated or corrupt
+     */
+    private static AnimationInfo readWebp(Stream stream) throws IOException {
+        byte[] rest = stream.bytes(6);
+        if (!"WEBP".equals(new String(rest, 2, 4, StandardCharsets.ISO_8859_1))) {
+            throw new IOException("Unsupported image format.");
+        }
+
+        int width = 0;
+        int height = 0;
+        int loops = 1;
+        int frames = 0;
+        long duration = 0;
+        while (true) {
+            byte[] header = stream.optionalBytes(8);
+            if (header == null) break;
+            String type = new String(header, 0, 4, StandardCharsets.ISO_8859_1);
+            long length = u32le(header, 4);
+            long remaining = length;
+            if (type.equals("VP8X") && length >= 10) {
+                byte[] vp8x = stream.bytes(10);
+                width = u24le(vp8x, 4) + 1;
+                height = u24le(vp8x, 7) + 1;
+                remaining -= 10;
+            } else if (type.equals("ANIM") && length >= 6) {
+                byte[] anim = stream.bytes(6);
+                loops = u16le(anim, 4);
+                remaining -= 6;
+            } else if (type.equals("ANMF") && length >= 16) {
+                byte[] anmf = stream.bytes(16);
+                duration += u24le(anmf, 12);
+                frames++;
+                remaining -= 16;
+            } else if (type.equals("VP8 ") && length >= 10 && width == 0) {
+                // key frame header: 3-byte tag, start code, then 14-bit dimensions
+                byte[] vp8 = stream.bytes(10);
+                width = u16le(vp8, 6) & 0x3FFF;
+                height = u16le(vp8, 8) & 0x3FFF;
+                remaining -= 10;
+            } else if (type.equals("VP8L") && length >= 5 && width == 0) {
+                // signature byte, then 14-bit width - 1 and height - 1
+                byte[] vp8l = stream.bytes(5);
+                long bits = u32le(vp8l, 1);
+                width = (int) (bits & 0x3FFF) + 1;
+                height = (int) ((bits >> 14) & 0x3FFF) + 1;
+                remaining -= 5;
+            }
+            // chunks are padded to an even length
+            stream.skip(remaining + (length & 1));
+        }
+        if (frames == 0) return new AnimationInfo("webp", width, height, 1, 0, 1);
+        return new AnimationInfo("webp", width, height, frames, duration, loops);
+    }
+
+    /**
+     * Determines whether bytes start with a prefix.
+     *
+     * @param bytes the bytes
+     * @param prefix the prefix
+     * @param length number of bytes to compare
+     * @return true if the first length bytes match
+     */
+    private static boolean startsWith(byte[] bytes, byte[] prefix, int length) {
+        for (int i = 0; i < length; i++) {
+            if (bytes[i] != prefix[i]) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Reads an unsigned 16-bit little-endian value.
+     *
+     * @param b the bytes
+     * @param offset offset of the value
+     * @return the value
+     */
+    private static int u16le(byte[] b, int offset) {
+        return (b[offset] & 0xFF) | (b[offset + 1] & 0xFF) << 8;
+    }
+
+    /**
+     * Reads an unsigned 24-bit little-endian value.
+     *
+     * @param b the bytes
+     * @param offset offset of the value
+     * @return the value
+     */
+    private static int u24le(byte[] b, int offset) {
+        return u16le(b, offset) | (b[offset + 2] & 0xFF) << 16;
+    }
+
+    /**
+     * Reads an unsigned 32-bit little-endian value.
+     *
+     * @param b the bytes
+     * @param offset offset of the value
+     * @return the value
+     */
+    private static long u32le(byte[] b, int offset) {
+        return u24le(b, offset) | (long) (b[offset + 3] & 0xFF) << 24;
+    }
+
+    /**
+     * Reads an unsigned 16-bit big-endian value.
+     *
+     * @param b the bytes
+     * @param offset offset of the value
+     * @return the value
+     */
+    private static int u16be(byte[] b, int offset) {
+        return (b[offset] & 0xFF) << 8 | (b[offset + 1] & 0xFF);
+    }
+
+    /**
+     * Reads an unsigned 32-bit big-endian value.
+     *
+     * @param b the bytes
+     * @param offset offset of the value
+     * @return the value
+     */
+    private static long u32be(byte[] b, int offset) {
+        return (long) u16be(b, offset) << 16 | u16be(b, offset + 2);
+    }
+
+    /**
+     * Sequential reads of small headers and skips over everything else.
+     */
+    private static final class Stream {
+        private final InputStream in;
+
+        /**
+         * Create a stream.
+         *
+         * @param in the content
+         */
+        Stream(InputStream in) {
+            this.in = in;
+        }
+
+        /**
+         * Reads exactly count bytes.
+         *
+         * @param count number of bytes
+         * @return the bytes
+         * @throws IOException if the content ends first
+         */
+        byte[] bytes(int count) throws IOException {
+            byte[] b = optionalBytes(count);
+            if (b == null) throw new EOFException("Truncated image.");
+            return b;
+        }
+
+        /**
+         * Reads exactly count bytes, unless the content ends right away.
+         *
+         * @param count number of bytes
+         * @return the bytes, or null at the end of the content
+         * @throws IOException if the content ends part way
+         */
+        byte[] optionalBytes(int count) throws IOException {
+            byte[] b = new byte[count];
+            int total = 0;
+            while (total < count) {
+                int n = in.read(b, total, count - total);
+                if (n < 0) {
+                    if (total == 0) return null;
+                    throw new EOFException("Truncated image.");
+                }
+                total += n;
+            }
+            return b;
+        }
+
+        /**
+         * Reads one byte, unless the content ended.
+         *
+         * @return the byte value, or -1 at the end of the content
+         * @throws IOException if content unavailable
+         */
+        int optionalU8() throws IOException {
+            return in.read();
+        }
+
+        /**
+         * Reads one byte.
+         *
+         * @return the byte value
+         * @throws IOException if the content ended
+         */
+        int u8() throws IOException {
+            int b = in.read();
+            if (b < 0) throw new EOFException("Truncated image.");
+            return b;
+        }
+
+        /**
+         * Skips exactly count bytes.
+         *
+         * @param count number of bytes
+         * @throws IOException if the content ends first
+         */
+        void skip(long count) throws IOException {
+            while (count > 0) {
+                long n = in.skip(count);
+                if (n <= 0) {
+                    // skip may return 0 before the end; a read tells
+                    if (in.read() < 0) throw new EOFException("Truncated image.");
+                    n = 1;
+                }
+                count -= n;
+            }
+        }
+
+        /**
+         * Reads one GIF data sub-block.
+         *
+         * @return its bytes, empty for the block terminator
+         * @throws IOException if the content ends first
+         */
+        byte[] subBlock() throws IOException {
+            int size = u8();
+            return size == 0 ? new byte[0] : bytes(size);
+        }
+
+        /**
+         * Skips GIF data sub-blocks up to and including the block terminator.
+         *
+         * @throws IOException if the content ends first
+         */
+        void skipSubBlocks() throws IOException {
+            for (int size; (size = u8()) != 0; ) skip(size);
+        }
+    }
+}
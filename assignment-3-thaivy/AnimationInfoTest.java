@@ -0,0 +1,334 @@
+import static org.junit.Assert.*;
+import org.junit.Test;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * AnimationInfoTest.java
+ */
+
+/**
+ * JUnit tests for AnimationInfo class
+ *
+ *
+ * @author Vy Thai
+ * @since 2020-11-27
+ */
+public class AnimationInfoTest {
+    /**
+     * Writes ASCII text.
+     *
+     * @param out where to write
+     * @param text the text
+     */
+    private static void ascii(ByteArrayOutputStream out, String text) {
+        byte[] b = text.getBytes(StandardCharsets.US_ASCII);
+        out.write(b, 0, b.length);
+    }
+
+    /**
+     * Writes little-endian bytes.
+     *
+     * @param out where to write
+     * @param value the value
+     * @param bytes number of bytes
+     */
+    private static void le(ByteArrayOutputStream out, long value, int bytes) {
+        for (int i = 0; i < bytes; i++) out.write((int) (value >>> (8 * i)));
+    }
+
+    /**
+     * Writes big-endian bytes.
+     *
+     * @param out where to write
+     * @param value the value
+     * @param bytes number of bytes
+     */
+    private static void be(ByteArrayOutputStream out, long value, int bytes) {
+        for (int i = bytes - 1; i >= 0; i--) out.write((int) (value >>> (8 * i)));
+    }
+
+    /**
+     * Builds a GIF with a global color table, a loop extension and two frames
+     * of 100 and 250 ms, the second with a local color table and two data
+     * sub-blocks.
+     *
+     * @return the GIF
+     */
+    private static byte[] gif() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ascii(out, "GIF89a");
+        le(out, 40, 2);
+        le(out, 30, 2);
+        // global color table of 4 entries
+        out.write(0x81);
+        le(out, 0, 2);
+        out.write(new byte[12], 0, 12);
+        // loop 2 more times
+        out.write(0x21);
+        out.write(0xFF);
+        out.write(11);
+        ascii(out, "NETSCAPE2.0");
+        out.write(3);
+        out.write(1);
+        le(out, 2, 2);
+        out.write(0);
+        // a comment between blocks
+        out.write(0x21);
+        out.write(0xFE);
+        out.write(2);
+        ascii(out, "hi");
+        out.write(0);
+        int[] delays = {10, 25};
+        for (int frame = 0; frame < 2; frame++) {
+            out.write(0x21);
+            out.write(0xF9);
+            out.write(4);
+            out.write(0);
+            le(out, delays[frame], 2);
+            out.write(0);
+            out.write(0);
+            out.write(0x2C);
+            le(out, 0, 4);
+            le(out, 40, 2);
+            le(out, 30, 2);
+            out.write(frame == 1 ? 0x80 : 0);
+            if (frame == 1) out.write(new byte[6], 0, 6);
+            out.write(2);
+            out.write(255);
+            out.write(new byte[255], 0, 255);
+            out.write(3);
+            out.write(new byte[3], 0, 3);
+            out.write(0);
+        }
+        out.write(0x3B);
+        return out.toByteArray();
+    }
+
+    /**
+     * Writes a PNG chunk with a dummy CRC.
+     *
+     * @param out where to write
+     * @param type the chunk type
+     * @param data the chunk data
+     */
+    private static void chunk(ByteArrayOutputStream out, String type, byte[] data) {
+        be(out, data.length, 4);
+        ascii(out, type);
+        out.write(data, 0, data.length);
+        be(out, 0, 4);
+    }
+
+    /**
+     * Builds frame control chunk data.
+     *
+     * @param numerator delay numerator
+     * @param denominator delay denominator
+     * @return the fcTL data
+     */
+    private static byte[] fctl(int numerator, int denominator) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        be(out, 0, 4);
+        be(out, 16, 4);
+        be(out, 8, 4);
+        be(out, 0, 8);
+        be(out, numerator, 2);
+        be(out, denominator, 2);
+        be(out, 0, 2);
+        return out.toByteArray();
+    }
+
+    /**
+     * Builds a PNG, animated with three frames of 100, 50 and 30 ms playing
+     * twice if requested.
+     *
+     * @param animated true for an APNG
+     * @return the PNG
+     */
+    private static byte[] png(boolean animated) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(new byte[] {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'}, 0, 8);
+        ByteArrayOutputStream ihdr = new ByteArrayOutputStream();
+        be(ihdr, 16, 4);
+        be(ihdr, 8, 4);
+        be(ihdr, 0x08060000, 4);
+        ihdr.write(0);
+        chunk(out, "IHDR", ihdr.toByteArray());
+        if (animated) {
+            ByteArrayOutputStream actl = new ByteArrayOutputStream();
+            be(actl, 3, 4);
+            be(actl, 2, 4);
+            chunk(out, "acTL", actl.toByteArray());
+            chunk(out, "fcTL", fctl(1, 10));
+        }
+        chunk(out, "IDAT", new byte[1000]);
+        if (animated) {
+            chunk(out, "fcTL", fctl(50, 1000));
+            chunk(out, "fdAT", new byte[500]);
+            // a zero denominator means hundredths
+            chunk(out, "fcTL", fctl(3, 0));
+            chunk(out, "fdAT", new byte[500]);
+        }
+        chunk(out, "IEND", new byte[0]);
+        return out.toByteArray();
+    }
+
+    /**
+     * Writes a RIFF chunk padded to an even length.
+     *
+     * @param out where to write
+     * @param type the chunk type
+     * @param data the chunk data
+     */
+    private static void riff(ByteArrayOutputStream out, String type, byte[] data) {
+        ascii(out, type);
+        le(out, data.length, 4);
+        out.write(data, 0, data.length);
+        if (data.length % 2 == 1) out.write(0);
+    }
+
+    /**
+     * Builds an animated WebP with frames of 100 and 250 ms, the first with
+     * an odd-length bitstream, playing three times.
+     *
+     * @return the WebP
+     */
+    private static byte[] webp() {
+        ByteArrayOutputStream chunks = new ByteArrayOutputStream();
+        ByteArrayOutputStream vp8x = new ByteArrayOutputStream();
+        vp8x.write(0x02);
+        le(vp8x, 0, 3);
+        le(vp8x, 63, 3);
+        le(vp8x, 47, 3);
+        riff(chunks, "VP8X", vp8x.toByteArray());
+        ByteArrayOutputStream anim = new ByteArrayOutputStream();
+        le(anim, 0, 4);
+        le(anim, 3, 2);
+        riff(chunks, "ANIM", anim.toByteArray());
+        int[] durations = {100, 250};
+        for (int frame = 0; frame < 2; frame++) {
+            ByteArrayOutputStream anmf = new ByteArrayOutputStream();
+            le(anmf, 0, 6);
+            le(anmf, 63, 3);
+            le(anmf, 47, 3);
+            le(anmf, durations[frame], 3);
+            anmf.write(0);
+            riff(anmf, "VP8L", new byte[frame == 0 ? 101 : 60]);
+            riff(chunks, "ANMF", anmf.toByteArray());
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ascii(out, "RIFF");
+        le(out, chunks.size() + 4, 4);
+        ascii(out, "WEBP");
+        byte[] body = chunks.toByteArray();
+        out.write(body, 0, body.length);
+        return out.toByteArray();
+    }
+
+    /**
+     * Builds a still lossless WebP of 300x200.
+     *
+     * @return the WebP
+     */
+    private static byte[] stillWebp() {
+        ByteArrayOutputStream vp8l = new ByteArrayOutputStream();
+        vp8l.write(0x2F);
+        le(vp8l, 299 | 199L << 14, 4);
+        vp8l.write(new byte[20], 0, 20);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ascii(out, "RIFF");
+        le(out, 4 + 8 + vp8l.size(), 4);
+        ascii(out, "WEBP");
+        riff(out, "VP8L", vp8l.toByteArray());
+        return out.toByteArray();
+    }
+
+    /**
+     * Test method for reading GIF animations
+     */
+    @Test
+    public void testGif() {
+        try {
+            AnimationInfo info = AnimationInfo.read(new ByteArrayInputStream(gif()));
+            assertEquals("gif - format", "gif", info.getFormat());
+            assertEquals("gif - width", 40, info.getWidth());
+            assertEquals("gif - height", 30, info.getHeight());
+            assertEquals("gif - frames", 2, info.getFrameCount());
+            assertEquals("gif - duration", 350, info.getDuration());
+            assertEquals("gif - loops", 3, info.getLoopCount());
+            assertTrue("gif - animated", info.isAnimated());
+
+            // without its trailer the GIF is still read
+            byte[] gif = gif();
+            info = AnimationInfo.read(new ByteArrayInputStream(java.util.Arrays.copyOf(gif, gif.length - 1)));
+            assertEquals("gif - no trailer", 2, info.getFrameCount());
+        } catch (IOException e) {
+            fail("Unexpected IOException");
+        }
+
+        try {
+            byte[] gif = gif();
+            AnimationInfo.read(new ByteArrayInputStream(java.util.Arrays.copyOf(gif, gif.length - 100)));
+            fail("Expected EOFException");
+        } catch (EOFException e) {
+            // EOFException caught
+        } catch (IOException e) {
+            fail("Unexpected IOException");
+        }
+    }
+
+    /**
+     * Test method for reading PNG and APNG images
+     */
+    @Test
+    public void testPng() {
+        try {
+            AnimationInfo info = AnimationInfo.read(new ByteArrayInputStream(png(true)));
+            assertEquals("apng - format", "png", info.getFormat());
+            assertEquals("apng - width", 16, info.getWidth());
+            assertEquals("apng - frames", 3, info.getFrameCount());
+            assertEquals("apng - duration", 180, info.getDuration());
+            assertEquals("apng - loops", 2, info.getLoopCount());
+
+            info = AnimationInfo.read(new ByteArrayInputStream(png(false)));
+            assertFalse("png - still", info.isAnimated());
+            assertEquals("png - height", 8, info.getHeight());
+            assertEquals("png - duration", 0, info.getDuration());
+        } catch (IOException e) {
+            fail("Unexpected IOException");
+        }
+    }
+
+    /**
+     * Test method for reading WebP images
+     */
+    @Test
+    public void testWebp() {
+        try {
+            AnimationInfo info = AnimationInfo.read(new ByteArrayInputStream(webp()));
+            assertEquals("webp - format", "webp", info.getFormat());
+            assertEquals("webp - width", 64, info.getWidth());
+            assertEquals("webp - height", 48, info.getHeight());
+            assertEquals("webp - frames", 2, info.getFrameCount());
+            assertEquals("webp - duration", 350, info.getDuration());
+            assertEquals("webp - loops", 3, info.getLoopCount());
+
+            info = AnimationInfo.read(new ByteArrayInputStream(stillWebp()));
+            assertEquals("webp - still frames", 1, info.getFrameCount());
+            assertEquals("webp - still width", 300, info.getWidth());
+            assertEquals("webp - still height", 200, info.getHeight());
+        } catch (IOException e) {
+            fail("Unexpected IOException");
+        }
+
+        try {
+            AnimationInfo.read(new ByteArrayInputStream("\u00ff\u00d8\u00ff\u00e0 not animated".getBytes(StandardCharsets.ISO_8859_1)));
+            fail("Expected IOException");
+        } catch (IOException e) {
+            // IOException caught
+        }
+    }
+}
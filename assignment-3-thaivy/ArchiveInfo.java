@@ -0,0 +1,321 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * ArchiveInfo.java
+ */
+
+/**
+ * Entry listing of ZIP/JAR content, read from the end of central directory
+ * record and the central directory without touching any file data.
+ *
+ *
+ * @author Vy Thai
+ * @since 2020-10-02
+ */
+public class ArchiveInfo {
+    /** Record signatures */
+    private static final int EOCD_SIGNATURE = 0x06054b50;
+    private static final int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+    private static final int ZIP64_EOCD_SIGNATURE = 0x06064b50;
+    private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+
+    /** Fixed record sizes */
+    private static final int EOCD_SIZE = 22;
+    private static final int ZIP64_LOCATOR_SIZE = 20;
+    private static final int ZIP64_EOCD_SIZE = 56;
+    private static final int CENTRAL_HEADER_SIZE = 46;
+
+    /** Largest archive comment, which bounds how far back the EOCD can be */
+    private static final int MAX_COMMENT_SIZE = 0xFFFF;
+
+    /** ZIP64 extended information extra field tag */
+    private static final int ZIP64_EXTRA = 0x0001;
+
+    /** General purpose flag bit marking UTF-8 entry names */
+    private static final int UTF8_FLAG = 0x0800;
+
+    private final List<Entry> entries;
+    private final long size;
+    private final long compressedSize;
+
+    /**
+     * An entry of the archive as recorded in the central directory.
+     */
+    public static class Entry {
+        private final String name;
+        private final long size;
+        private final long compressedSize;
+        private final int method;
+
+        /**
+         * Create an entry.
+         *
+         * @param name entry name
+         * @param size uncompressed size in bytes
+         * @param compressedSize compressed size in bytes
+         * @param method compression method, e.g. 0 for stored or 8 for deflated
+         */
+        public Entry(String name, long size, long compressedSize, int method) {
+            this.name = name;
+            this.size = size;
+            this.compressedSize = compressedSize;
+            this.method = method;
+        }
+
+        /**
+         * Gets the entry name.
+         *
+         * @return entry name
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Gets the uncompressed size.
+         *
+         * @return size in bytes
+         */
+        public long getSize() {
+            return size;
+        }
+
+        /**
+         * Gets the compressed size.
+         *
+         * @return size in bytes
+         */
+        public long getCompressedSize() {
+            return compressedSize;
+        }
+
+        /**
+         * Gets the compression method.
+         *
+         * @return compression method, e.g. 0 for stored or 8 for deflated
+         */
+        public int getMethod() {
+            return method;
+        }
+
+        @Override
+        public String toString() {
+            return name + " (" + compressedSize + "/" + size + ")";
+        }
+    }
+
+    /**
+     * Create an instance with the archive entries.
+     *
+     * @param entries the entries in central directory order
+     */
+    public ArchiveInfo(List<Entry> entries) {
+        this.entries = Collections.unmodifiableList(new ArrayList<>(entries));
+        long total = 0;
+        long compressed = 0;
+        for (Entry entry : entries) {
+            total += entry.getSize();
+            compressed += entry.getCompressedSize();
+        }
+        this.size = total;
+        this.compressedSize = compressed;
+    }
+
+    /**
+     * Gets the number of entries.
+     *
+     * @return entry count
+     */
+    public int getEntryCount() {
+        return entries.size();
+    }
+
+    /**
+     * Gets the entries.
+     *
+     * @return unmodifiable list of entries in central directory order
+     */
+    public List<Entry> getEntries() {
+        return entries;
+    }
+
+    /**
+     * Gets the total uncompressed size of all entries.
+     *
+     * @return size in bytes
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * Gets the total compressed size of all entries.
+     *
+     * @return size in bytes
+     */
+    public long getCompressedSize() {
+        return compressedSize;
+    }
+
+    /**
+     * Gets the ratio of compressed to uncompressed size.
+     *
+     * @return compression ratio, or 1 if the archive holds no data
+     */
+    public double getCompressionRatio() {
+        return size == 0 ? 1.0 : (double) compressedSize / size;
+    }
+
+    @Override
+    public String toString() {
+        return "ArchiveInfo[entries=" + entries.size() + ", size=" + size
+                + ", compressedSize=" + compressedSize + "]";
+    }
+
+    /**
+     * Reads the central directory of a ZIP archive.
+     *
+     * @param reader random access to the content
+     * @return the archive properties, or null if the content is not a ZIP archive
+     * @throws IOException if content unavailable or the archive is corrupt
+     */
+    static ArchiveInfo read(RangeReader reader) throws IOException {
+        long length = reader.length();
+        if (length < EOCD_SIZE) return null;
+
+        // the EOCD is followed only by the archive comment, so search backwards through the suffix
+        long suffixStart = Math.max(0, length - EOCD_SIZE - MAX_COMMENT_SIZE);
+        byte[] suffix = reader.read(suffixStart, (int) (length - suffixStart));
+        ByteBuffer tail = ByteBuffer.wrap(suffix).order(ByteOrder.LITTLE_ENDIAN);
+        int eocd = -1;
+        for (int i = suffix.length - EOCD_SIZE; i >= 0; i--) {
+            if (tail.getInt(i) == EOCD_SIGNATURE && i + EOCD_SIZE + (tail.getShort(i + 20) & 0xFFFF) == suffix.length) {
+                eocd = i;
+                break;
+            }
+        }
+        if (eocd < 0) return null;
+
+        long count = tail.getShort(eocd + 10) & 0xFFFF;
+        long directorySize = tail.getInt(eocd + 12) & 0xFFFFFFFFL;
+        long directoryOffset = tail.getInt(eocd + 16) & 0xFFFFFFFFL;
+
+        // a ZIP64 locator immediately precedes the EOCD when any field overflowed
+        long locator = suffixStart + eocd - ZIP64_LOCATOR_SIZE;
+        if (locator >= 0) {
+            ByteBuffer buf = record(reader, suffix, suffixStart, locator, ZIP64_LOCATOR_SIZE);
+            if (buf.getInt(0) == ZIP64_LOCATOR_SIGNATURE) {
+                long zip64Offset = buf.getLong(8);
+                ByteBuffer zip64 = record(reader, suffix, suffixStart, zip64Offset, ZIP64_EOCD_SIZE);
+                if (zip64.getInt(0) != ZIP64_EOCD_SIGNATURE) throw new IOException("Corrupt ZIP64 end record.");
+                count = zip64.getLong(32);
+                directorySize = zip64.getLong(40);
+                directoryOffset = zip64.getLong(48);
+            }
+        }
+        // ZIP64 fields are signed longs: negative values would slip past the bounds check
+        if (count < 0 || count > Integer.MAX_VALUE || directorySize < 0 || directorySize > Integer.MAX_VALUE
+                || directoryOffset < 0 || directoryOffset > length - directorySize) {
+            throw new IOException("Corrupt central directory.");
+        }
+
+        ByteBuffer directory = reader.buffer(directoryOffset, (int) directorySize).slice().order(ByteOrder.LITTLE_ENDIAN);
+        return new ArchiveInfo(parseDirectory(directory, count));
+    }
+
+    /**
+     * Gets a fixed size record, from the already fetched suffix if it covers it.
+     *
+     * @param reader random access to the content
+     * @param suffix the fetched suffix
+     * @param suffixStart absolute offset of the suffix
+     * @param offset absolute offset of the record
+     * @param size size of the record
+     * @return little-endian buffer holding the record
+     * @throws IOException if content unavailable or the record is truncated
+     */
+    private static ByteBuffer record(RangeReader reader, byte[] suffix, long suffixStart, long offset, int size)
+            throws IOException {
+        if (offset < 0) throw new IOException("Corrupt ZIP record offset.");
+        byte[] bytes;
+        if (offset >= suffixStart) {
+            // copyOfRange would zero-pad a record running past the suffix
+            if (offset - suffixStart + size > suffix.length) throw new IOException("Truncated ZIP record.");
+            bytes = Arrays.copyOfRange(suffix, (int) (offset - suffixStart), (int) (offset - suffixStart) + size);
+        } else {
+            bytes = reader.read(offset, size);
+        }
+        if (bytes.length < size) throw new IOException("Truncated ZIP record.");
+        return ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Parses the central directory file headers.
+     *
+     * @param directory little-endian buffer holding the central directory
+     * @param count number of entries recorded in the end record
+     * @return the entries
+     * @throws IOException if the directory is corrupt
+     */
+    private static List<Entry> parseDirectory(ByteBuffer directory, long count) throws IOException {
+        List<Entry> entries = new ArrayList<>((int) Math.min(count, 1 << 16));
+        int offset = 0;
+        int limit = directory.limit();
+        while (offset + CENTRAL_HEADER_SIZE <= limit) {
+            if (directory.getInt(offset) != CENTRAL_HEADER_SIGNATURE) break;
+
+            int flags = directory.getShort(offset + 8) & 0xFFFF;
+            int method = directory.getShort(offset + 10) & 0xFFFF;
+            long compressedSize = directory.getInt(offset + 20) & 0xFFFFFFFFL;
+            long size = directory.getInt(offset + 24) & 0xFFFFFFFFL;
+            int nameLength = directory.getShort(offset + 28) & 0xFFFF;
+            int extraLength = directory.getShort(offset + 30) & 0xFFFF;
+            int commentLength = directory.getShort(offset + 32) & 0xFFFF;
+            int next = offset + CENTRAL_HEADER_SIZE + nameLength + extraLength + commentLength;
+            if (next > limit) throw new IOException("Corrupt central directory.");
+
+            byte[] nameBytes = new byte[nameLength];
+            for (int i = 0; i < nameLength; i++) {
+                nameBytes[i] = directory.get(offset + CENTRAL_HEADER_SIZE + i);
+            }
+            Charset charset = (flags & UTF8_FLAG) != 0 ? StandardCharsets.UTF_8 : StandardCharsets.ISO_8859_1;
+            String name = new String(nameBytes, charset);
+
+            // overflowed sizes are stored, in order, in the ZIP64 extra field
+            if (size == 0xFFFFFFFFL || compressedSize == 0xFFFFFFFFL) {
+                int extra = offset + CENTRAL_HEADER_SIZE + nameLength;
+                int extraEnd = extra + extraLength;
+                while (extra + 4 <= extraEnd) {
+                    int tag = directory.getShort(extra) & 0xFFFF;
+                    int dataSize = directory.getShort(extra + 2) & 0xFFFF;
+                    if (tag == ZIP64_EXTRA) {
+                        int field = extra + 4;
+                        if (size == 0xFFFFFFFFL && field + 8 <= extraEnd) {
+                            size = directory.getLong(field);
+                            field += 8;
+                        }
+                        if (compressedSize == 0xFFFFFFFFL && field + 8 <= extraEnd) {
+                            compressedSize = directory.getLong(field);
+                        }
+                        break;
+                    }
+                    extra += 4 + dataSize;
+                }
+                if (size < 0 || compressedSize < 0) throw new IOException("Corrupt central directory.");
+            }
+
+            entries.add(new Entry(name, size, compressedSize, method));
+            offset = next;
+        }
+        if (entries.size() != count) throw new IOException("Corrupt central directory.");
+        return entries;
+    }
+}
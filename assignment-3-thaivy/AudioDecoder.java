@@ -0,0 +1,52 @@
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * AudioDecoder.java
+ */
+
+/**
+ * Audio header parsing for {@link ContentInfo#getAudioDuration()}, kept out
+ * of ContentInfo so that javax.sound.sampled and its file reader providers
+ * are only loaded by the first call that needs them. Only audio file
+ * readers are used, never mixers or lines, so no sound device is opened and
+ * this works on headless machines.
+ *
+ *
+ * @author Vy Thai
+ * @since 2020-11-20
+ */
+final class AudioDecoder {
+    /**
+     * Not instantiated.
+     */
+    private AudioDecoder() {
+    }
+
+    /**
+     * Gets the duration of audio from its header.
+     *
+     * @param in the audio content, supporting mark and reset
+     * @return duration in seconds
+     * @throws IOException if the audio cannot be read or the format is unsupported
+     */
+    static double readDuration(InputStream in) throws IOException {
+        try {
+            // Extract audioInputStream and format to get the audio's frameLength and frameRate
+            AudioInputStream audioInputStream = AudioSystem.getAudioInputStream(in);
+            AudioFormat format = audioInputStream.getFormat();
+            double frameLength = audioInputStream.getFrameLength();
+            double frameRate = format.getFrameRate();
+
+            // duration in seconds
+            return frameLength / frameRate;
+
+        } catch (UnsupportedAudioFileException e) {
+            throw new IOException("UnsupportedAudioFileException");
+        }
+    }
+}
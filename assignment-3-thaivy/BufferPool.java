@@ -0,0 +1,188 @@
+import java.nio.ByteBuffer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * BufferPool.java
+ */
+
+/**
+ * Pool of reusable direct buffers that ContentInfo streams content bodies
+ * through, so concurrent readers share a bounded set of off-heap buffers
+ * instead of each allocating its own. A buffer is acquired for one read and
+ * released when it is done. When every pooled buffer is in use a new one is
+ * allocated, and kept on release only while the pool holds fewer than its
+ * capacity, so a burst of readers cannot grow the pool without limit.
+ *
+ *
+ * @author Vy Thai
+ * @since 2020-11-13
+ */
+public class BufferPool {
+    /** Pool shared by ContentInfo instances unless they are given another */
+    public static final BufferPool DEFAULT = new BufferPool(64 * 1024, 64);
+
+    private final int bufferSize;
+    private final int capacity;
+    private final ConcurrentLinkedDeque<ByteBuffer> idle = new ConcurrentLinkedDeque<>();
+    private final AtomicInteger idleCount = new AtomicInteger();
+    private final AtomicInteger inUse = new AtomicInteger();
+    private final AtomicInteger peakInUse = new AtomicInteger();
+    private final AtomicLong acquired = new AtomicLong();
+    private final AtomicLong allocated = new AtomicLong();
+    private final AtomicLong discarded = new AtomicLong();
+
+    /**
+     * Create an empty pool.
+     *
+     * @param bufferSize size of each buffer in bytes
+     * @param capacity most idle buffers kept
+     * @throws IllegalArgumentException if bufferSize or capacity is not positive
+     */
+    public BufferPool(int bufferSize, int capacity) {
+        if (bufferSize < 1) throw new IllegalArgumentException("Buffer size must be positive.");
+        if (capacity < 1) throw new IllegalArgumentException("Capacity must be positive.");
+        this.bufferSize = bufferSize;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Takes a cleared buffer from the pool, allocating one if none is idle.
+     *
+     * @return a buffer of {@link #getBufferSize()} bytes
+     */
+    public ByteBuffer acquire() {
+        acquired.incrementAndGet();
+        int using = inUse.incrementAndGet();
+        peakInUse.accumulateAndGet(using, Math::max);
+        ByteBuffer buffer = idle.pollFirst();
+        if (buffer == null) {
+            allocated.incrementAndGet();
+            return ByteBuffer.allocateDirect(bufferSize);
+        }
+        idleCount.decrementAndGet();
+        buffer.clear();
+        return buffer;
+    }
+
+    /**
+     * Returns a buffer to the pool. The caller must not use it afterwards.
+     *
+     * @param buffer a buffer from {@link #acquire()}
+     * @throws NullPointerException if buffer is null
+     */
+    public void release(ByteBuffer buffer) {
+        if (buffer == null) throw new NullPointerException("Buffer is null");
+        inUse.decrementAndGet();
+        if (buffer.capacity() != bufferSize || !buffer.isDirect()) {
+            discarded.incrementAndGet();
+            return;
+        }
+        if (idleCount.incrementAndGet() > capacity) {
+            idleCount.decrementAndGet();
+            discarded.incrementAndGet();
+            return;
+        }
+        // most recently used first, so a quiet pool keeps touching the same buffers
+        idle.offerFirst(buffer);
+    }
+
+    /**
+     * Gets the size of each buffer.
+     *
+     * @return buffer size in bytes
+     */
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * Gets the most idle buffers kept.
+     *
+     * @return capacity in buffers
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Gets the number of buffers waiting in the pool.
+     *
+     * @return idle buffer count
+     */
+    public int getIdleCount() {
+        return Math.max(0, idleCount.get());
+    }
+
+    /**
+     * Gets the number of buffers acquired and not yet released.
+     *
+     * @return buffers in use
+     */
+    public int getInUseCount() {
+        return inUse.get();
+    }
+
+    /**
+     * Gets the most buffers that were in use at the same time.
+     *
+     * @return peak buffers in use
+     */
+    public int getPeakInUseCount() {
+        return peakInUse.get();
+    }
+
+    /**
+     * Gets the number of acquisitions.
+     *
+     * @return acquire count
+     */
+    public long getAcquireCount() {
+        return acquired.get();
+    }
+
+    /**
+     * Gets the number of buffers allocated because none was idle. Compared to
+     * {@link #getAcquireCount()} this is the miss rate of the pool.
+     *
+     * @return allocation count
+     */
+    public long getAllocationCount() {
+        return allocated.get();
+    }
+
+    /**
+     * Gets the number of released buffers dropped because the pool was full.
+     *
+     * @return discard count
+     */
+    public long getDiscardCount() {
+        return discarded.get();
+    }
+
+    /**
+     * Gets the pool utilization as named values for a metrics system.
+     *
+     * @return metric names and values, in a stable order
+     */
+    public Map<String, Long> getMetrics() {
+        Map<String, Long> metrics = new LinkedHashMap<>();
+        metrics.put("bufferpool.buffer.size", (long) bufferSize);
+        metrics.put("bufferpool.capacity", (long) capacity);
+        metrics.put("bufferpool.idle", (long) getIdleCount());
+        metrics.put("bufferpool.in.use", (long) getInUseCount());
+        metrics.put("bufferpool.in.use.peak", (long) getPeakInUseCount());
+        metrics.put("bufferpool.acquires", getAcquireCount());
+        metrics.put("bufferpool.allocations", getAllocationCount());
+        metrics.put("bufferpool.discards", getDiscardCount());
+        return metrics;
+    }
+
+    @Override
+    public String toString() {
+        return "BufferPool" + getMetrics();
+    }
+}
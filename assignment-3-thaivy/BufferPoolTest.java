@@ -0,0 +1,79 @@
+import static org.junit.Assert.*;
+import org.junit.Test;
+import java.nio.ByteBuffer;
+
+/**
+ * BufferPoolTest.java
+ */
+
+/**
+ * JUnit tests for BufferPool class
+ *
+ *
+ * @author Vy Thai
+ * @since 2020-11-13
+ */
+public class BufferPoolTest {
+    /**
+     * Test method for {@link BufferPool#BufferPool(int, int)}
+     */
+    @Test
+    public void testBufferPool() {
+        try {
+            new BufferPool(0, 1);
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // IllegalArgumentException caught
+        }
+        try {
+            new BufferPool(1024, 0);
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // IllegalArgumentException caught
+        }
+    }
+
+    /**
+     * Test method for {@link BufferPool#acquire()} and {@link BufferPool#release(ByteBuffer)}
+     */
+    @Test
+    public void testReuse() {
+        BufferPool pool = new BufferPool(1024, 2);
+        ByteBuffer first = pool.acquire();
+        assertTrue("acquire - direct", first.isDirect());
+        assertEquals("acquire - size", 1024, first.capacity());
+        assertEquals("acquire - in use", 1, pool.getInUseCount());
+        first.put((byte) 1);
+        pool.release(first);
+        assertEquals("release - idle", 1, pool.getIdleCount());
+
+        ByteBuffer again = pool.acquire();
+        assertSame("acquire - reused", first, again);
+        assertEquals("acquire - cleared", 0, again.position());
+        assertEquals("acquire - one allocation", 1, pool.getAllocationCount());
+        pool.release(again);
+        assertEquals("release - not in use", 0, pool.getInUseCount());
+    }
+
+    /**
+     * Test method for the capacity of {@link BufferPool}
+     */
+    @Test
+    public void testCapacity() {
+        BufferPool pool = new BufferPool(1024, 2);
+        ByteBuffer[] buffers = new ByteBuffer[3];
+        for (int i = 0; i < buffers.length; i++) buffers[i] = pool.acquire();
+        assertEquals("capacity - peak", 3, pool.getPeakInUseCount());
+        for (ByteBuffer buffer : buffers) pool.release(buffer);
+        assertEquals("capacity - idle", 2, pool.getIdleCount());
+        assertEquals("capacity - discarded", 1, pool.getDiscardCount());
+
+        // a buffer the pool did not hand out is not kept
+        pool.acquire();
+        pool.release(ByteBuffer.allocate(1024));
+        assertEquals("capacity - foreign", 2, pool.getDiscardCount());
+
+        assertEquals("metrics - acquires", Long.valueOf(4), pool.getMetrics().get("bufferpool.acquires"));
+        assertEquals("metrics - allocations", Long.valueOf(3), pool.getMetrics().get("bufferpool.allocations"));
+    }
+}
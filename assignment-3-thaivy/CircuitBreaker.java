@@ -0,0 +1,243 @@
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * CircuitBreaker.java
+ */
+
+/**
+ * Per-host circuit breaker. After a run of consecutive host failures the
+ * breaker opens and requests to that host fail at once instead of waiting
+ * for a connect timeout; once the open period has passed a single trial
+ * request is let through (half-open), closing the breaker on success and
+ * reopening it on failure. Closed breakers of hosts that have not been
+ * contacted for a while are forgotten, so memory follows the set of recently
+ * used hosts.
+ *
+ *
+ * @author Vy Thai
+ * @since 2020-10-16
+ */
+public class CircuitBreaker {
+    /** Breaker states */
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    /** Closed breakers unused for this long are forgotten */
+    private static final long IDLE_MILLIS = 5 * 60 * 1000;
+
+    /** Least time between sweeps for idle breakers */
+    private static final long SWEEP_MILLIS = 60 * 1000;
+
+    private static final Map<String, CircuitBreaker> BREAKERS = new ConcurrentHashMap<>();
+    private static final AtomicLong SWEPT = new AtomicLong(System.currentTimeMillis());
+    private static volatile int defaultFailureThreshold = 5;
+    private static volatile long defaultOpenMillis = 30000;
+
+    private final String host;
+    private final int failureThreshold;
+    private final long openMillis;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private boolean trialInFlight;
+    private long successCount;
+    private long failureCount;
+    private long rejectedCount;
+    private long lastUsed = System.currentTimeMillis();
+
+    /**
+     * Thrown instead of contacting a host whose breaker is open.
+     */
+    public static class OpenException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Create an instance for a host.
+         *
+         * @param host the host
+         */
+        public OpenException(String host) {
+            super("Circuit open for " + host + ".");
+        }
+    }
+
+    /**
+     * Create a breaker.
+     *
+     * @param host the host it guards
+     * @param failureThreshold consecutive failures that open the breaker
+     * @param openMillis how long the breaker stays open before a trial request
+     */
+    CircuitBreaker(String host, int failureThreshold, long openMillis) {
+        this.host = host;
+        this.failureThreshold = failureThreshold;
+        this.openMillis = openMillis;
+    }
+
+    /**
+     * Gets the shared breaker for a host, creating it with the current
+     * defaults on first use.
+     *
+     * @param host the host name
+     * @return the breaker
+     */
+    public static CircuitBreaker forHost(String host) {
+        long now = System.currentTimeMillis();
+        long swept = SWEPT.get();
+        if (now - swept >= SWEEP_MILLIS && SWEPT.compareAndSet(swept, now)) sweep(now);
+        return BREAKERS.computeIfAbsent(host.toLowerCase(Locale.ROOT),
+                h -> new CircuitBreaker(h, defaultFailureThreshold, defaultOpenMillis));
+    }
+
+    /**
+     * Forgets breakers that are closed and have not been used for a while. A
+     * breaker that is open or has just been used is kept, so that dropping
+     * one never lets requests through to a failing host.
+     *
+     * @param now current time in milliseconds
+     */
+    static void sweep(long now) {
+        BREAKERS.values().removeIf(breaker -> breaker.isIdle(now));
+    }
+
+    /**
+     * Determines whether this breaker is closed and unused for a while.
+     *
+     * @param now current time in milliseconds
+     * @return true if the breaker may be forgotten
+     */
+    private synchronized boolean isIdle(long now) {
+        return state == State.CLOSED && now - lastUsed >= IDLE_MILLIS;
+    }
+
+    /**
+     * Gets a snapshot of every host breaker.
+     *
+     * @return unmodifiable map of host to breaker, sorted by host
+     */
+    public static Map<String, CircuitBreaker> getBreakers() {
+        return Collections.unmodifiableMap(new TreeMap<>(BREAKERS));
+    }
+
+    /**
+     * Sets the limits used by breakers created from now on.
+     *
+     * @param failureThreshold consecutive failures that open a breaker
+     * @param openMillis how long a breaker stays open before a trial request
+     * @throws IllegalArgumentException if a limit is not positive
+     */
+    public static void setDefaults(int failureThreshold, long openMillis) {
+        if (failureThreshold < 1 || openMillis < 1) throw new IllegalArgumentException("Breaker limits must be positive.");
+        defaultFailureThreshold = failureThreshold;
+        defaultOpenMillis = openMillis;
+    }
+
+    /**
+     * Forgets every host breaker.
+     */
+    public static void reset() {
+        BREAKERS.clear();
+    }
+
+    /**
+     * Admits a request, or rejects it while the breaker is open.
+     *
+     * @throws OpenException if the breaker is open or its trial request is in flight
+     */
+    public synchronized void acquire() throws OpenException {
+        lastUsed = System.currentTimeMillis();
+        if (state == State.OPEN && System.currentTimeMillis() - openedAt >= openMillis) {
+            state = State.HALF_OPEN;
+        }
+        if (state == State.OPEN || state == State.HALF_OPEN && trialInFlight) {
+            rejectedCount++;
+            throw new OpenException(host);
+        }
+        if (state == State.HALF_OPEN) trialInFlight = true;
+    }
+
+    /**
+     * Records a request that reached the host.
+     */
+    public synchronized void recordSuccess() {
+        lastUsed = System.currentTimeMillis();
+        successCount++;
+        consecutiveFailures = 0;
+        trialInFlight = false;
+        state = State.CLOSED;
+    }
+
+    /**
+     * Records a request that failed because of the host.
+     */
+    public synchronized void recordFailure() {
+        lastUsed = System.currentTimeMillis();
+        failureCount++;
+        consecutiveFailures++;
+        trialInFlight = false;
+        if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            state = State.OPEN;
+            openedAt = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * Gets the host this breaker guards.
+     *
+     * @return the host name
+     */
+    public String getHost() {
+        return host;
+    }
+
+    /**
+     * Gets the current state, moving to half-open if the open period is over.
+     *
+     * @return the state
+     */
+    public synchronized State getState() {
+        if (state == State.OPEN && System.currentTimeMillis() - openedAt >= openMillis) {
+            return State.HALF_OPEN;
+        }
+        return state;
+    }
+
+    /**
+     * Gets the number of requests that reached the host.
+     *
+     * @return success count
+     */
+    public synchronized long getSuccessCount() {
+        return successCount;
+    }
+
+    /**
+     * Gets the number of requests that failed because of the host.
+     *
+     * @return failure count
+     */
+    public synchronized long getFailureCount() {
+        return failureCount;
+    }
+
+    /**
+     * Gets the number of requests rejected while the breaker was open.
+     *
+     * @return rejected count
+     */
+    public synchronized long getRejectedCount() {
+        return rejectedCount;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "CircuitBreaker[host=" + host + ", state=" + getState() + ", successes=" + successCount
+                + ", failures=" + failureCount + ", rejected=" + rejectedCount + "]";
+    }
+}
@@ -0,0 +1,166 @@
+import static org.junit.Assert.*;
+import org.junit.Test;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.MalformedURLException;
+import java.util.Collections;
+
+/**
+ * CircuitBreakerTest.java
+ */
+
+/**
+ * JUnit tests for CircuitBreaker class
+ *
+ *
+ * @author Vy Thai
+ * @since 2020-10-16
+ */
+public class CircuitBreakerTest {
+
+    /**
+     * Test method for {@link CircuitBreaker#acquire()} moving through
+     * closed, open and half-open states
+     */
+    @Test
+    public void testStates() {
+        CircuitBreaker breaker = new CircuitBreaker("example.com", 2, 100);
+        try {
+            // closed: failures below the threshold are let through
+            breaker.acquire();
+            breaker.recordFailure();
+            assertEquals("state - one failure", CircuitBreaker.State.CLOSED, breaker.getState());
+            breaker.acquire();
+            breaker.recordFailure();
+            assertEquals("state - threshold reached", CircuitBreaker.State.OPEN, breaker.getState());
+        } catch (CircuitBreaker.OpenException e) {
+            fail("Unexpected OpenException");
+        }
+
+        try {
+            // open: fail fast
+            breaker.acquire();
+            fail("Expected OpenException");
+        } catch (CircuitBreaker.OpenException e) {
+            assertEquals("state - rejected count", 1, breaker.getRejectedCount());
+        }
+
+        try {
+            // half-open: one trial only, and a failed trial reopens
+            Thread.sleep(150);
+            assertEquals("state - open period over", CircuitBreaker.State.HALF_OPEN, breaker.getState());
+            breaker.acquire();
+            try {
+                breaker.acquire();
+                fail("Expected OpenException");
+            } catch (CircuitBreaker.OpenException e) {
+                // OpenException caught
+            }
+            breaker.recordFailure();
+            assertEquals("state - failed trial", CircuitBreaker.State.OPEN, breaker.getState());
+
+            // a successful trial closes
+            Thread.sleep(150);
+            breaker.acquire();
+            breaker.recordSuccess();
+            assertEquals("state - successful trial", CircuitBreaker.State.CLOSED, breaker.getState());
+            assertEquals("state - failure count", 3, breaker.getFailureCount());
+            assertEquals("state - success count", 1, breaker.getSuccessCount());
+        } catch (CircuitBreaker.OpenException | InterruptedException e) {
+            fail("Unexpected " + e);
+        }
+    }
+
+    /**
+     * Test method for {@link CircuitBreaker#sweep(long)} forgetting idle
+     * closed breakers but keeping open ones
+     */
+    @Test
+    public void testSweep() {
+        CircuitBreaker.reset();
+        CircuitBreaker.setDefaults(1, 60000);
+        try {
+            CircuitBreaker.forHost("idle.example.com").recordSuccess();
+            CircuitBreaker.forHost("down.example.com").recordFailure();
+            CircuitBreaker.sweep(System.currentTimeMillis());
+            assertEquals("sweep - recently used", 2, CircuitBreaker.getBreakers().size());
+
+            // ten minutes on, only the open breaker is still needed
+            CircuitBreaker.sweep(System.currentTimeMillis() + 600000);
+            assertEquals("sweep - idle forgotten", Collections.singleton("down.example.com"),
+                    CircuitBreaker.getBreakers().keySet());
+        } finally {
+            CircuitBreaker.setDefaults(5, 30000);
+            CircuitBreaker.reset();
+        }
+    }
+
+    /**
+     * Test method for {@link CircuitBreaker#forHost(java.lang.String)} guarding
+     * {@link ContentInfo} requests to a host that refuses connections
+     *
+     * @throws MalformedURLException if invalid url string
+     */
+    @Test
+    public void testContentInfo() throws MalformedURLException {
+        CircuitBreaker.reset();
+        CircuitBreaker.setDefaults(3, 60000);
+        try {
+            ContentInfo refused = new ContentInfo("http://127.0.0.1:1/refused.txt");
+            refused.setRetryPolicy(new RetryPolicy(2, 0, 0));
+
+            // two attempts per call, so the second call opens the breaker
+            assertFalse("breaker - first call", refused.isAvailable());
+            assertFalse("breaker - second call", refused.isAvailable());
+            CircuitBreaker breaker = CircuitBreaker.forHost("127.0.0.1");
+            assertEquals("breaker - failures", 3, breaker.getFailureCount());
+            assertEquals("breaker - state", CircuitBreaker.State.OPEN, breaker.getState());
+
+            try {
+                refused.getContentType();
+                fail("Expected OpenException");
+            } catch (CircuitBreaker.OpenException e) {
+                assertEquals("breaker - rejected", 2, breaker.getRejectedCount());
+            } catch (IOException e) {
+                fail("Unexpected " + e);
+            }
+        } finally {
+            CircuitBreaker.setDefaults(5, 30000);
+            CircuitBreaker.reset();
+        }
+    }
+
+    /**
+     * Test method for {@link CircuitBreaker#forHost(java.lang.String)} charging
+     * failures to the host a redirect led to
+     *
+     * @throws IOException if the local server cannot start
+     */
+    @Test
+    public void testRedirectedHost() throws IOException {
+        CircuitBreaker.reset();
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        int port = server.getAddress().getPort();
+        server.createContext("/moved.txt", exchange -> {
+            exchange.getResponseHeaders().set("Location", "http://localhost:" + port + "/bad.txt");
+            exchange.sendResponseHeaders(302, -1);
+            exchange.close();
+        });
+        server.createContext("/bad.txt", exchange -> {
+            exchange.sendResponseHeaders(502, -1);
+            exchange.close();
+        });
+        server.start();
+        try {
+            ContentInfo moved = new ContentInfo("http://127.0.0.1:" + port + "/moved.txt");
+            moved.setRetryPolicy(RetryPolicy.NONE);
+            assertFalse("redirected - available", moved.isAvailable());
+            assertEquals("redirected - first host", 0, CircuitBreaker.forHost("127.0.0.1").getFailureCount());
+            assertEquals("redirected - final host", 1, CircuitBreaker.forHost("localhost").getFailureCount());
+        } finally {
+            server.stop(0);
+            CircuitBreaker.reset();
+        }
+    }
+}
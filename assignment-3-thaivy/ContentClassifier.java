@@ -0,0 +1,469 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.net.MalformedURLException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * ContentClassifier.java
+ */
+
+/**
+ * Command-line bulk classifier that probes a stream of URLs with ContentInfo
+ * and writes one JSONL or CSV record per URL.
+ *
+ * <pre>
+ * java ContentClassifier [--input FILE] [--output FILE] [--format jsonl|csv]
+ *                        [--parallelism N] [--per-host N] [--host-rate R]
+ *                        [--timeout SECONDS] [--checkpoint FILE]
+ * </pre>
+ *
+ * URLs are read one per line from the input file or stdin; blank lines and
+ * lines starting with '#' are skipped. Probes run through a {@link HostScheduler}
+ * with at most --per-host connections and --host-rate requests per second to
+ * each host, and --parallelism connections overall. Each probe waits at most
+ * --timeout seconds to connect and as long again for the response, so an
+ * unresponsive host cannot stall the ordered output. A host answering 429 or
+ * 503 is paused by the scheduler and the probe queued again; it is recorded
+ * as unavailable only once the scheduler gives up on it. Records are
+ * written in input order through a bounded window, so memory stays constant
+ * however long the input is. With a checkpoint file the next input line and
+ * the output length are saved periodically; a later run with the same
+ * arguments truncates the output to the checkpoint and resumes from there
+ * without probing completed URLs again.
+ *
+ *
+ * @author Vy Thai
+ * @since 2020-10-09
+ */
+public class ContentClassifier {
+    /** Records written between checkpoints */
+    private static final int CHECKPOINT_INTERVAL = 1000;
+
+    /** In-flight probes allowed per worker thread */
+    private static final int WINDOW_PER_THREAD = 4;
+
+    private static final String CSV_HEADER = "line,url,status,contentType,category,millis,error";
+
+    /** Retries of probes run by the scheduler, which paces throttled hosts itself */
+    private static final RetryPolicy PACED = new RetryPolicy(RetryPolicy.DEFAULT.getMaxAttempts(),
+            RetryPolicy.DEFAULT.getBaseDelay(), RetryPolicy.DEFAULT.getMaxDelay(), false);
+
+    private Path input;
+    private Path output;
+    private Path checkpoint;
+    private String format = "jsonl";
+    private int parallelism = 16;
+    private int perHost = 4;
+    private double hostRate = 10;
+    private int timeout = ContentInfo.DEFAULT_READ_TIMEOUT;
+
+    /**
+     * Runs the classifier from the command line.
+     *
+     * @param args command-line arguments
+     */
+    public static void main(String[] args) {
+        try {
+            new ContentClassifier(args).run(System.in, System.out);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println("usage: java ContentClassifier [--input FILE] [--output FILE] [--format jsonl|csv]"
+                    + " [--parallelism N] [--per-host N] [--host-rate R] [--timeout SECONDS] [--checkpoint FILE]");
+            System.exit(2);
+        } catch (IOException e) {
+            System.err.println("ContentClassifier: " + e.getMessage());
+            System.exit(1);
+        } catch (InterruptedException e) {
+            System.exit(130);
+        }
+    }
+
+    /**
+     * Create a classifier from command-line arguments.
+     *
+     * @param args command-line arguments
+     * @throws IllegalArgumentException if the arguments are invalid
+     */
+    public ContentClassifier(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (i + 1 >= args.length) throw new IllegalArgumentException("Missing value for " + arg);
+            String value = args[++i];
+            switch (arg) {
+                case "--input": input = Paths.get(value); break;
+                case "--output": output = Paths.get(value); break;
+                case "--checkpoint": checkpoint = Paths.get(value); break;
+                case "--format":
+                    if (!value.equals("jsonl") && !value.equals("csv")) {
+                        throw new IllegalArgumentException("Unknown format " + value);
+                    }
+                    format = value;
+                    break;
+                case "--parallelism": parallelism = (int) positive(arg, value); break;
+                case "--per-host": perHost = (int) positive(arg, value); break;
+                case "--host-rate": hostRate = positive(arg, value); break;
+                case "--timeout": timeout = (int) Math.max(1, Math.min(Integer.MAX_VALUE, positive(arg, value) * 1000)); break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + arg);
+            }
+        }
+        // resuming truncates the output, which needs a real file
+        if (checkpoint != null && output == null) {
+            throw new IllegalArgumentException("--checkpoint requires --output");
+        }
+    }
+
+    /**
+     * Parses a positive numeric option.
+     *
+     * @param option the option name
+     * @param value the option value
+     * @return the parsed value
+     * @throws IllegalArgumentException if the value is not a positive number
+     */
+    private static double positive(String option, String value) {
+        try {
+            double number = Double.parseDouble(value);
+            if (number > 0) return number;
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        throw new IllegalArgumentException("Invalid " + option + " " + value);
+    }
+
+    /**
+     * Classifies every URL of the input and writes the records.
+     *
+     * @param stdin input used when no input file is given
+     * @param stdout output used when no output file is given
+     * @throws IOException if the input, output or checkpoint cannot be accessed
+     * @throws InterruptedException if interrupted while waiting for a probe
+     */
+    public void run(InputStream stdin, PrintStream stdout) throws IOException, InterruptedException {
+        long resumeLine = 0;
+        long outputOffset = 0;
+        if (checkpoint != null && Files.exists(checkpoint)) {
+            // "nextLine outputOffset"
+            String[] saved = new String(Files.readAllBytes(checkpoint), StandardCharsets.UTF_8).trim().split("\\s+");
+            try {
+                resumeLine = Long.parseLong(saved[0]);
+                outputOffset = Long.parseLong(saved[1]);
+            } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                throw new IOException("Corrupt checkpoint " + checkpoint);
+            }
+        }
+
+        OutputStream out;
+        if (output != null) {
+            FileChannel channel = FileChannel.open(output, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            // drop records written after the last checkpoint; they are probed again
+            channel.truncate(outputOffset);
+            channel.position(outputOffset);
+            out = Channels.newOutputStream(channel);
+        } else {
+            out = stdout;
+        }
+
+        HostScheduler scheduler = new HostScheduler(parallelism, perHost, hostRate, perHost);
+        CountingWriter writer = new CountingWriter(new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8)), outputOffset);
+        InputStream in = input != null ? Files.newInputStream(input) : stdin;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            if (format.equals("csv") && outputOffset == 0) writer.writeLine(CSV_HEADER);
+
+            Deque<Future<String>> window = new ArrayDeque<>();
+            Deque<Long> lines = new ArrayDeque<>();
+            int windowSize = parallelism * WINDOW_PER_THREAD;
+            long written = 0;
+            long lineNumber = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                long current = lineNumber++;
+                String url = line.trim();
+                if (current < resumeLine || url.isEmpty() || url.startsWith("#")) continue;
+
+                window.addLast(submit(scheduler, current, url));
+                lines.addLast(current);
+
+                // emit in input order once the window is full
+                if (window.size() >= windowSize) {
+                    writer.writeLine(take(window));
+                    long done = lines.removeFirst();
+                    if (++written % CHECKPOINT_INTERVAL == 0) saveCheckpoint(writer, done + 1);
+                }
+            }
+            while (!window.isEmpty()) {
+                writer.writeLine(take(window));
+                lines.removeFirst();
+            }
+            saveCheckpoint(writer, lineNumber);
+        } finally {
+            scheduler.close();
+            writer.flush();
+            if (out != stdout) writer.close();
+        }
+    }
+
+    /**
+     * Queues the probe of a URL on the scheduler of its host. A throttled
+     * probe fails its task so that the scheduler pauses the host and queues it
+     * again; once the scheduler gives up, the failure becomes the record. URLs
+     * that cannot be parsed have no host, so their record is produced
+     * immediately.
+     *
+     * @param scheduler the host scheduler
+     * @param line input line number
+     * @param url the URL
+     * @return future record
+     */
+    private Future<String> submit(HostScheduler scheduler, long line, String url) {
+        try {
+            // when the first attempt started, for the record of a probe that stays throttled
+            long[] started = new long[1];
+            return scheduler.submit(ContentTransports.newURL(url), () -> {
+                if (started[0] == 0) started[0] = System.nanoTime();
+                return classify(line, url, true);
+            }).exceptionally(failure -> {
+                if (!(failure instanceof ContentUnavailableException)) {
+                    throw failure instanceof CompletionException ? (CompletionException) failure : new CompletionException(failure);
+                }
+                long millis = (System.nanoTime() - started[0]) / 1000000;
+                return record(line, url, "unavailable", null, null, millis, failure.getMessage());
+            });
+        } catch (MalformedURLException e) {
+            return CompletableFuture.completedFuture(classify(line, url));
+        }
+    }
+
+    /**
+     * Waits for the oldest probe in the window.
+     *
+     * @param window in-flight probes in input order
+     * @return the record of the oldest probe
+     * @throws InterruptedException if interrupted while waiting
+     */
+    private static String take(Deque<Future<String>> window) throws InterruptedException {
+        try {
+            return window.removeFirst().get();
+        } catch (ExecutionException e) {
+            // submit() turns every probe failure into a record, so this is a bug
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Flushes the output and atomically records the resume position.
+     *
+     * @param writer the output writer
+     * @param nextLine first input line not yet written
+     * @throws IOException if the checkpoint cannot be written
+     */
+    private void saveCheckpoint(CountingWriter writer, long nextLine) throws IOException {
+        writer.flush();
+        if (checkpoint == null) return;
+        Path temp = checkpoint.resolveSibling(checkpoint.getFileName() + ".tmp");
+        Files.write(temp, (nextLine + " " + writer.count + "\n").getBytes(StandardCharsets.UTF_8));
+        Files.move(temp, checkpoint, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Probes one URL and formats its record.
+     *
+     * @param line input line number
+     * @param url the URL
+     * @return the formatted record
+     */
+    private String classify(long line, String url) {
+        try {
+            return classify(line, url, false);
+        } catch (ContentUnavailableException e) {
+            // not thrown when throttling is recorded
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Probes one URL and formats its record, optionally leaving throttled
+     * responses to the caller.
+     *
+     * @param line input line number
+     * @param url the URL
+     * @param paced true if a scheduler paces the host and retries throttled probes
+     * @return the formatted record
+     * @throws ContentUnavailableException if paced and the host answered 429 or 503
+     */
+    private String classify(long line, String url, boolean paced) throws ContentUnavailableException {
+        long start = System.nanoTime();
+        String status;
+        String contentType = null;
+        String category = null;
+        String error = null;
+        try {
+            ContentInfo info = new ContentInfo(url);
+            info.setConnectTimeout(timeout);
+            info.setReadTimeout(timeout);
+            if (paced) info.setRetryPolicy(PACED);
+            contentType = info.getContentType();
+            category = category(contentType);
+            status = "ok";
+        } catch (ContentUnavailableException e) {
+            if (paced && e.isThrottled()) throw e;
+            status = "unavailable";
+            error = e.getMessage();
+        } catch (IOException e) {
+            status = "unavailable";
+            error = e.getMessage();
+        } catch (RuntimeException e) {
+            status = "error";
+            error = e.toString();
+        }
+        long millis = (System.nanoTime() - start) / 1000000;
+        return record(line, url, status, contentType, category, millis, error);
+    }
+
+    /**
+     * Formats the record of one URL.
+     *
+     * @param line input line number
+     * @param url the URL
+     * @param status "ok", "unavailable" or "error"
+     * @param contentType the content type, possibly null
+     * @param category the category, possibly null
+     * @param millis time spent probing
+     * @param error the failure message, possibly null
+     * @return the formatted record
+     */
+    private String record(long line, String url, String status, String contentType, String category,
+                          long millis, String error) {
+        if (format.equals("csv")) {
+            return line + "," + csv(url) + "," + status + "," + csv(contentType) + "," + csv(category)
+                    + "," + millis + "," + csv(error);
+        }
+        return "{\"line\":" + line + ",\"url\":" + json(url) + ",\"status\":\"" + status
+                + "\",\"contentType\":" + json(contentType) + ",\"category\":" + json(category)
+                + ",\"millis\":" + millis + ",\"error\":" + json(error) + "}";
+    }
+
+    /**
+     * Maps a content type to the categories ContentInfo distinguishes.
+     *
+     * @param contentType the content type, possibly null
+     * @return "image", "text", "audio", "video" or "other"
+     */
+    static String category(String contentType) {
+        if (contentType == null) return "other";
+        String type = contentType.toLowerCase(Locale.ROOT);
+        if (type.startsWith("image/")) return "image";
+        if (type.startsWith("text/")) return "text";
+        if (type.startsWith("audio/")) return "audio";
+        if (type.startsWith("video/")) return "video";
+        return "other";
+    }
+
+    /**
+     * Formats a JSON string value.
+     *
+     * @param s the string, possibly null
+     * @return the quoted and escaped string, or null
+     */
+    static String json(String s) {
+        if (s == null) return "null";
+        StringBuilder sb = new StringBuilder(s.length() + 2).append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"': sb.append("\\\""); break;
+                case '\\': sb.append("\\\\"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                case '\t': sb.append("\\t"); break;
+                default:
+                    if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+                    else sb.append(c);
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    /**
+     * Formats a CSV field, quoting it if needed.
+     *
+     * @param s the field, possibly null
+     * @return the formatted field, empty for null
+     */
+    static String csv(String s) {
+        if (s == null) return "";
+        if (s.indexOf(',') < 0 && s.indexOf('"') < 0 && s.indexOf('\n') < 0 && s.indexOf('\r') < 0) return s;
+        return '"' + s.replace("\"", "\"\"") + '"';
+    }
+
+    /**
+     * Writer that counts the UTF-8 bytes written, so the checkpoint can record
+     * the output length without asking the file system.
+     */
+    private static final class CountingWriter {
+        private final Writer writer;
+        private long count;
+
+        /**
+         * Create a counting writer.
+         *
+         * @param writer the underlying writer
+         * @param count bytes already in the output
+         */
+        CountingWriter(Writer writer, long count) {
+            this.writer = writer;
+            this.count = count;
+        }
+
+        /**
+         * Writes a record followed by a newline.
+         *
+         * @param line the record
+         * @throws IOException if the output cannot be written
+         */
+        void writeLine(String line) throws IOException {
+            writer.write(line);
+            writer.write('\n');
+            count += line.getBytes(StandardCharsets.UTF_8).length + 1;
+        }
+
+        /**
+         * Flushes the underlying writer.
+         *
+         * @throws IOException if the output cannot be written
+         */
+        void flush() throws IOException {
+            writer.flush();
+        }
+
+        /**
+         * Closes the underlying writer.
+         *
+         * @throws IOException if the output cannot be closed
+         */
+        void close() throws IOException {
+            writer.close();
+        }
+    }
+}
@@ -0,0 +1,197 @@
+import static org.junit.Assert.*;
+import org.junit.Test;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * ContentClassifierTest.java
+ */
+
+/**
+ * JUnit tests for ContentClassifier class
+ *
+ *
+ * @author Vy Thai
+ * @since 2020-10-09
+ */
+public class ContentClassifierTest {
+
+    /**
+     * Test method for {@link ContentClassifier#category(java.lang.String)}
+     */
+    @Test
+    public void testCategory() {
+        assertEquals("category - image/png", "image", ContentClassifier.category("image/png"));
+        assertEquals("category - text/plain", "text", ContentClassifier.category("text/plain; charset=UTF-8"));
+        assertEquals("category - audio/wav", "audio", ContentClassifier.category("audio/wav"));
+        assertEquals("category - video/mp4", "video", ContentClassifier.category("video/mp4"));
+        assertEquals("category - application/pdf", "other", ContentClassifier.category("application/pdf"));
+        assertEquals("category - null", "other", ContentClassifier.category(null));
+        Locale locale = Locale.getDefault();
+        try {
+            // Turkish lower-cases 'I' to a dotless i
+            Locale.setDefault(new Locale("tr", "TR"));
+            assertEquals("category - VIDEO/MP4", "video", ContentClassifier.category("VIDEO/MP4"));
+        } finally {
+            Locale.setDefault(locale);
+        }
+    }
+
+    /**
+     * Test method for {@link ContentClassifier#json(java.lang.String)} and
+     * {@link ContentClassifier#csv(java.lang.String)}
+     */
+    @Test
+    public void testEscaping() {
+        assertEquals("json - quotes", "\"a\\\"b\\\\c\\n\"", ContentClassifier.json("a\"b\\c\n"));
+        assertEquals("json - null", "null", ContentClassifier.json(null));
+        assertEquals("csv - plain", "abc", ContentClassifier.csv("abc"));
+        assertEquals("csv - comma", "\"a,\"\"b\"\"\"", ContentClassifier.csv("a,\"b\""));
+        assertEquals("csv - null", "", ContentClassifier.csv(null));
+    }
+
+    /**
+     * Test method for {@link ContentClassifier#run(java.io.InputStream, java.io.PrintStream)}
+     */
+    @Test
+    public void testRun() {
+        try {
+            Path text = Files.createTempFile("classifier", ".txt");
+            Path input = Files.createTempFile("urls", ".txt");
+            Files.write(input, ("# comment\n" + text.toUri() + "\n\nno-protocol\n").getBytes(StandardCharsets.UTF_8));
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            new ContentClassifier(new String[]{"--input", input.toString(), "--format", "csv"})
+                    .run(System.in, new PrintStream(out, true));
+            String[] lines = out.toString("UTF-8").split("\n");
+            assertEquals("run - record count", 3, lines.length);
+            assertTrue("run - header", lines[0].startsWith("line,url,status"));
+            assertTrue("run - text record", lines[1].startsWith("1," + text.toUri() + ",ok,text/plain,text,"));
+            assertTrue("run - bad url record", lines[2].startsWith("3,no-protocol,unavailable,"));
+        } catch (IOException | InterruptedException e) {
+            fail("Unexpected " + e);
+        }
+    }
+
+    /**
+     * Test method for {@link ContentClassifier#run(java.io.InputStream, java.io.PrintStream)}
+     * resuming from a checkpoint
+     */
+    @Test
+    public void testResume() {
+        try {
+            Path text = Files.createTempFile("classifier", ".txt");
+            Path input = Files.createTempFile("urls", ".txt");
+            Path output = Files.createTempFile("records", ".jsonl");
+            Path checkpoint = Files.createTempFile("records", ".checkpoint");
+            Files.write(input, (text.toUri() + "\nno-protocol\n").getBytes(StandardCharsets.UTF_8));
+            String[] args = {"--input", input.toString(), "--output", output.toString(),
+                    "--checkpoint", checkpoint.toString()};
+
+            // complete run
+            Files.delete(checkpoint);
+            new ContentClassifier(args).run(System.in, System.out);
+            List<String> records = Files.readAllLines(output);
+            assertEquals("resume - record count", 2, records.size());
+            assertEquals("resume - checkpoint", "2 " + Files.size(output),
+                    new String(Files.readAllBytes(checkpoint), StandardCharsets.UTF_8).trim());
+
+            // crash after the first record: a partial record follows the checkpoint
+            long offset = records.get(0).getBytes(StandardCharsets.UTF_8).length + 1;
+            Files.write(checkpoint, ("1 " + offset + "\n").getBytes(StandardCharsets.UTF_8));
+            Files.write(output, (records.get(0) + "\n{\"line\":1,\"ur").getBytes(StandardCharsets.UTF_8));
+            new ContentClassifier(args).run(System.in, System.out);
+            List<String> resumed = Files.readAllLines(output);
+            assertEquals("resume - no duplicates", 2, resumed.size());
+            assertEquals("resume - first record kept", records.get(0), resumed.get(0));
+            assertTrue("resume - second record probed again", resumed.get(1).startsWith("{\"line\":1,\"url\":\"no-protocol\""));
+        } catch (IOException | InterruptedException e) {
+            fail("Unexpected " + e);
+        }
+    }
+
+    /**
+     * Test method for {@link ContentClassifier#run(java.io.InputStream, java.io.PrintStream)}
+     * against a host that throttles its first requests
+     *
+     * @throws Exception if the local server or files fail
+     */
+    @Test
+    public void testThrottled() throws Exception {
+        AtomicInteger busyRequests = new AtomicInteger();
+        AtomicInteger fullRequests = new AtomicInteger();
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/busy.txt", exchange -> {
+            if (busyRequests.incrementAndGet() == 1) {
+                exchange.getResponseHeaders().set("Retry-After", "0");
+                exchange.sendResponseHeaders(429, -1);
+            } else {
+                exchange.getResponseHeaders().set("Content-Type", "text/plain");
+                exchange.sendResponseHeaders(200, -1);
+            }
+            exchange.close();
+        });
+        server.createContext("/full.txt", exchange -> {
+            fullRequests.incrementAndGet();
+            exchange.getResponseHeaders().set("Retry-After", "0");
+            exchange.sendResponseHeaders(429, -1);
+            exchange.close();
+        });
+        server.start();
+        Path input = Files.createTempFile("urls", ".txt");
+        try {
+            String base = "http://127.0.0.1:" + server.getAddress().getPort();
+            Files.write(input, (base + "/busy.txt\n" + base + "/full.txt\n").getBytes(StandardCharsets.UTF_8));
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            new ContentClassifier(new String[]{"--input", input.toString(), "--format", "csv"})
+                    .run(System.in, new PrintStream(out, true));
+            String[] lines = out.toString("UTF-8").split("\n");
+            assertEquals("throttled - record count", 3, lines.length);
+            assertTrue("throttled - retried record", lines[1].startsWith("0," + base + "/busy.txt,ok,text/plain,text,"));
+            assertEquals("throttled - retried requests", 2, busyRequests.get());
+            // the scheduler queues the probe again before reporting it
+            assertTrue("throttled - given up record", lines[2].startsWith("1," + base + "/full.txt,unavailable,"));
+            assertTrue("throttled - deferred requests", fullRequests.get() > 1);
+        } finally {
+            server.stop(0);
+            Files.delete(input);
+        }
+    }
+
+    /**
+     * Test method for {@link ContentClassifier#ContentClassifier(java.lang.String[])}
+     */
+    @Test
+    public void testInvalidArguments() {
+        try {
+            new ContentClassifier(new String[]{"--format", "xml"});
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // IllegalArgumentException caught
+        }
+
+        try {
+            new ContentClassifier(new String[]{"--timeout", "0"});
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // IllegalArgumentException caught
+        }
+
+        try {
+            new ContentClassifier(new String[]{"--checkpoint", "run.checkpoint"});
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // IllegalArgumentException caught
+        }
+    }
+}
@@ -1,13 +1,29 @@
-import javax.imageio.ImageIO;
-import java.awt.*;
-import java.awt.image.BufferedImage;
 import java.io.*;
 import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
+import java.net.ProtocolException;
 import java.net.URL;
 import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
-import javax.sound.sampled.*;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * ContentInfo.java
@@ -21,7 +37,51 @@ import javax.sound.sampled.*;
  * @since 2020-09-18
  */
 public class ContentInfo {
+    /** Most redirects followed for one request */
+    private static final int MAX_REDIRECTS = 10;
+
+    /** Largest redirect body read to keep the connection alive */
+    private static final int REDIRECT_BODY_LIMIT = 64 * 1024;
+
+    /** Permanent redirect status, which HttpURLConnection has no constant for */
+    private static final int HTTP_PERMANENT_REDIRECT = 308;
+
+    /** Memoized permanent redirects kept at most */
+    private static final int PERMANENT_REDIRECT_CACHE_SIZE = 10000;
+
+    /** Source URL to target of 301/308 responses, least recently used first */
+    private static final Map<String, URL> PERMANENT_REDIRECTS = Collections.synchronizedMap(
+            new LinkedHashMap<String, URL>(16, 0.75f, true) {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, URL> eldest) {
+                    return size() > PERMANENT_REDIRECT_CACHE_SIZE;
+                }
+            });
+
+    /** Fewest samples a line count estimate is based on */
+    private static final int MIN_SAMPLES = 8;
+
+    /** Share of the content beyond which sampling costs more than counting every line */
+    private static final int MAX_SAMPLED_FRACTION = 4;
+
+    /** Standard normal quantile of a two-sided 95% confidence interval */
+    private static final double Z_95 = 1.96;
+
+    /** Milliseconds to wait for a connection unless set otherwise */
+    public static final int DEFAULT_CONNECT_TIMEOUT = 10000;
+
+    /** Milliseconds to wait for data on an open connection unless set otherwise */
+    public static final int DEFAULT_READ_TIMEOUT = 30000;
+
     private URL url;
+    private RetryPolicy retryPolicy = RetryPolicy.DEFAULT;
+    private int connectTimeout = DEFAULT_CONNECT_TIMEOUT;
+    private int readTimeout = DEFAULT_READ_TIMEOUT;
+    private DigestIndex digestIndex = DigestIndex.DEFAULT;
+    private BufferPool bufferPool = BufferPool.DEFAULT;
+    private MemoryBudget memoryBudget = MemoryBudget.DEFAULT;
 
     /**
      * Create an instance with the content URL.
@@ -41,7 +101,7 @@ public class ContentInfo {
      * @throws MalformedURLException if invalid url string
      */
     public ContentInfo(String urlString) throws MalformedURLException {
-        this.url = new URL(urlString);
+        this.url = ContentTransports.newURL(urlString);
     }
 
     public void setUrl(URL url) {
@@ -52,6 +112,205 @@ public class ContentInfo {
         return url;
     }
 
+    /**
+     * Sets how connection attempts are retried on transient failures.
+     *
+     * @param retryPolicy the retry policy, or {@link RetryPolicy#NONE} for a single attempt
+     * @throws NullPointerException if retryPolicy is null
+     */
+    public void setRetryPolicy(RetryPolicy retryPolicy) {
+        if (retryPolicy == null) throw new NullPointerException("Retry policy is null");
+        this.retryPolicy = retryPolicy;
+    }
+
+    /**
+     * Gets how connection attempts are retried on transient failures.
+     *
+     * @return the retry policy
+     */
+    public RetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
+
+    /**
+     * Sets how long to wait for a connection to be established.
+     *
+     * @param connectTimeout timeout in milliseconds, or 0 to wait indefinitely
+     * @throws IllegalArgumentException if connectTimeout is negative
+     */
+    public void setConnectTimeout(int connectTimeout) {
+        if (connectTimeout < 0) throw new IllegalArgumentException("Timeout must not be negative.");
+        this.connectTimeout = connectTimeout;
+    }
+
+    /**
+     * Gets how long to wait for a connection to be established.
+     *
+     * @return timeout in milliseconds, 0 if indefinite
+     */
+    public int getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    /**
+     * Sets how long to wait for the response and for each read of the
+     * content once connected.
+     *
+     * @param readTimeout timeout in milliseconds, or 0 to wait indefinitely
+     * @throws IllegalArgumentException if readTimeout is negative
+     */
+    public void setReadTimeout(int readTimeout) {
+        if (readTimeout < 0) throw new IllegalArgumentException("Timeout must not be negative.");
+        this.readTimeout = readTimeout;
+    }
+
+    /**
+     * Gets how long to wait for the response and for each read of the
+     * content once connected.
+     *
+     * @return timeout in milliseconds, 0 if indefinite
+     */
+    public int getReadTimeout() {
+        return readTimeout;
+    }
+
+    /**
+     * Sets the index of known digests consulted by {@link #getDigest(String)}.
+     *
+     * @param digestIndex the index, or null to always hash the content
+     */
+    public void setDigestIndex(DigestIndex digestIndex) {
+        this.digestIndex = digestIndex;
+    }
+
+    /**
+     * Gets the index of known digests consulted by {@link #getDigest(String)}.
+     *
+     * @return the index, or null if none is used
+     */
+    public DigestIndex getDigestIndex() {
+        return digestIndex;
+    }
+
+    /**
+     * Sets the pool of buffers that content bodies are read through.
+     *
+     * @param bufferPool the buffer pool
+     * @throws NullPointerException if bufferPool is null
+     */
+    public void setBufferPool(BufferPool bufferPool) {
+        if (bufferPool == null) throw new NullPointerException("Buffer pool is null");
+        this.bufferPool = bufferPool;
+    }
+
+    /**
+     * Gets the pool of buffers that content bodies are read through.
+     *
+     * @return the buffer pool
+     */
+    public BufferPool getBufferPool() {
+        return bufferPool;
+    }
+
+    /**
+     * Sets the budget that audio decoding is admitted by.
+     *
+     * @param memoryBudget the memory budget
+     * @throws NullPointerException if memoryBudget is null
+     */
+    public void setMemoryBudget(MemoryBudget memoryBudget) {
+        if (memoryBudget == null) throw new NullPointerException("Memory budget is null");
+        this.memoryBudget = memoryBudget;
+    }
+
+    /**
+     * Gets the budget that audio decoding is admitted by.
+     *
+     * @return the memory budget
+     */
+    public MemoryBudget getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    /**
+     * Opens a connection, retrying transient failures according to the retry
+     * policy and going through the circuit breaker of the host that will be
+     * contacted first, after memoized permanent redirects. The outcome is
+     * recorded against the host that answered last, so a redirect to another
+     * host does not charge its failures to the original one.
+     *
+     * @param opener opens one connection attempt
+     * @return the established connection
+     * @throws IOException if every attempt failed or the host's breaker is open
+     */
+    private URLConnection connect(Opener opener) throws IOException {
+        for (int attempt = 1; ; attempt++) {
+            URL[] contacted = {resolvePermanentRedirects(url)};
+            CircuitBreaker breaker = breakerFor(contacted[0]);
+            if (breaker != null) breaker.acquire();
+            try {
+                URLConnection connection = opener.open(contacted);
+                record(breaker, contacted[0], null);
+                return connection;
+            } catch (IOException e) {
+                record(breaker, contacted[0], e);
+                if (attempt >= retryPolicy.getMaxAttempts() || !retryPolicy.isRetryable(e)) throw e;
+                long delay = retryPolicy.delay(attempt, e);
+                if (delay < 0) throw e;
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while retrying.");
+                }
+            } catch (RuntimeException e) {
+                // never leave a half-open trial in flight
+                if (breaker != null) breaker.recordFailure();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Gets the circuit breaker guarding the host of a URL.
+     *
+     * @param target the URL
+     * @return the breaker, or null for local protocols such as file: that have no host to protect
+     */
+    private static CircuitBreaker breakerFor(URL target) {
+        return target.getHost().isEmpty() ? null : CircuitBreaker.forHost(target.getHost());
+    }
+
+    /**
+     * Records the outcome of a connection attempt.
+     *
+     * @param admitted the breaker that admitted the attempt, or null if none
+     * @param contacted the last URL contacted, after any redirects
+     * @param failure the failure of the attempt, or null if it succeeded
+     */
+    private static void record(CircuitBreaker admitted, URL contacted, IOException failure) {
+        CircuitBreaker breaker = breakerFor(contacted);
+        // redirected to another host: the first one answered, the outcome belongs to the last
+        if (admitted != null && admitted != breaker) admitted.recordSuccess();
+        if (breaker == null) return;
+        if (failure != null && RetryPolicy.isHostFailure(failure)) breaker.recordFailure();
+        else breaker.recordSuccess();
+    }
+
+    /**
+     * One attempt at opening a connection.
+     */
+    private interface Opener {
+        /**
+         * Opens the connection.
+         *
+         * @param contacted holds the last URL contacted, updated on every redirect
+         * @return the established connection
+         * @throws IOException if the attempt failed
+         */
+        URLConnection open(URL[] contacted) throws IOException;
+    }
+
     /**
      * Establish and return the appropriate URL connection of the URL instance
      *
@@ -60,30 +319,372 @@ public class ContentInfo {
      * @throws java.io.IOException if the content is not available
      */
     private URLConnection getConnection(boolean contentRequired) throws IOException {
-        // establish URL connection
-        URLConnection connection = url.openConnection();
+        return connect(contacted -> openConnection(contentRequired, contacted));
+    }
+
+    /**
+     * Makes one attempt at establishing the URL connection.
+     *
+     * @param contentRequired true if url's full content required, false if not
+     * @param contacted holds the last URL contacted
+     * @return URL Connection of the URL instance
+     * @throws java.io.IOException if the content is not available
+     */
+    private URLConnection openConnection(boolean contentRequired, URL[] contacted) throws IOException {
+        // establish URL connection, fetching with "GET" if content is required, otherwise optimize with "HEAD"
+        URLConnection connection = openFollowingRedirects(contentRequired ? "GET" : "HEAD", Collections.emptyMap(), contacted);
 
         // if URLConnection is a HttpURLConnection protocol
         if (connection instanceof HttpURLConnection) {
             // establish HttpURLConnection
             HttpURLConnection httpURLConnection = (HttpURLConnection) connection;
 
-            // fetch with "GET" if content is required, otherwise optimize with "HEAD"
-            httpURLConnection.setRequestMethod(contentRequired ? "GET" : "HEAD");
-
             // return HttpUrlConnection is connection's successful
             if (httpURLConnection.getResponseCode() == HttpURLConnection.HTTP_OK) {
                 return httpURLConnection;
             } else {
                 // throw IOException if connection's unsuccessful
-                throw new IOException("Content unavailable.");
+                throw unavailable(httpURLConnection);
             }
-        } else {
-            connection.connect();
         }
         return connection;
     }
 
+    /**
+     * Establish and return a URL connection for part of the content. HTTP servers
+     * that do not support ranges answer with the whole content instead.
+     *
+     * @param range value of the HTTP Range header, e.g. "bytes=0-1023" or "bytes=-1024"
+     * @return URL Connection of the URL instance
+     * @throws java.io.IOException if the content is not available
+     */
+    private URLConnection getRangeConnection(String range) throws IOException {
+        return connect(contacted -> openRangeConnection(range, contacted));
+    }
+
+    /**
+     * Makes one attempt at establishing a URL connection for part of the content.
+     *
+     * @param range value of the HTTP Range header
+     * @param contacted holds the last URL contacted
+     * @return URL Connection of the URL instance
+     * @throws java.io.IOException if the content is not available
+     */
+    private URLConnection openRangeConnection(String range, URL[] contacted) throws IOException {
+        URLConnection connection = openFollowingRedirects("GET", Collections.singletonMap("Range", range), contacted);
+
+        if (connection instanceof HttpURLConnection) {
+            HttpURLConnection httpURLConnection = (HttpURLConnection) connection;
+
+            // accept both partial content and a full response from servers ignoring Range
+            int code = httpURLConnection.getResponseCode();
+            if (code == HttpURLConnection.HTTP_PARTIAL || code == HttpURLConnection.HTTP_OK) {
+                return httpURLConnection;
+            } else {
+                throw unavailable(httpURLConnection);
+            }
+        }
+        return connection;
+    }
+
+    /**
+     * Establish and return a URL connection that only carries the headers of
+     * the content if it changed since a previous response. HTTP content is
+     * probed with a conditional HEAD, which the server answers with a cheap
+     * 304 Not Modified while the content is unchanged.
+     *
+     * @param etag ETag of the previous response, or null if it had none
+     * @param lastModified Last-Modified of the previous response in milliseconds, or 0 if it had none
+     * @return URL Connection with a 200 or 304 response for HTTP, or an open connection otherwise
+     * @throws java.io.IOException if the content is not available
+     */
+    URLConnection getConditionalConnection(String etag, long lastModified) throws IOException {
+        Map<String, String> headers = new LinkedHashMap<>();
+        if (etag != null) headers.put("If-None-Match", etag);
+        if (lastModified > 0) {
+            SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.US);
+            format.setTimeZone(TimeZone.getTimeZone("GMT"));
+            headers.put("If-Modified-Since", format.format(new Date(lastModified)));
+        }
+        return connect(contacted -> {
+            URLConnection connection = openFollowingRedirects("HEAD", headers, contacted);
+            if (connection instanceof HttpURLConnection) {
+                HttpURLConnection httpURLConnection = (HttpURLConnection) connection;
+                int code = httpURLConnection.getResponseCode();
+                if (code != HttpURLConnection.HTTP_OK && code != HttpURLConnection.HTTP_NOT_MODIFIED) {
+                    throw unavailable(httpURLConnection);
+                }
+            }
+            return connection;
+        });
+    }
+
+    /**
+     * Opens a connection through the transport registered for the URL's
+     * scheme and follows HTTP redirects, including hops between http and
+     * https which HttpURLConnection refuses to follow. Targets of
+     * permanent redirects (301 and 308) are memoized so later requests for the
+     * same URL go straight to the final location; a memoized target that now
+     * answers with a client error is forgotten and the chain is followed again.
+     * Every hop gets the connect and read timeouts of this instance, so an
+     * unresponsive host fails the request instead of holding its thread.
+     *
+     * @param method the HTTP request method
+     * @param headers request headers such as Range, sent on every hop
+     * @param contacted holds the last URL contacted, set before each hop
+     * @return the connection with its final, non-redirect response
+     * @throws IOException if content unavailable or there are too many redirects
+     */
+    private URLConnection openFollowingRedirects(String method, Map<String, String> headers, URL[] contacted)
+            throws IOException {
+        URL current = resolvePermanentRedirects(url);
+        boolean memoized = current != url;
+        int hops = 0;
+        while (true) {
+            contacted[0] = current;
+            URLConnection connection = ContentTransports.forScheme(current.getProtocol()).open(current);
+            connection.setConnectTimeout(connectTimeout);
+            connection.setReadTimeout(readTimeout);
+            if (!(connection instanceof HttpURLConnection)) {
+                connection.connect();
+                return connection;
+            }
+
+            HttpURLConnection httpURLConnection = (HttpURLConnection) connection;
+            httpURLConnection.setInstanceFollowRedirects(false);
+            httpURLConnection.setRequestMethod(method);
+            for (Map.Entry<String, String> header : headers.entrySet()) {
+                httpURLConnection.setRequestProperty(header.getKey(), header.getValue());
+            }
+            int code = httpURLConnection.getResponseCode();
+            String location = code >= 300 && code < 400 ? httpURLConnection.getHeaderField("Location") : null;
+
+            if (location == null) {
+                if (memoized && code >= 400 && code < 500) {
+                    // the memoized location went away: start again from the original URL
+                    forgetPermanentRedirects(url);
+                    httpURLConnection.disconnect();
+                    current = url;
+                    memoized = false;
+                    continue;
+                }
+                return httpURLConnection;
+            }
+
+            discard(httpURLConnection);
+            if (++hops > MAX_REDIRECTS) throw new ProtocolException("Too many redirects.");
+            URL next = new URL(current, location);
+            if (!"http".equals(next.getProtocol()) && !"https".equals(next.getProtocol())) {
+                throw new ProtocolException("Unsupported redirect to " + next + ".");
+            }
+            if (code == HttpURLConnection.HTTP_MOVED_PERM || code == HTTP_PERMANENT_REDIRECT) {
+                PERMANENT_REDIRECTS.put(current.toString(), next);
+            }
+            current = next;
+        }
+    }
+
+    /**
+     * Follows memoized permanent redirects from a URL.
+     *
+     * @param start the URL to start from
+     * @return the final memoized location, or start itself if none
+     */
+    private static URL resolvePermanentRedirects(URL start) {
+        URL current = start;
+        URL next;
+        // the hop limit also stops a redirect cycle
+        for (int hops = 0; hops < MAX_REDIRECTS && (next = PERMANENT_REDIRECTS.get(current.toString())) != null; hops++) {
+            current = next;
+        }
+        return current;
+    }
+
+    /**
+     * Forgets the memoized permanent redirect chain starting at a URL.
+     *
+     * @param start the URL the chain starts at
+     */
+    private static void forgetPermanentRedirects(URL start) {
+        URL next = PERMANENT_REDIRECTS.remove(start.toString());
+        for (int hops = 0; next != null && hops < MAX_REDIRECTS; hops++) {
+            next = PERMANENT_REDIRECTS.remove(next.toString());
+        }
+    }
+
+    /**
+     * Reads and discards the small body of a redirect response so the
+     * connection can be reused, or drops the connection if the body is large.
+     *
+     * @param connection the redirect response
+     */
+    private static void discard(HttpURLConnection connection) {
+        try (InputStream in = connection.getInputStream()) {
+            long skipped = 0;
+            byte[] buf = new byte[4096];
+            int n;
+            while ((n = in.read(buf)) > 0) {
+                skipped += n;
+                if (skipped > REDIRECT_BODY_LIMIT) {
+                    connection.disconnect();
+                    return;
+                }
+            }
+        } catch (IOException e) {
+            connection.disconnect();
+        }
+    }
+
+    /**
+     * Opens the whole content for reading. For HTTP the stream resumes with a
+     * Range request after a mid-stream failure, so callers reading it see one
+     * uninterrupted body.
+     *
+     * @return the content stream
+     * @throws IOException if content unavailable
+     */
+    private InputStream getBody() throws IOException {
+        URLConnection connection = getConnection(true);
+        if (connection instanceof HttpURLConnection) {
+            return new ResumableInputStream((HttpURLConnection) connection);
+        }
+        return connection.getInputStream();
+    }
+
+    /**
+     * Builds the exception for an unsuccessful HTTP response, keeping its status
+     * and any Retry-After delay (given either in seconds or as an HTTP date).
+     *
+     * @param connection the connection with an unsuccessful response
+     * @return the exception to throw
+     * @throws IOException if the response cannot be read
+     */
+    private static ContentUnavailableException unavailable(HttpURLConnection connection) throws IOException {
+        long retryAfter = -1;
+        String value = connection.getHeaderField("Retry-After");
+        if (value != null) {
+            try {
+                retryAfter = Math.max(0, Long.parseLong(value.trim()) * 1000);
+            } catch (NumberFormatException e) {
+                long date = connection.getHeaderFieldDate("Retry-After", -1);
+                if (date > 0) retryAfter = Math.max(0, date - System.currentTimeMillis());
+            }
+        }
+        int code = connection.getResponseCode();
+        connection.disconnect();
+        return new ContentUnavailableException(code, retryAfter);
+    }
+
+    /**
+     * Reads part of the content, using a positional read for local files and
+     * a Range request otherwise.
+     *
+     * @param offset absolute offset of the first byte
+     * @param length number of bytes to read
+     * @return the bytes read, fewer than requested only at the end of the content
+     * @throws IOException if content unavailable
+     */
+    private byte[] readRange(long offset, int length) throws IOException {
+        return readRange(offset, length, true);
+    }
+
+    /**
+     * Reads part of the content, optionally refusing to skip through a full
+     * response to reach it.
+     *
+     * @param offset position of the first byte
+     * @param length maximum number of bytes to read
+     * @param acceptWhole true to read past the start of a full response, false to give up on one
+     * @return the bytes read, fewer than length at the end of the content, or
+     *         null if the content could only be read from its start and acceptWhole is false
+     * @throws IOException if content unavailable
+     */
+    private byte[] readRange(long offset, int length, boolean acceptWhole) throws IOException {
+        try (FileChannel channel = openChannel()) {
+            if (channel != null) {
+                ByteBuffer buffer = ByteBuffer.allocate((int) Math.max(0, Math.min(length, channel.size() - offset)));
+                while (buffer.hasRemaining() && channel.read(buffer, offset + buffer.position()) >= 0) {
+                    // keep reading until the buffer is full
+                }
+                return buffer.array();
+            }
+        }
+
+        URLConnection connection = getRangeConnection("bytes=" + offset + "-" + (offset + length - 1));
+        try (InputStream in = connection.getInputStream()) {
+            // a full response starts at the beginning of the content
+            if (!(connection instanceof HttpURLConnection)
+                    || ((HttpURLConnection) connection).getResponseCode() == HttpURLConnection.HTTP_OK) {
+                if (!acceptWhole) {
+                    if (connection instanceof HttpURLConnection) ((HttpURLConnection) connection).disconnect();
+                    return null;
+                }
+                skipFully(in, offset);
+            }
+            return readFully(in, length);
+        }
+    }
+
+    /**
+     * Opens a random-access channel on the content through the transport
+     * registered for the URL's scheme.
+     *
+     * @return an open channel, or null if the content can only be streamed
+     * @throws IOException if content unavailable
+     */
+    private FileChannel openChannel() throws IOException {
+        return ContentTransports.forScheme(url.getProtocol()).openChannel(url);
+    }
+
+    /**
+     * Opens a channel on the whole content, random-access where the
+     * transport allows it and over the body stream otherwise.
+     *
+     * @return an open channel
+     * @throws IOException if content unavailable
+     */
+    private ReadableByteChannel openBodyChannel() throws IOException {
+        FileChannel local = openChannel();
+        return local != null ? local : Channels.newChannel(getBody());
+    }
+
+    /**
+     * Skips bytes of a stream, failing if the stream ends first.
+     *
+     * @param in the stream
+     * @param count number of bytes to skip
+     * @throws IOException if the stream ends or cannot be read
+     */
+    private static void skipFully(InputStream in, long count) throws IOException {
+        while (count > 0) {
+            long skipped = in.skip(count);
+            if (skipped <= 0) {
+                // skip() may return 0 before the end, so fall back to reading a byte
+                if (in.read() < 0) throw new EOFException("Unexpected end of content.");
+                skipped = 1;
+            }
+            count -= skipped;
+        }
+    }
+
+    /**
+     * Reads up to length bytes of a stream.
+     *
+     * @param in the stream
+     * @param length maximum number of bytes to read
+     * @return the bytes read, fewer than length if the stream ended
+     * @throws IOException if the stream cannot be read
+     */
+    private static byte[] readFully(InputStream in, int length) throws IOException {
+        byte[] buf = new byte[length];
+        int total = 0;
+        int n;
+        while (total < length && (n = in.read(buf, total, length - total)) > 0) {
+            total += n;
+        }
+        return total == length ? buf : Arrays.copyOf(buf, total);
+    }
+
     /**
      * Get the length of this content in bytes.
      *
@@ -105,14 +706,31 @@ public class ContentInfo {
      * @throws IOException if content unavailable
      * @throws IllegalStateException if not image content
      */
-    public Dimension getImageSize() throws IOException {
+    public ImageSize getImageSize() throws IOException {
         if (!isImage()) throw new IllegalStateException("Content is not an image.");
 
         // read image
-        InputStream in = getConnection(true).getInputStream();
-        BufferedImage image = ImageIO.read(in);
-        in.close();
-        return new Dimension(image.getWidth(), image.getHeight());
+        try (InputStream in = getBody()) {
+            return ImageDecoder.readSize(in);
+        }
+    }
+
+    /**
+     * Gets the frame count, total duration and loop count of GIF, PNG/APNG
+     * or WebP image content. The container is walked as a stream and the
+     * pixel data is skipped without being decompressed, so this costs no
+     * more than reading the bytes, in constant memory.
+     *
+     * @return the animation properties, a single frame for still images
+     * @throws IOException if content unavailable or the format is unsupported
+     * @throws IllegalStateException if not image content
+     */
+    public AnimationInfo getAnimationInfo() throws IOException {
+        if (!isImage()) throw new IllegalStateException("Content is not an image.");
+
+        try (InputStream in = new PooledInputStream(getBody(), bufferPool)) {
+            return AnimationInfo.read(in);
+        }
     }
 
     /**
@@ -135,14 +753,244 @@ public class ContentInfo {
      */
     public int getLineCount() throws IOException {
         if (!isText()) throw new IllegalStateException("Content is not a text.");
+        return (int) scanLines().getLineCount();
+    }
+
+    /**
+     * Counts the lines of the whole content in one pass over its bytes.
+     *
+     * @return the counter after the last byte
+     * @throws IOException if content unavailable
+     */
+    private LineCounter scanLines() throws IOException {
+        LineCounter counter = new LineCounter(false);
+        ByteBuffer buffer = bufferPool.acquire();
+        try (ReadableByteChannel channel = Channels.newChannel(getBody())) {
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                counter.update(buffer);
+                buffer.clear();
+            }
+        } finally {
+            bufferPool.release(buffer);
+        }
+        return counter;
+    }
 
-        // read lines
-        InputStreamReader in = new InputStreamReader(getConnection(true).getInputStream());
-        BufferedReader reader = new BufferedReader(in);
-        // count total number of lines
-        int count = (int)reader.lines().count();
-        in.close();
-        return count;
+    /**
+     * Estimates the line count of text content from randomly placed samples
+     * instead of reading every byte. Ranges of sampleSize bytes are read at
+     * random offsets, and the density of line breaks they show, counted as
+     * {@link #getLineCount()} counts them, is scaled up by the content length; the spread of the per-sample densities gives a 95%
+     * confidence interval. Sampling stops as soon as the interval is within
+     * targetError of the estimate, or when byteBudget bytes have been read.
+     *
+     * The content is counted exactly instead when its length is unknown, when
+     * sampling would read a large part of it anyway, or when the budget ran
+     * out with the interval still wider than targetError, which happens for
+     * content whose line lengths vary too much to sample. A targetError of 0
+     * always spends the whole budget and returns whatever interval it gives.
+     * A server that ignores Range requests would stream everything up to each
+     * sample, so the first full response also leads to one exact count.
+     *
+     * @param sampleSize bytes per sampled range
+     * @param byteBudget most bytes to sample, or Long.MAX_VALUE for no limit
+     * @param targetError acceptable half-width of the interval relative to the estimate, e.g. 0.01,
+     *        or 0 to sample the whole budget
+     * @return the estimate and its confidence interval
+     * @throws IOException if content unavailable
+     * @throws IllegalStateException if not text content
+     * @throws IllegalArgumentException if sampleSize or byteBudget is not positive or targetError is negative
+     */
+    public LineEstimate estimateLineCount(int sampleSize, long byteBudget, double targetError) throws IOException {
+        return estimateLineCount(sampleSize, byteBudget, targetError, ThreadLocalRandom.current());
+    }
+
+    /**
+     * Estimates the line count with the sample offsets drawn from a given
+     * random source, so that a seeded source gives a repeatable estimate.
+     *
+     * @param sampleSize bytes per sampled range
+     * @param byteBudget most bytes to sample, or Long.MAX_VALUE for no limit
+     * @param targetError acceptable half-width of the interval relative to the estimate, or 0
+     * @param random source of the sample offsets
+     * @return the estimate and its confidence interval
+     * @throws IOException if content unavailable
+     * @throws IllegalStateException if not text content
+     * @throws IllegalArgumentException if sampleSize or byteBudget is not positive or targetError is negative
+     */
+    LineEstimate estimateLineCount(int sampleSize, long byteBudget, double targetError, Random random)
+            throws IOException {
+        if (sampleSize < 1 || byteBudget < 1 || !(targetError >= 0)) {
+            throw new IllegalArgumentException("Invalid sampling limits.");
+        }
+        URLConnection connection = getConnection(false);
+        if (!connection.getContentType().startsWith("text/")) throw new IllegalStateException("Content is not a text.");
+        long length = connection.getContentLengthLong();
+        if (connection instanceof HttpURLConnection) ((HttpURLConnection) connection).disconnect();
+
+        // sampling more than a fraction of the content costs more than reading it all
+        long maxSampled = Math.min(byteBudget, length / MAX_SAMPLED_FRACTION);
+        if (length < 0 || maxSampled < (long) sampleSize * MIN_SAMPLES) return countLines();
+
+        double sum = 0;
+        double sumSquares = 0;
+        int samples = 0;
+        long sampled = 0;
+        double estimate = 0;
+        double halfWidth = Double.POSITIVE_INFINITY;
+        while (sampled + sampleSize <= maxSampled) {
+            long offset = (long) (random.nextDouble() * (length - sampleSize + 1));
+            // one byte of context tells whether a leading "\n" ends a "\r\n" begun before the sample
+            int context = offset > 0 ? 1 : 0;
+            byte[] sample = readRange(offset - context, sampleSize + context, false);
+            if (sample == null) return countLines();
+            int counted = Math.max(0, sample.length - context);
+            LineCounter counter = new LineCounter(counted < sample.length && sample[0] == '\r');
+            counter.update(ByteBuffer.wrap(sample, sample.length - counted, counted));
+            double density = counted == 0 ? 0 : (double) counter.getBreaks() / counted;
+            sum += density;
+            sumSquares += density * density;
+            samples++;
+            sampled += counted;
+
+            if (samples >= MIN_SAMPLES) {
+                double mean = sum / samples;
+                double variance = Math.max(0, (sumSquares - samples * mean * mean) / (samples - 1));
+                // finite population correction: sampling much of the content leaves little uncertainty
+                double correction = Math.max(0, 1 - (double) sampled / length);
+                estimate = mean * length;
+                halfWidth = Z_95 * Math.sqrt(variance / samples * correction) * length;
+                if (targetError > 0 && halfWidth <= targetError * estimate) break;
+            }
+        }
+        if (targetError > 0 && halfWidth > targetError * estimate) return countLines();
+        return new LineEstimate(Math.round(estimate), Math.max(0, (long) Math.floor(estimate - halfWidth)),
+                (long) Math.ceil(estimate + halfWidth), false, samples, sampled);
+    }
+
+    /**
+     * Counts the lines of the whole content in one scan of its bytes.
+     *
+     * @return the exact count
+     * @throws IOException if content unavailable
+     */
+    private LineEstimate countLines() throws IOException {
+        LineCounter counter = scanLines();
+        return new LineEstimate(counter.getLineCount(), counter.getLineCount(), counter.getLineCount(), true, 0,
+                counter.getByteCount());
+    }
+
+    /**
+     * Gets line, word and character statistics of the content in a single
+     * pass over its raw bytes, without decoding it: UTF-8 character count,
+     * word count, line count, blank line count, the length of the longest
+     * line, and whether the content looks binary. Any content can be
+     * scanned, which makes this a check for text served with the wrong type.
+     *
+     * @return the statistics
+     * @throws IOException if content unavailable
+     */
+    public TextStats getTextStats() throws IOException {
+        TextStats.Scanner scanner = new TextStats.Scanner();
+        ByteBuffer buffer = bufferPool.acquire();
+        try (ReadableByteChannel channel = openBodyChannel()) {
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                scanner.update(buffer);
+                buffer.clear();
+            }
+        } finally {
+            bufferPool.release(buffer);
+        }
+        return scanner.finish();
+    }
+
+    /**
+     * Searches the content for a set of patterns in a single streaming pass
+     * over its raw bytes, using an Aho-Corasick automaton so the cost per
+     * byte does not grow with the number of patterns. Patterns are matched
+     * as UTF-8 and may overlap each other. In "any match" mode reading stops
+     * at the first match and an HTTP connection is dropped instead of
+     * downloading the rest of the body.
+     *
+     * @param patterns the patterns to search for
+     * @param options how to match and what to report
+     * @return match counts and line numbers per pattern
+     * @throws IOException if content unavailable
+     * @throws NullPointerException if patterns or options is null
+     * @throws IllegalArgumentException if a pattern is null or empty
+     */
+    public SearchResult search(Set<String> patterns, SearchOptions options) throws IOException {
+        if (patterns == null) throw new NullPointerException("Patterns is null");
+        if (options == null) throw new NullPointerException("Options is null");
+        List<String> names = new ArrayList<>(patterns);
+        List<byte[]> encoded = new ArrayList<>();
+        for (String pattern : names) {
+            if (pattern == null || pattern.isEmpty()) throw new IllegalArgumentException("Invalid pattern.");
+            encoded.add(pattern.getBytes(StandardCharsets.UTF_8));
+        }
+        AhoCorasick automaton = new AhoCorasick(encoded, options.isIgnoreCase());
+        long[] counts = new long[names.size()];
+        List<List<Long>> lines = new ArrayList<>();
+        // last line each pattern was recorded on, so a line is listed once
+        long[] lastLine = new long[names.size()];
+        for (int i = 0; i < names.size(); i++) lines.add(new ArrayList<>());
+
+        int state = automaton.start();
+        long line = 1;
+        long bytesRead = 0;
+        boolean stopped = false;
+        ResumableInputStream body = null;
+        ReadableByteChannel channel = null;
+        ByteBuffer buffer = bufferPool.acquire();
+        try {
+            channel = openChannel();
+            if (channel == null) {
+                URLConnection connection = getConnection(true);
+                if (connection instanceof HttpURLConnection) {
+                    body = new ResumableInputStream((HttpURLConnection) connection);
+                    channel = Channels.newChannel(body);
+                } else {
+                    channel = Channels.newChannel(connection.getInputStream());
+                }
+            }
+
+            scan:
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                int limit = buffer.limit();
+                for (int i = 0; i < limit; i++) {
+                    byte b = buffer.get(i);
+                    state = automaton.next(state, b);
+                    for (int p : automaton.matches(state)) {
+                        counts[p]++;
+                        if (lastLine[p] != line && lines.get(p).size() < options.getMaxLines()) lines.get(p).add(line);
+                        lastLine[p] = line;
+                    }
+                    if (b == '\n') line++;
+                    if (options.isAnyMatch() && automaton.matches(state).length > 0) {
+                        bytesRead += i + 1;
+                        stopped = true;
+                        break scan;
+                    }
+                }
+                bytesRead += limit;
+                buffer.clear();
+            }
+        } finally {
+            bufferPool.release(buffer);
+            if (stopped && body != null) body.abort();
+            if (channel != null) channel.close();
+        }
+
+        Map<String, Long> countMap = new LinkedHashMap<>();
+        Map<String, List<Long>> lineMap = new LinkedHashMap<>();
+        for (int i = 0; i < names.size(); i++) {
+            countMap.put(names.get(i), counts[i]);
+            lineMap.put(names.get(i), Collections.unmodifiableList(lines.get(i)));
+        }
+        return new SearchResult(countMap, lineMap, !stopped, bytesRead);
     }
 
     /**
@@ -209,21 +1057,506 @@ public class ContentInfo {
     public double getAudioDuration() throws IOException {
         if (!isAudio()) throw new IllegalStateException("Content is not an audio.");
 
-        // Establish connection read file using BufferedInputStream
-        InputStream in = getConnection(true).getInputStream();
-        BufferedInputStream file = new BufferedInputStream(in);
+        // the audio system only parses the header, so the read buffer is what this holds
+        long footprint = bufferPool.getBufferSize();
+        memoryBudget.admit(footprint);
+        try (InputStream file = new PooledInputStream(getBody(), bufferPool)) {
+            return AudioDecoder.readDuration(file);
+        } finally {
+            memoryBudget.release(footprint);
+        }
+    }
+
+    /**
+     * Determines whether the content is a video.
+     *
+     * @return true if the content is a video, false otherwise
+     * @throws IOException if content unavailable
+     */
+    public boolean isVideo() throws IOException {
+        return getConnection(false).getContentType().startsWith("video/");
+    }
+
+    /**
+     * Gets the duration, frame size, codec and frame rate for video content.
+     * Only the container header is fetched: the MP4/MOV "moov" box (from the
+     * end of the file if it was not moved to the front) or the Matroska/WebM
+     * EBML header, so the cost is independent of the file size.
+     *
+     * @return the video properties
+     * @throws IOException if content unavailable or the container is unsupported
+     * @throws IllegalStateException if not video content
+     */
+    public VideoInfo getVideoInfo() throws IOException {
+        if (!isVideo()) throw new IllegalStateException("Content is not a video.");
+
+        return VideoInfo.read(new ContentRangeReader());
+    }
+
+    /**
+     * Gets the entry listing of ZIP/JAR content. Only the end of central directory
+     * record (with its ZIP64 counterpart) and the central directory itself are
+     * fetched, so no file data is transferred. For local files the directory is
+     * read through a memory-mapped channel.
+     *
+     * @return the archive properties and entries
+     * @throws IOException if content unavailable or the archive is corrupt
+     * @throws IllegalStateException if not archive content
+     */
+    public ArchiveInfo getArchiveInfo() throws IOException {
+        ArchiveInfo info = ArchiveInfo.read(new ContentRangeReader());
+        if (info == null) throw new IllegalStateException("Content is not an archive.");
+        return info;
+    }
+
+    /**
+     * Gets the page count, version, encryption flag and Info dictionary of PDF
+     * content. The trailer is read from the end of the file and the
+     * cross-reference table or stream is followed to the catalog, page tree
+     * root and Info objects only; linearized files take the page count from
+     * their linearization dictionary. The page content is never downloaded.
+     *
+     * @return the document properties
+     * @throws IOException if content unavailable or the document is corrupt
+     * @throws IllegalStateException if not PDF content
+     */
+    public PdfInfo getPdfInfo() throws IOException {
+        PdfInfo info = PdfInfo.read(new ContentRangeReader());
+        if (info == null) throw new IllegalStateException("Content is not a PDF.");
+        return info;
+    }
+
+    /**
+     * Gets a digest of the content, computed while streaming it through a
+     * reused direct buffer. Besides any MessageDigest algorithm such as
+     * "SHA-256", {@link XxHash64#ALGORITHM} selects the much faster
+     * non-cryptographic xxHash64. For HTTP content with a strong ETag and a
+     * known length, the digest index is consulted with a HEAD request first,
+     * and the body is only fetched when no digest is known.
+     *
+     * @param algorithm the digest algorithm
+     * @return the digest as lowercase hex
+     * @throws IOException if content unavailable
+     * @throws IllegalArgumentException if the algorithm is not supported
+     * @throws NullPointerException if algorithm is null
+     */
+    public String getDigest(String algorithm) throws IOException {
+        if (algorithm == null) throw new NullPointerException("Algorithm is null");
+        MessageDigest digest = newDigest(algorithm);
+
+        try (FileChannel channel = openChannel()) {
+            if (channel != null) return hex(update(digest, channel));
+        }
+
+        if (digestIndex != null) {
+            URLConnection head = getConnection(false);
+            if (head instanceof HttpURLConnection) {
+                String known = digestIndex.get(url, head.getHeaderField("ETag"), head.getContentLengthLong(), algorithm);
+                ((HttpURLConnection) head).disconnect();
+                if (known != null) return known;
+            }
+        }
+
+        URLConnection connection = getConnection(true);
+        if (!(connection instanceof HttpURLConnection)) {
+            try (ReadableByteChannel channel = Channels.newChannel(connection.getInputStream())) {
+                return hex(update(digest, channel));
+            }
+        }
+
+        // index the digest under the validators of the body actually hashed
+        HttpURLConnection httpURLConnection = (HttpURLConnection) connection;
+        String etag = httpURLConnection.getHeaderField("ETag");
+        long length = httpURLConnection.getContentLengthLong();
+        String hex;
+        try (ReadableByteChannel channel = Channels.newChannel(new ResumableInputStream(httpURLConnection))) {
+            hex = hex(update(digest, channel));
+        }
+        if (digestIndex != null) digestIndex.put(url, etag, length, algorithm, hex);
+        return hex;
+    }
+
+    /**
+     * Creates a digest for an algorithm name.
+     *
+     * @param algorithm the algorithm name
+     * @return a fresh digest
+     * @throws IllegalArgumentException if the algorithm is not supported
+     */
+    private static MessageDigest newDigest(String algorithm) {
+        if (XxHash64.ALGORITHM.equalsIgnoreCase(algorithm)) return new XxHash64();
         try {
-            // Extract audioInputStream and format to get the audio's frameLength and frameRate
-            AudioInputStream audioInputStream = AudioSystem.getAudioInputStream(file);
-            AudioFormat format = audioInputStream.getFormat();
-            double frameLength = audioInputStream.getFrameLength();
-            double frameRate = format.getFrameRate();
+            return MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalArgumentException("Unsupported digest algorithm " + algorithm + ".");
+        }
+    }
+
+    /**
+     * Feeds a whole channel through a digest.
+     *
+     * @param digest the digest to update
+     * @param channel the content
+     * @return the digest value
+     * @throws IOException if the content cannot be read
+     */
+    private byte[] update(MessageDigest digest, ReadableByteChannel channel) throws IOException {
+        ByteBuffer buffer = bufferPool.acquire();
+        try {
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        } finally {
+            bufferPool.release(buffer);
+        }
+        return digest.digest();
+    }
+
+    /**
+     * Formats bytes as lowercase hex.
+     *
+     * @param bytes the bytes
+     * @return the hex string
+     */
+    private static String hex(byte[] bytes) {
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[2 * i] = Character.forDigit((bytes[i] >> 4) & 0xF, 16);
+            chars[2 * i + 1] = Character.forDigit(bytes[i] & 0xF, 16);
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Counts lines as BufferedReader does: "\n", "\r" and "\r\n" each end a
+     * line, and so does the end of content not ending with a line break.
+     */
+    private static final class LineCounter {
+        private long breaks;
+        private long bytes;
+        private boolean open;
+        private boolean afterReturn;
+
+        /**
+         * Create a counter.
+         *
+         * @param afterReturn true if the byte before the first one counted is "\r"
+         */
+        LineCounter(boolean afterReturn) {
+            this.afterReturn = afterReturn;
+        }
+
+        /**
+         * Counts the remaining bytes of a buffer.
+         *
+         * @param buffer the next chunk of content
+         */
+        void update(ByteBuffer buffer) {
+            int limit = buffer.limit();
+            bytes += limit - buffer.position();
+            for (int i = buffer.position(); i < limit; i++) {
+                byte b = buffer.get(i);
+                if (b == '\n') {
+                    if (!afterReturn) breaks++;
+                } else if (b == '\r') {
+                    breaks++;
+                }
+                open = b != '\n' && b != '\r';
+                afterReturn = b == '\r';
+            }
+            buffer.position(limit);
+        }
+
+        /**
+         * Gets the number of line breaks counted.
+         *
+         * @return line break count
+         */
+        long getBreaks() {
+            return breaks;
+        }
+
+        /**
+         * Gets the number of lines, counting an unterminated last line.
+         *
+         * @return line count
+         */
+        long getLineCount() {
+            return open ? breaks + 1 : breaks;
+        }
+
+        /**
+         * Gets the number of bytes counted.
+         *
+         * @return byte count
+         */
+        long getByteCount() {
+            return bytes;
+        }
+    }
+
+    /**
+     * Random access to this content that keeps the first and last window of
+     * bytes, so that walking the headers of a container costs one request at
+     * each end of the file plus one per element actually needed.
+     */
+    private class ContentRangeReader implements RangeReader {
+        /** Size of the head and tail windows */
+        private static final int WINDOW = 64 * 1024;
+
+        private long length = -1;
+        private byte[] head;
+        private byte[] tail;
+        private long tailOffset;
+
+        /**
+         * Gets the total length of the content, from a HEAD request or, if the
+         * server does not report it, from the Content-Range of a suffix request.
+         *
+         * @return length in bytes
+         * @throws IOException if content unavailable or the length is unknown
+         */
+        @Override
+        public long length() throws IOException {
+            if (length < 0) {
+                length = getConnection(false).getContentLengthLong();
+                if (length < 0) fetchTail();
+                if (length < 0) throw new IOException("Content length unknown.");
+            }
+            return length;
+        }
 
-            // duration in seconds
-            return frameLength / frameRate;
+        /**
+         * Reads bytes from the head or tail window if they are covered, or with
+         * a Range request otherwise.
+         *
+         * @param offset absolute offset of the first byte
+         * @param count number of bytes to read
+         * @return the bytes read
+         * @throws IOException if content unavailable
+         */
+        @Override
+        public byte[] read(long offset, int count) throws IOException {
+            if (offset + count <= WINDOW) {
+                if (head == null) head = readRange(0, WINDOW);
+                return slice(head, (int) offset, count);
+            }
+            long total = length();
+            if (offset >= total) return new byte[0];
+            count = (int) Math.min(count, total - offset);
+            if (offset >= total - WINDOW) {
+                if (tail == null) fetchTail();
+                return slice(tail, (int) (offset - tailOffset), count);
+            }
+            return fetch(offset, count);
+        }
+
+        /**
+         * Reads bytes with a Range request, refusing to stream an HTTP body
+         * from its start to reach a later offset.
+         *
+         * @param offset absolute offset of the first byte
+         * @param count number of bytes to read
+         * @return the bytes read
+         * @throws IOException if content unavailable or the server ignores Range
+         */
+        private byte[] fetch(long offset, int count) throws IOException {
+            boolean http = "http".equals(url.getProtocol()) || "https".equals(url.getProtocol());
+            byte[] bytes = readRange(offset, count, offset == 0 || !http);
+            if (bytes == null) throw new IOException("Range requests not supported.");
+            return bytes;
+        }
+
+        /**
+         * Maps the region of a local file, or reads it into a heap buffer otherwise.
+         *
+         * @param offset absolute offset of the first byte
+         * @param count number of bytes to read
+         * @return buffer positioned at the first byte read
+         * @throws IOException if content unavailable
+         */
+        @Override
+        public ByteBuffer buffer(long offset, int count) throws IOException {
+            // the mapping stays valid after the channel is closed
+            try (FileChannel channel = openChannel()) {
+                if (channel == null) return ByteBuffer.wrap(read(offset, count));
+                long size = Math.max(0, Math.min(count, channel.size() - offset));
+                return channel.map(FileChannel.MapMode.READ_ONLY, offset, size);
+            }
+        }
+
+        /**
+         * Fetches the tail window with a suffix Range request.
+         *
+         * @throws IOException if content unavailable
+         */
+        private void fetchTail() throws IOException {
+            if (length >= 0) {
+                tailOffset = Math.max(0, length - WINDOW);
+                tail = fetch(tailOffset, WINDOW);
+                return;
+            }
+            if (!"http".equals(url.getProtocol()) && !"https".equals(url.getProtocol())) {
+                throw new IOException("Content length unknown.");
+            }
+
+            HttpURLConnection connection = (HttpURLConnection) getRangeConnection("bytes=-" + WINDOW);
+            try (InputStream in = connection.getInputStream()) {
+                if (connection.getResponseCode() == HttpURLConnection.HTTP_PARTIAL) {
+                    // Content-Range: bytes first-last/total
+                    String range = connection.getHeaderField("Content-Range");
+                    if (range == null) throw new IOException("Missing Content-Range.");
+                    tailOffset = Long.parseLong(range.substring(range.indexOf(' ') + 1, range.indexOf('-')).trim());
+                    length = Long.parseLong(range.substring(range.indexOf('/') + 1).trim());
+                    tail = readFully(in, WINDOW);
+                } else {
+                    // the server ignored the suffix range: reaching the tail would mean streaming everything
+                    connection.disconnect();
+                    throw new IOException("Range requests not supported.");
+                }
+            } catch (NumberFormatException e) {
+                throw new IOException("Invalid Content-Range.");
+            }
+        }
+
+        /**
+         * Copies part of a window, clamped to the bytes it holds.
+         *
+         * @param window the window
+         * @param offset offset within the window
+         * @param count number of bytes to copy
+         * @return the copied bytes
+         */
+        private byte[] slice(byte[] window, int offset, int count) {
+            int from = Math.min(Math.max(offset, 0), window.length);
+            return Arrays.copyOfRange(window, from, Math.min(window.length, from + count));
+        }
+    }
+
+    /**
+     * HTTP body stream that survives connection failures. It tracks how many
+     * bytes were delivered and, when a read fails or the body ends before its
+     * Content-Length, reopens the content with "Range: bytes=offset-" guarded
+     * by If-Range, so the reader continues from where it was instead of
+     * starting over. If the content changed in the meantime the server sends
+     * the whole new body instead, and the read fails rather than mixing the two.
+     */
+    private class ResumableInputStream extends InputStream {
+        private final String validator;
+        private final long length;
+        private final boolean acceptsRanges;
+        /** Buffer of the single-byte read, reused on every call */
+        private final byte[] one = new byte[1];
+        private HttpURLConnection connection;
+        private InputStream in;
+        private long offset;
+        private long resumedAt = -1;
+        private int resumes;
+
+        /**
+         * Create a stream over the body of a successful response.
+         *
+         * @param connection the connection with a 200 response
+         * @throws IOException if the body cannot be opened
+         */
+        ResumableInputStream(HttpURLConnection connection) throws IOException {
+            // If-Range needs a strong ETag, otherwise the Last-Modified date
+            String etag = connection.getHeaderField("ETag");
+            String lastModified = connection.getHeaderField("Last-Modified");
+            this.validator = etag != null && !etag.startsWith("W/") ? etag : lastModified;
+            this.length = connection.getContentLengthLong();
+            this.acceptsRanges = !"none".equalsIgnoreCase(connection.getHeaderField("Accept-Ranges"));
+            this.connection = connection;
+            this.in = connection.getInputStream();
+        }
+
+        @Override
+        public int read() throws IOException {
+            int n = read(one, 0, 1);
+            return n < 0 ? -1 : one[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            while (true) {
+                IOException failure;
+                try {
+                    int n = in.read(b, off, len);
+                    if (n > 0) {
+                        offset += n;
+                        return n;
+                    }
+                    if (n == 0 || length < 0 || offset >= length) return n;
+                    failure = new EOFException("Premature end of content at byte " + offset + ".");
+                } catch (IOException e) {
+                    failure = e;
+                }
+                resume(failure);
+            }
+        }
+
+        /**
+         * Reopens the content at the current offset.
+         *
+         * @param failure the failure that interrupted the body
+         * @throws IOException the failure, if the body cannot be resumed
+         */
+        private void resume(IOException failure) throws IOException {
+            // only failures without progress in between count against the retry policy
+            if (offset > resumedAt) resumes = 0;
+            resumedAt = offset;
+            if (validator == null || !acceptsRanges || ++resumes >= retryPolicy.getMaxAttempts()) throw failure;
+            long delay = retryPolicy.delay(resumes, failure);
+            if (delay < 0) throw failure;
+            try {
+                in.close();
+            } catch (IOException e) {
+                // the broken stream is being replaced anyway
+            }
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while resuming.");
+            }
+
+            Map<String, String> headers = new LinkedHashMap<>();
+            headers.put("Range", "bytes=" + offset + "-");
+            headers.put("If-Range", validator);
+            HttpURLConnection httpURLConnection = (HttpURLConnection) connect(contacted -> {
+                HttpURLConnection attempt = (HttpURLConnection) openFollowingRedirects("GET", headers, contacted);
+                int status = attempt.getResponseCode();
+                if (status != HttpURLConnection.HTTP_OK && status != HttpURLConnection.HTTP_PARTIAL) throw unavailable(attempt);
+                return attempt;
+            });
+            int code = httpURLConnection.getResponseCode();
+            String range = httpURLConnection.getHeaderField("Content-Range");
+            if (code == HttpURLConnection.HTTP_OK) {
+                // If-Range did not match: the content is not the one being read
+                httpURLConnection.disconnect();
+                throw new IOException("Content changed while reading.");
+            }
+            if (code != HttpURLConnection.HTTP_PARTIAL || range == null || !range.startsWith("bytes " + offset + "-")) {
+                httpURLConnection.disconnect();
+                throw failure;
+            }
+            connection = httpURLConnection;
+            in = httpURLConnection.getInputStream();
+        }
+
+        /**
+         * Abandons the rest of the body by dropping the connection, rather than
+         * letting close drain it so the connection can be reused.
+         */
+        void abort() {
+            connection.disconnect();
+        }
 
-        } catch (UnsupportedAudioFileException e) {
-            throw new IOException("UnsupportedAudioFileException");
+        @Override
+        public void close() throws IOException {
+            in.close();
         }
     }
-}
\ No newline at end of file
+}
@@ -1,12 +1,43 @@
 import static org.junit.Assert.*;
 import org.junit.Test;
-import java.awt.*;
+import com.sun.net.httpserver.HttpServer;
+import java.awt.image.BufferedImage;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import java.net.MalformedURLException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
+import java.util.Collections;
 import java.util.Date;
 import java.util.GregorianCalendar;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.imageio.ImageIO;
+import javax.sound.sampled.AudioFileFormat;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
 
 /**
  * ContentInfoTest.java
@@ -28,6 +59,7 @@ public class ContentInfoTest {
     String txtStr = "https://www.ccis.northeastern.edu/home/pgust/classes/cs5500/2020/Fall/resources/assignment-1/12lines.txt";
     String pngStr = "https://www.ccis.northeastern.edu/home/pgust/classes/cs5500/2020/Fall/resources/assignment-1/500x200.png";
     String wavStr = "https://www.ccis.northeastern.edu/home/pgust/classes/cs5500/2020/Fall/resources/assignment-3/3.258start.wav";
+    String mp4Str = "http://commondatastorage.googleapis.com/gtv-videos-bucket/sample/ElephantsDream.mp4";
 
     public ContentInfoTest() throws MalformedURLException {
         pdf = new ContentInfo(pdfStr);
@@ -141,7 +173,7 @@ public class ContentInfoTest {
     public void testGetImageSize() {
         try {
             // image
-            assertEquals("getImageSize - 500x200.png", new Dimension(500, 200), png.getImageSize());
+            assertEquals("getImageSize - 500x200.png", new ImageSize(500, 200), png.getImageSize());
         } catch (IOException e) {
             fail("Unexpected IOException");
         } catch (IllegalStateException e) {
@@ -350,4 +382,878 @@ public class ContentInfoTest {
             // IOException caught
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Test method for {@link ContentInfo#isVideo()}
+     */
+    @Test
+    public void testIsVideo() {
+        try {
+            // mp4
+            assertTrue("isVideo - ElephantsDream.mp4", new ContentInfo(mp4Str).isVideo());
+            // png
+            assertFalse("isVideo - 500x200.png", png.isVideo());
+            // wav
+            assertFalse("isVideo - 3.258start.wav", wav.isVideo());
+        } catch (IOException e) {
+            fail("Unexpected IOException");
+        }
+    }
+
+    /**
+     * Test method for {@link ContentInfo#getVideoInfo()}
+     */
+    @Test
+    public void testGetVideoInfo() {
+        try {
+            // mp4
+            VideoInfo info = new ContentInfo(mp4Str).getVideoInfo();
+            assertEquals("getVideoInfo duration - ElephantsDream.mp4", 653.8, info.getDuration(), 1.0);
+            assertEquals("getVideoInfo width - ElephantsDream.mp4", 1280, info.getWidth());
+            assertEquals("getVideoInfo height - ElephantsDream.mp4", 720, info.getHeight());
+            assertEquals("getVideoInfo codec - ElephantsDream.mp4", "avc1", info.getCodec());
+            assertEquals("getVideoInfo frame rate - ElephantsDream.mp4", 24.0, info.getFrameRate(), 0.1);
+        } catch (IOException e) {
+            fail("Unexpected IOException");
+        } catch (IllegalStateException e) {
+            fail("Unexpected non-video");
+        }
+
+        try {
+            // non-video
+            png.getVideoInfo();
+            fail("Expected non-video");
+        } catch (IOException e) {
+            fail("Unexpected IOException");
+        } catch (IllegalStateException e) {
+            // IllegalStateException caught
+        }
+    }
+
+    /**
+     * Test method for {@link ContentInfo#getVideoInfo()} with malformed
+     * headers and with a server that ignores Range requests
+     *
+     * @throws IOException if the local server cannot start
+     */
+    @Test
+    public void testGetVideoInfoCorrupt() throws IOException {
+        // ftyp, then a moov whose hdlr box is too short to hold a handler type
+        byte[] mp4 = {
+                0, 0, 0, 16, 'f', 't', 'y', 'p', 'i', 's', 'o', 'm', 0, 0, 0, 0,
+                0, 0, 0, 32, 'm', 'o', 'o', 'v',
+                0, 0, 0, 24, 't', 'r', 'a', 'k',
+                0, 0, 0, 16, 'm', 'd', 'i', 'a',
+                0, 0, 0, 8, 'h', 'd', 'l', 'r'};
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/corrupt.mp4", exchange -> {
+            exchange.getResponseHeaders().set("Content-Type", "video/mp4");
+            exchange.getResponseHeaders().set("Content-Length", Integer.toString(mp4.length));
+            exchange.sendResponseHeaders(200, "HEAD".equals(exchange.getRequestMethod()) ? -1 : mp4.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                if (!"HEAD".equals(exchange.getRequestMethod())) out.write(mp4);
+            }
+        });
+        server.createContext("/unranged.mp4", exchange -> {
+            // no length and no Range support: the tail can only be had by streaming everything
+            exchange.getResponseHeaders().set("Content-Type", "video/mp4");
+            exchange.sendResponseHeaders(200, "HEAD".equals(exchange.getRequestMethod()) ? -1 : 0);
+            try (OutputStream out = exchange.getResponseBody()) {
+                if (!"HEAD".equals(exchange.getRequestMethod())) out.write(mp4);
+            }
+        });
+        // an mdat filling most of the file, then a moov that only the tail holds
+        byte[] large = new byte[8 * 1024 * 1024];
+        System.arraycopy(mp4, 0, large, 0, 16);
+        ByteBuffer.wrap(large, 16, 8).putInt(large.length - 48).put(new byte[] {'m', 'd', 'a', 't'});
+        ByteBuffer.wrap(large, large.length - 32, 8).putInt(32).put(new byte[] {'m', 'o', 'o', 'v'});
+        AtomicInteger sent = new AtomicInteger();
+        server.createContext("/sized.mp4", exchange -> {
+            // a length, but no Range support: the tail must not be reached by streaming everything
+            exchange.getResponseHeaders().set("Content-Type", "video/mp4");
+            exchange.getResponseHeaders().set("Content-Length", Integer.toString(large.length));
+            exchange.sendResponseHeaders(200, "HEAD".equals(exchange.getRequestMethod()) ? -1 : large.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                if (!"HEAD".equals(exchange.getRequestMethod())) {
+                    for (int i = 0; i < large.length; i += 1024) {
+                        out.write(large, i, 1024);
+                        sent.addAndGet(1024);
+                    }
+                }
+            } catch (IOException e) {
+                // the client disconnected
+            }
+        });
+        server.start();
+        String base = "http://127.0.0.1:" + server.getAddress().getPort();
+        try {
+            try {
+                new ContentInfo(base + "/corrupt.mp4").getVideoInfo();
+                fail("Expected IOException");
+            } catch (IOException e) {
+                assertEquals("getVideoInfo - corrupt box", "Corrupt MP4 box.", e.getMessage());
+            }
+            try {
+                new ContentInfo(base + "/unranged.mp4").getVideoInfo();
+                fail("Expected IOException");
+            } catch (IOException e) {
+                assertEquals("getVideoInfo - Range ignored", "Range requests not supported.", e.getMessage());
+            }
+            try {
+                new ContentInfo(base + "/sized.mp4").getVideoInfo();
+                fail("Expected IOException");
+            } catch (IOException e) {
+                assertEquals("getVideoInfo - Range ignored with length", "Range requests not supported.", e.getMessage());
+            }
+            assertTrue("getVideoInfo - not streamed to the tail", sent.get() < large.length);
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    /**
+     * Test method for {@link ContentInfo#getArchiveInfo()}
+     */
+    @Test
+    public void testGetArchiveInfo() {
+        try {
+            // jar
+            ArchiveInfo info = new ContentInfo("https://repo1.maven.org/maven2/junit/junit/4.13/junit-4.13.jar").getArchiveInfo();
+            assertTrue("getArchiveInfo entry count - junit-4.13.jar", info.getEntryCount() > 0);
+            boolean found = false;
+            for (ArchiveInfo.Entry entry : info.getEntries()) {
+                found |= "org/junit/Test.class".equals(entry.getName());
+            }
+            assertTrue("getArchiveInfo entries - junit-4.13.jar", found);
+            assertTrue("getArchiveInfo compression ratio - junit-4.13.jar", info.getCompressionRatio() < 1.0);
+        } catch (IOException e) {
+            fail("Unexpected IOException");
+        } catch (IllegalStateException e) {
+            fail("Unexpected non-archive");
+        }
+
+        try {
+            // non-archive
+            txt.getArchiveInfo();
+            fail("Expected non-archive");
+        } catch (IOException e) {
+            fail("Unexpected IOException");
+        } catch (IllegalStateException e) {
+            // IllegalStateException caught
+        }
+    }
+
+    /**
+     * Test method for {@link ContentInfo#getPdfInfo()}
+     */
+    @Test
+    public void testGetPdfInfo() {
+        try {
+            // pdf
+            PdfInfo info = pdf.getPdfInfo();
+            assertEquals("getPdfInfo page count - 12lines.pdf", 1, info.getPageCount());
+            assertTrue("getPdfInfo version - 12lines.pdf", info.getVersion().startsWith("1."));
+            assertFalse("getPdfInfo encrypted - 12lines.pdf", info.isEncrypted());
+        } catch (IOException e) {
+            fail("Unexpected IOException");
+        } catch (IllegalStateException e) {
+            fail("Unexpected non-pdf");
+        }
+
+        try {
+            // non-pdf
+            png.getPdfInfo();
+            fail("Expected non-pdf");
+        } catch (IOException e) {
+            fail("Unexpected IOException");
+        } catch (IllegalStateException e) {
+            // IllegalStateException caught
+        }
+    }
+
+    /**
+     * Test method for {@link ContentInfo#getArchiveInfo()} on ZIP64 archives
+     * whose 64-bit fields are negative
+     *
+     * @throws IOException if the local files fail
+     */
+    @Test
+    public void testGetArchiveInfoCorrupt() throws IOException {
+        // one stored entry "a" whose sizes are in the ZIP64 extra field, the uncompressed one negative
+        ByteBuffer entry = ByteBuffer.allocate(46 + 1 + 20).order(ByteOrder.LITTLE_ENDIAN);
+        entry.putInt(0, 0x02014b50).putInt(20, -1).putInt(24, -1).putShort(28, (short) 1).putShort(30, (short) 20);
+        entry.put(46, (byte) 'a').putShort(47, (short) 1).putShort(49, (short) 16).putLong(51, -1).putLong(59, 10);
+        byte[] directory = entry.array();
+
+        byte[][] archives = {
+                zip64(directory, 1, directory.length, -8),
+                zip64(directory, -1, directory.length, 0),
+                zip64(directory, 1L << 40, directory.length, 0),
+                zip64(directory, 1, -1, 0),
+                zip64(directory, 1, directory.length, 0)};
+        try (TempDir temp = new TempDir("zip64")) {
+            for (int i = 0; i < archives.length; i++) {
+                Path file = temp.write(i + ".zip", archives[i]);
+                try {
+                    new ContentInfo(file.toUri().toURL()).getArchiveInfo();
+                    fail("Expected IOException");
+                } catch (IOException e) {
+                    assertEquals("getArchiveInfo - corrupt " + i, "Corrupt central directory.", e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Builds a ZIP64 archive from a central directory and the values of its
+     * ZIP64 end record.
+     *
+     * @param directory the central directory, stored at the start
+     * @param count entry count
+     * @param directorySize central directory size
+     * @param directoryOffset central directory offset
+     * @return the archive
+     */
+    private static byte[] zip64(byte[] directory, long count, long directorySize, long directoryOffset) {
+        ByteBuffer zip = ByteBuffer.allocate(directory.length + 56 + 20 + 22).order(ByteOrder.LITTLE_ENDIAN);
+        zip.put(directory);
+        int end = zip.position();
+        zip.putInt(0x06064b50).putLong(44).putShort((short) 45).putShort((short) 45).putInt(0).putInt(0)
+                .putLong(count).putLong(count).putLong(directorySize).putLong(directoryOffset);
+        zip.putInt(0x07064b50).putInt(0).putLong(end).putInt(1);
+        zip.putInt(0x06054b50).putShort((short) 0).putShort((short) 0).putShort((short) -1).putShort((short) -1)
+                .putInt(-1).putInt(-1).putShort((short) 0);
+        return zip.array();
+    }
+
+    /**
+     * Test method for {@link ContentInfo#getPdfInfo()} on documents whose
+     * objects refer back to themselves or nest without end
+     *
+     * @throws IOException if the local files fail
+     */
+    @Test
+    public void testGetPdfInfoCorrupt() throws IOException {
+        StringBuilder nested = new StringBuilder("1 0 obj\n");
+        for (int i = 0; i < 100000; i++) nested.append('[');
+        String[] documents = {
+                // the object stream holding the catalog is stored in itself
+                pdf("", new long[][] {{0, 0, 0}, {2, 2, 0}, {2, 2, 0}}),
+                // the object stream's /Length is stored in the object stream
+                pdf("2 0 obj\n<< /Type /ObjStm /N 1 /First 4 /Length 3 0 R >>\nstream\n1 0 \nendstream\nendobj\n",
+                        new long[][] {{0, 0, 0}, {2, 2, 0}, {1, 9, 0}, {2, 2, 1}}),
+                // a catalog nested deeper than the stack
+                pdf(nested + "\nendobj\n", new long[][] {{0, 0, 0}, {1, 9, 0}})};
+        try (TempDir temp = new TempDir("pdf")) {
+            for (int i = 0; i < documents.length; i++) {
+                Path file = temp.write(i + ".pdf", documents[i].getBytes(StandardCharsets.ISO_8859_1));
+                try {
+                    new ContentInfo(file.toUri().toURL()).getPdfInfo();
+                    fail("Expected IOException");
+                } catch (IOException e) {
+                    assertTrue("getPdfInfo - corrupt " + i, e.getMessage().startsWith("Corrupt PDF"));
+                }
+            }
+        }
+    }
+
+    /**
+     * Builds a PDF 1.5 document from objects and an uncompressed
+     * cross-reference stream.
+     *
+     * @param objects the objects following the header
+     * @param entries cross-reference entries as {type, field 2, field 3}, field 2 at most 255
+     * @return the document, one char per byte
+     */
+    private static String pdf(String objects, long[][] entries) {
+        StringBuilder pdf = new StringBuilder("%PDF-1.5\n").append(objects);
+        int offset = pdf.length();
+        pdf.append("9 0 obj\n<< /Type /XRef /W [1 1 1] /Size ").append(entries.length)
+                .append(" /Root 1 0 R /Length ").append(3 * entries.length).append(" >>\nstream\n");
+        for (long[] entry : entries) {
+            for (long field : entry) pdf.append((char) field);
+        }
+        return pdf.append("\nendstream\nendobj\nstartxref\n").append(offset).append("\n%%EOF\n").toString();
+    }
+
+    /**
+     * Test method for {@link ContentInfo#getContentType()} following redirects
+     * and memoizing permanent ones
+     *
+     * @throws IOException if the local server cannot start
+     */
+    @Test
+    public void testRedirects() throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        AtomicInteger oldHits = new AtomicInteger();
+        server.createContext("/old.txt", exchange -> {
+            oldHits.incrementAndGet();
+            exchange.getResponseHeaders().set("Location", "/moved.txt");
+            exchange.sendResponseHeaders(301, -1);
+            exchange.close();
+        });
+        server.createContext("/moved.txt", exchange -> {
+            exchange.getResponseHeaders().set("Location", "/new.txt");
+            exchange.sendResponseHeaders(302, -1);
+            exchange.close();
+        });
+        server.createContext("/new.txt", exchange -> {
+            byte[] body = "one\ntwo\n".getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain");
+            exchange.sendResponseHeaders(200, "HEAD".equals(exchange.getRequestMethod()) ? -1 : body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                if (!"HEAD".equals(exchange.getRequestMethod())) out.write(body);
+            }
+        });
+        server.createContext("/loop.txt", exchange -> {
+            exchange.getResponseHeaders().set("Location", "/loop.txt");
+            exchange.sendResponseHeaders(302, -1);
+            exchange.close();
+        });
+        server.start();
+        String base = "http://127.0.0.1:" + server.getAddress().getPort();
+        try {
+            // the whole chain is followed
+            ContentInfo moved = new ContentInfo(base + "/old.txt");
+            assertEquals("redirect - content type", "text/plain", moved.getContentType());
+            assertEquals("redirect - line count", 2, moved.getLineCount());
+            // the 301 is memoized after the first request, the 302 is not
+            assertEquals("redirect - memoized", 1, oldHits.get());
+
+            try {
+                new ContentInfo(base + "/loop.txt").getContentType();
+                fail("Expected IOException");
+            } catch (IOException e) {
+                // IOException caught
+            }
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    /**
+     * Test method for {@link ContentInfo#getContentType()} retrying a throttled
+     * response after its Retry-After delay
+     *
+     * @throws IOException if the local server cannot start
+     */
+    @Test
+    public void testRetryThrottled() throws IOException {
+        AtomicInteger requests = new AtomicInteger();
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/busy.txt", exchange -> {
+            if (requests.incrementAndGet() == 1) {
+                exchange.getResponseHeaders().set("Retry-After", "0");
+                exchange.sendResponseHeaders(503, -1);
+            } else {
+                exchange.getResponseHeaders().set("Content-Type", "text/plain");
+                exchange.sendResponseHeaders(200, -1);
+            }
+            exchange.close();
+        });
+        server.start();
+        try {
+            ContentInfo busy = new ContentInfo("http://127.0.0.1:" + server.getAddress().getPort() + "/busy.txt");
+            assertEquals("throttled - retried", "text/plain", busy.getContentType());
+            assertEquals("throttled - requests", 2, requests.get());
+
+            requests.set(0);
+            busy.setRetryPolicy(new RetryPolicy(3, 0, 0, false));
+            try {
+                busy.getContentType();
+                fail("Expected ContentUnavailableException");
+            } catch (ContentUnavailableException e) {
+                assertTrue("throttled - reported", e.isThrottled());
+            }
+            assertEquals("throttled - single request", 1, requests.get());
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    /**
+     * Test method for {@link ContentInfo#setReadTimeout(int)} against a host
+     * that accepts connections but never answers
+     *
+     * @throws IOException if the local server cannot start
+     */
+    @Test
+    public void testTimeouts() throws IOException {
+        // never accepted: the connection waits in the backlog without a response
+        try (ServerSocket server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+            ContentInfo hung = new ContentInfo("http://127.0.0.1:" + server.getLocalPort() + "/hung.txt");
+            hung.setRetryPolicy(RetryPolicy.NONE);
+            hung.setReadTimeout(200);
+            assertEquals("timeout - connect default", ContentInfo.DEFAULT_CONNECT_TIMEOUT, hung.getConnectTimeout());
+            long start = System.nanoTime();
+            try {
+                hung.getContentType();
+                fail("Expected SocketTimeoutException");
+            } catch (SocketTimeoutException e) {
+                // SocketTimeoutException caught
+            }
+            assertTrue("timeout - bounded", System.nanoTime() - start < 5000000000L);
+        }
+
+        try {
+            txt.setConnectTimeout(-1);
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // IllegalArgumentException caught
+        }
+    }
+
+    /**
+     * Test method for {@link ContentInfo#getLineCount()} resuming a body that
+     * breaks off part way through
+     *
+     * @throws Exception if the local server fails
+     */
+    @Test
+    public void testResumeLineCount() throws Exception {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 1000; i++) text.append("line ").append(i).append('\n');
+        byte[] body = text.toString().getBytes(StandardCharsets.UTF_8);
+        String[] etag = {"\"v1\""};
+        boolean[] changing = {false};
+        AtomicInteger ranges = new AtomicInteger();
+
+        // a raw socket server, so a response can be cut off mid-body
+        ServerSocket server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        Thread serving = new Thread(() -> {
+            while (!server.isClosed()) {
+                try (Socket socket = server.accept()) {
+                    BufferedReader request = new BufferedReader(
+                            new InputStreamReader(socket.getInputStream(), StandardCharsets.ISO_8859_1));
+                    String method = request.readLine().split(" ")[0];
+                    String range = null;
+                    String ifRange = null;
+                    for (String line; (line = request.readLine()) != null && !line.isEmpty(); ) {
+                        if (line.startsWith("Range: ")) range = line.substring(7);
+                        if (line.startsWith("If-Range: ")) ifRange = line.substring(10);
+                    }
+                    String headers = "Content-Type: text/plain\r\nETag: " + etag[0] + "\r\nConnection: close\r\n";
+                    OutputStream out = socket.getOutputStream();
+                    if (range != null && etag[0].equals(ifRange)) {
+                        // resume from the requested offset
+                        ranges.incrementAndGet();
+                        int from = Integer.parseInt(range.substring("bytes=".length(), range.length() - 1));
+                        out.write(("HTTP/1.1 206 Partial Content\r\n" + headers + "Content-Range: bytes " + from + "-"
+                                + (body.length - 1) + "/" + body.length + "\r\nContent-Length: " + (body.length - from)
+                                + "\r\n\r\n").getBytes(StandardCharsets.ISO_8859_1));
+                        out.write(body, from, body.length - from);
+                    } else {
+                        // break off after a third of the body
+                        out.write(("HTTP/1.1 200 OK\r\n" + headers + "Content-Length: " + body.length + "\r\n\r\n")
+                                .getBytes(StandardCharsets.ISO_8859_1));
+                        if (!"HEAD".equals(method)) {
+                            out.write(body, 0, body.length / 3);
+                            if (changing[0]) etag[0] = "\"v2\"";
+                        }
+                    }
+                    out.flush();
+                } catch (IOException e) {
+                    // server closed
+                }
+            }
+        });
+        serving.start();
+        try {
+            ContentInfo flaky = new ContentInfo("http://127.0.0.1:" + server.getLocalPort() + "/flaky.txt");
+            assertEquals("resume - line count", 1000, flaky.getLineCount());
+            assertEquals("resume - range requests", 1, ranges.get());
+
+            // the content changes before the resume, so If-Range no longer matches
+            changing[0] = true;
+            try {
+                flaky.getLineCount();
+                fail("Expected IOException");
+            } catch (IOException e) {
+                // IOException caught
+            }
+        } finally {
+            server.close();
+            serving.join();
+        }
+    }
+
+    /**
+     * Test method for {@link ContentInfo#getDigest(String)}
+     *
+     * @throws Exception if the local file or server fails
+     */
+    @Test
+    public void testGetDigest() throws Exception {
+        byte[][] body = {"one\ntwo\nsix\n".getBytes(StandardCharsets.UTF_8)};
+
+        // local file
+        try (TempDir temp = new TempDir("digest")) {
+            ContentInfo local = new ContentInfo(temp.write("digest.txt", body[0]).toUri().toURL());
+            assertEquals("digest - local SHA-256", hex(MessageDigest.getInstance("SHA-256").digest(body[0])),
+                    local.getDigest("SHA-256"));
+            assertEquals("digest - local xxHash64", hex(new XxHash64().digest(body[0])), local.getDigest(XxHash64.ALGORITHM));
+        }
+
+        try {
+            txt.getDigest("NOPE-256");
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // IllegalArgumentException caught
+        }
+
+        AtomicInteger gets = new AtomicInteger();
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/same.txt", exchange -> {
+            boolean head = "HEAD".equals(exchange.getRequestMethod());
+            if (!head) gets.incrementAndGet();
+            exchange.getResponseHeaders().set("ETag", "\"v1\"");
+            exchange.getResponseHeaders().set("Content-Length", Integer.toString(body[0].length));
+            exchange.sendResponseHeaders(200, head ? -1 : body[0].length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                if (!head) out.write(body[0]);
+            } catch (IOException e) {
+                // the client stopped reading
+            }
+        });
+        server.start();
+        try {
+            ContentInfo remote = new ContentInfo("http://127.0.0.1:" + server.getAddress().getPort() + "/same.txt");
+            remote.setDigestIndex(new DigestIndex(10));
+            String first = remote.getDigest("SHA-256");
+            assertEquals("digest - remote", hex(MessageDigest.getInstance("SHA-256").digest(body[0])), first);
+            assertEquals("digest - indexed", 1, remote.getDigestIndex().size());
+
+            // same ETag and length: the index answers from a HEAD without fetching the new bytes
+            body[0] = "one\ntwo\nten\n".getBytes(StandardCharsets.UTF_8);
+            assertEquals("digest - from index", first, remote.getDigest("SHA-256"));
+            assertEquals("digest - body fetched once", 1, gets.get());
+            remote.setDigestIndex(null);
+            assertNotEquals("digest - rehashed", first, remote.getDigest("SHA-256"));
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    /**
+     * Test method for {@link ContentInfo#estimateLineCount(int, long, double)}
+     *
+     * @throws IOException if the local file or server fails
+     */
+    @Test
+    public void testEstimateLineCount() throws IOException {
+        // about 4MB of lines between 10 and 90 bytes long
+        StringBuilder text = new StringBuilder();
+        int lines = 0;
+        while (text.length() < 4 * 1024 * 1024) {
+            for (int i = 1 + lines % 81 + 8; i > 0; i--) text.append('x');
+            text.append('\n');
+            lines++;
+        }
+        byte[] body = text.toString().getBytes(StandardCharsets.UTF_8);
+        try (TempDir temp = new TempDir("estimate")) {
+            ContentInfo log = new ContentInfo(temp.write("estimate.txt", body).toUri().toURL());
+
+            // a seeded sampler makes the estimate repeatable
+            LineEstimate estimate = log.estimateLineCount(4096, 1024 * 1024, 0.02, new Random(42));
+            assertFalse("estimate - sampled", estimate.isExact());
+            assertTrue("estimate - within budget", estimate.getSampledBytes() <= 1024 * 1024);
+            assertTrue("estimate - close", Math.abs(estimate.getLineCount() - lines) < lines * 0.05);
+            assertTrue("estimate - interval", estimate.getLower() <= estimate.getLineCount()
+                    && estimate.getLineCount() <= estimate.getUpper());
+
+            // no target: the whole budget is sampled
+            estimate = log.estimateLineCount(4096, 64 * 4096, 0, new Random(42));
+            assertEquals("estimate - budget", 64, estimate.getSamples());
+
+            // a target the budget cannot reach escalates to an exact count
+            estimate = log.estimateLineCount(4096, 16 * 4096, 0.00001, new Random(42));
+            assertTrue("estimate - escalated", estimate.isExact());
+            assertEquals("estimate - exact", lines, estimate.getLineCount());
+            assertEquals("estimate - exact interval", 0, estimate.getRelativeError(), 0);
+
+            // "\r" and mixed line endings count as getLineCount counts them
+            String[] endings = {"\r", "\r\n", "\n"};
+            StringBuilder mixed = new StringBuilder();
+            for (int i = 0, start = 0, end; (end = text.indexOf("\n", start)) >= 0; i++, start = end + 1) {
+                mixed.append(text, start, end).append(endings[i % endings.length]);
+            }
+            String[] variants = {text.toString().replace('\n', '\r'), mixed.toString()};
+            for (int i = 0; i < variants.length; i++) {
+                ContentInfo returns = new ContentInfo(
+                        temp.write("returns" + i + ".txt", variants[i].getBytes(StandardCharsets.UTF_8)).toUri().toURL());
+                assertEquals("estimate - line count " + i, lines, returns.getLineCount());
+                estimate = returns.estimateLineCount(4096, 1024 * 1024, 0.02, new Random(42));
+                assertFalse("estimate - returns sampled " + i, estimate.isExact());
+                assertTrue("estimate - returns close " + i, Math.abs(estimate.getLineCount() - lines) < lines * 0.05);
+                estimate = returns.estimateLineCount(4096, 16 * 4096, 0.00001, new Random(42));
+                assertEquals("estimate - returns exact " + i, lines, estimate.getLineCount());
+            }
+        }
+
+        // a server ignoring Range: one exact pass instead of streaming up to every sample
+        AtomicInteger gets = new AtomicInteger();
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/log.txt", exchange -> {
+            boolean head = "HEAD".equals(exchange.getRequestMethod());
+            if (!head) gets.incrementAndGet();
+            exchange.getResponseHeaders().set("Content-Type", "text/plain");
+            exchange.getResponseHeaders().set("Content-Length", Integer.toString(body.length));
+            exchange.sendResponseHeaders(200, head ? -1 : body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                if (!head) out.write(body);
+            } catch (IOException e) {
+                // the client stopped reading
+            }
+        });
+        server.start();
+        try {
+            LineEstimate estimate = new ContentInfo("http://127.0.0.1:" + server.getAddress().getPort() + "/log.txt")
+                    .estimateLineCount(4096, 1024 * 1024, 0.02, new Random(42));
+            assertTrue("estimate - Range ignored", estimate.isExact());
+            assertEquals("estimate - Range ignored count", lines, estimate.getLineCount());
+            assertEquals("estimate - Range ignored requests", 2, gets.get());
+        } finally {
+            server.stop(0);
+        }
+
+        try {
+            new ContentInfo(pngStr).estimateLineCount(0, 1, 0.1);
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // IllegalArgumentException caught
+        } catch (IOException e) {
+            fail("Unexpected IOException");
+        }
+    }
+
+    /**
+     * Test method for {@link ContentInfo#search(java.util.Set, SearchOptions)}
+     *
+     * @throws Exception if the local file or server fails
+     */
+    @Test
+    public void testSearch() throws Exception {
+        try (TempDir temp = new TempDir("search")) {
+            Path file = temp.write("search.txt",
+                    "ERROR one\nok\nerror two, Error three\nhehe he\n".getBytes(StandardCharsets.UTF_8));
+            ContentInfo log = new ContentInfo(file.toUri().toURL());
+
+            SearchResult result = log.search(new HashSet<>(Arrays.asList("error", "he", "missing")), SearchOptions.ALL);
+            assertTrue("search - matched", result.isMatched());
+            assertTrue("search - complete", result.isComplete());
+            assertEquals("search - count", 1, result.getCount("error"));
+            assertEquals("search - lines", Arrays.asList(3L), result.getLines("error"));
+            assertEquals("search - overlapping count", 3, result.getCount("he"));
+            assertEquals("search - one entry per line", Arrays.asList(4L), result.getLines("he"));
+            assertEquals("search - no match", 0, result.getCount("missing"));
+
+            result = log.search(Collections.singleton("error"), new SearchOptions(true, false, 1));
+            assertEquals("search - ignore case", 3, result.getCount("error"));
+            assertEquals("search - line limit", Arrays.asList(1L), result.getLines("error"));
+        }
+
+        try {
+            txt.search(Collections.singleton(""), SearchOptions.ALL);
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // IllegalArgumentException caught
+        }
+
+        // a large body with a match near the start: "any match" must not download the rest
+        byte[] block = new byte[64 * 1024];
+        Arrays.fill(block, (byte) 'x');
+        AtomicBoolean dropped = new AtomicBoolean();
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/big.txt", exchange -> {
+            exchange.sendResponseHeaders(200, 1024L * block.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write("needle\n".getBytes(StandardCharsets.UTF_8));
+                for (int i = 1; i < 1024; i++) out.write(block);
+                out.write(block, 0, block.length - 7);
+            } catch (IOException e) {
+                // the client disconnected
+                dropped.set(true);
+            }
+        });
+        server.start();
+        try {
+            ContentInfo big = new ContentInfo("http://127.0.0.1:" + server.getAddress().getPort() + "/big.txt");
+            SearchResult result = big.search(Collections.singleton("needle"), SearchOptions.ANY);
+            assertTrue("search - any matched", result.isMatched());
+            assertFalse("search - stopped early", result.isComplete());
+            assertEquals("search - stopped at match", 6, result.getBytesRead());
+            assertEquals("search - any line", Arrays.asList(1L), result.getLines("needle"));
+            for (int i = 0; i < 100 && !dropped.get(); i++) Thread.sleep(50);
+            assertTrue("search - disconnected", dropped.get());
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    /**
+     * Test method for reading bodies through {@link BufferPool} and admitting
+     * decoding through {@link MemoryBudget}
+     *
+     * @throws Exception if the local files fail
+     */
+    @Test
+    public void testMemoryBudget() throws Exception {
+        BufferPool pool = new BufferPool(4096, 4);
+        MemoryBudget budget = new MemoryBudget(1024 * 1024);
+        try (TempDir temp = new TempDir("budget")) {
+            Path image = temp.resolve("300x200.png");
+            ImageIO.write(new BufferedImage(300, 200, BufferedImage.TYPE_INT_RGB), "png", image.toFile());
+            Path sound = temp.resolve("half.wav");
+            AudioFormat format = new AudioFormat(8000, 8, 1, true, false);
+            AudioSystem.write(new AudioInputStream(new ByteArrayInputStream(new byte[4000]), format, 4000),
+                    AudioFileFormat.Type.WAVE, sound.toFile());
+            // every kind of line break, and a last line without one
+            Path text = temp.write("lines.txt", "one\ntwo\r\nthree\rfour\n\nsix".getBytes(StandardCharsets.UTF_8));
+
+            ContentInfo png = new ContentInfo(image.toUri().toURL());
+            png.setBufferPool(pool);
+            png.setMemoryBudget(budget);
+            assertEquals("budget - image size", new ImageSize(300, 200), png.getImageSize());
+
+            ContentInfo wav = new ContentInfo(sound.toUri().toURL());
+            wav.setBufferPool(pool);
+            wav.setMemoryBudget(budget);
+            assertEquals("budget - audio duration", 0.5, wav.getAudioDuration(), 0.001);
+
+            ContentInfo lines = new ContentInfo(text.toUri().toURL());
+            lines.setBufferPool(pool);
+            assertEquals("pool - line count", 6, lines.getLineCount());
+
+            // only audio decoding is admitted: the image size comes from its header
+            assertEquals("budget - admitted", 1, budget.getAdmittedCount());
+            assertEquals("budget - audio footprint", pool.getBufferSize(), budget.getPeakUsed());
+            assertEquals("budget - released", 0, budget.getUsed());
+            assertEquals("pool - released", 0, pool.getInUseCount());
+            assertTrue("pool - used", pool.getAcquireCount() >= 2);
+        }
+
+        try {
+            txt.setMemoryBudget(null);
+            fail("Expected NullPointerException");
+        } catch (NullPointerException e) {
+            // NullPointerException caught
+        }
+    }
+
+    /**
+     * Test method for the cold start of {@link ContentInfo#getContentType()}:
+     * in a fresh JVM it must not load image, audio or AWT classes
+     *
+     * @throws Exception if the child JVM fails
+     */
+    @Test
+    public void testLazyLoading() throws Exception {
+        String javaCommand = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        Process process = new ProcessBuilder(javaCommand, "-verbose:class", "-cp", System.getProperty("java.class.path"),
+                "StartupBenchmark", "--child").redirectErrorStream(true).start();
+        List<String> early = new ArrayList<>();
+        boolean measured = false;
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            boolean contentType = false;
+            for (String line; (line = in.readLine()) != null; ) {
+                if (line.startsWith(StartupBenchmark.PREFIX + "contentType.")) contentType = true;
+                if (line.startsWith(StartupBenchmark.PREFIX + "audioDuration.ms")) measured = true;
+                if (!contentType && (line.contains(" javax.imageio.") || line.contains(" javax.sound.")
+                        || line.contains(" java.awt."))) {
+                    early.add(line);
+                }
+            }
+        }
+        assertEquals("lazy loading - exit", 0, process.waitFor());
+        assertTrue("lazy loading - measured", measured);
+        assertEquals("lazy loading - loaded before use", Collections.emptyList(), early);
+    }
+
+    /**
+     * Test method for {@link ContentInfo#getAnimationInfo()}
+     *
+     * @throws Exception if the local files fail
+     */
+    @Test
+    public void testGetAnimationInfo() throws Exception {
+        try (TempDir temp = new TempDir("animation")) {
+            Path gif = temp.resolve("still.gif");
+            ImageIO.write(new BufferedImage(120, 80, BufferedImage.TYPE_INT_RGB), "gif", gif.toFile());
+            Path text = temp.write("lines.txt", "one\n".getBytes(StandardCharsets.UTF_8));
+
+            AnimationInfo info = new ContentInfo(gif.toUri().toURL()).getAnimationInfo();
+            assertEquals("getAnimationInfo - format", "gif", info.getFormat());
+            assertEquals("getAnimationInfo - width", 120, info.getWidth());
+            assertEquals("getAnimationInfo - height", 80, info.getHeight());
+            assertEquals("getAnimationInfo - frames", 1, info.getFrameCount());
+            assertFalse("getAnimationInfo - still", info.isAnimated());
+
+            try {
+                new ContentInfo(text.toUri().toURL()).getAnimationInfo();
+                fail("Expected non-image");
+            } catch (IllegalStateException e) {
+                // IllegalStateException caught
+            }
+        }
+    }
+
+    /**
+     * A temporary directory for local content, deleted with the files in it
+     * when closed.
+     */
+    private static final class TempDir implements AutoCloseable {
+        private final Path dir;
+
+        /**
+         * Create a temporary directory.
+         *
+         * @param prefix prefix of the directory name
+         * @throws IOException if the directory cannot be created
+         */
+        TempDir(String prefix) throws IOException {
+            dir = Files.createTempDirectory(prefix);
+        }
+
+        /**
+         * Gets the path of a file in the directory.
+         *
+         * @param name the file name
+         * @return the path
+         */
+        Path resolve(String name) {
+            return dir.resolve(name);
+        }
+
+        /**
+         * Writes a file in the directory.
+         *
+         * @param name the file name
+         * @param bytes the file contents
+         * @return the path of the file
+         * @throws IOException if the file cannot be written
+         */
+        Path write(String name, byte[] bytes) throws IOException {
+            return Files.write(dir.resolve(name), bytes);
+        }
+
+        @Override
+        public void close() throws IOException {
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+                for (Path file : files) Files.delete(file);
+            }
+            Files.delete(dir);
+        }
+    }
+
+    /**
+     * Formats bytes as lowercase hex.
+     *
+     * @param bytes the bytes
+     * @return the hex string
+     */
+    private static String hex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder();
+        for (byte b : bytes) hex.append(String.format("%02x", b));
+        return hex.toString();
+    }
+}
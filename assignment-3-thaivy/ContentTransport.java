@@ -0,0 +1,52 @@
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.channels.FileChannel;
+
+/**
+ * ContentTransport.java
+ */
+
+/**
+ * Opens connections to content for one or more URL schemes. ContentInfo
+ * reaches every piece of content through the transport registered for the
+ * URL's scheme in {@link ContentTransports}, so a faster client, a local
+ * fast path or an in-process stand-in can be plugged in without changing it.
+ *
+ * A transport returns an unconnected URLConnection. Transports for HTTP
+ * return an HttpURLConnection so that ContentInfo can set the request
+ * method and headers and follow redirects itself; any other connection
+ * only needs to report its content type, length and modification time and
+ * provide the content stream. Transports whose content can be read at any
+ * offset, such as local files, also provide a channel, which ContentInfo
+ * uses for range reads, memory mapping and whole-content scans.
+ *
+ *
+ * @author Vy Thai
+ * @since 2020-10-30
+ */
+@FunctionalInterface
+public interface ContentTransport {
+    /** Transport using the connection the JDK's own URL handler opens */
+    ContentTransport URL_CONNECTION = URL::openConnection;
+
+    /**
+     * Opens a connection to content.
+     *
+     * @param url the content URL
+     * @return an unconnected connection
+     * @throws IOException if the connection cannot be created
+     */
+    URLConnection open(URL url) throws IOException;
+
+    /**
+     * Opens a random-access channel on content, if this transport supports one.
+     *
+     * @param url the content URL
+     * @return an open channel, or null if the content can only be streamed
+     * @throws IOException if the content is not available
+     */
+    default FileChannel openChannel(URL url) throws IOException {
+        return null;
+    }
+}
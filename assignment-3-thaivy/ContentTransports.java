@@ -0,0 +1,207 @@
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.net.URLStreamHandler;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * ContentTransports.java
+ */
+
+/**
+ * Registry of content transports by URL scheme. Out of the box "http" and
+ * "https" use HttpURLConnection, "file" reads files through NIO, "jar"
+ * reads entries from ZipFiles kept open between requests and "data"
+ * decodes the URL itself in memory; any other scheme falls back to the
+ * JDK's URL handler. Registering a transport replaces the one for its
+ * scheme, e.g. an {@link HttpClientTransport} for "http" and "https", or an
+ * in-process stand-in for tests and benchmarks.
+ *
+ *
+ * @author Vy Thai
+ * @since 2020-10-30
+ */
+public final class ContentTransports {
+    private static final Map<String, ContentTransport> TRANSPORTS = new ConcurrentHashMap<>();
+
+    /** URL handler for schemes the JDK does not know, such as "data" */
+    private static final URLStreamHandler HANDLER = new URLStreamHandler() {
+        @Override
+        protected URLConnection openConnection(URL url) throws IOException {
+            return forScheme(url.getProtocol()).open(url);
+        }
+    };
+
+    static {
+        reset();
+    }
+
+    /**
+     * Not instantiable.
+     */
+    private ContentTransports() {
+    }
+
+    /**
+     * Registers the transport for a scheme, replacing any previous one.
+     *
+     * @param scheme the URL scheme, e.g. "http"
+     * @param transport the transport
+     * @throws NullPointerException if scheme or transport is null
+     */
+    public static void register(String scheme, ContentTransport transport) {
+        if (scheme == null || transport == null) throw new NullPointerException("Scheme or transport is null");
+        TRANSPORTS.put(scheme.toLowerCase(Locale.ROOT), transport);
+    }
+
+    /**
+     * Gets the transport for a scheme.
+     *
+     * @param scheme the URL scheme
+     * @return the registered transport, or {@link ContentTransport#URL_CONNECTION} if none
+     */
+    public static ContentTransport forScheme(String scheme) {
+        return TRANSPORTS.getOrDefault(scheme.toLowerCase(Locale.ROOT), ContentTransport.URL_CONNECTION);
+    }
+
+    /**
+     * Restores the built-in transports, closing the ZipFiles kept open by
+     * the current "jar" transport.
+     */
+    public static void reset() {
+        ContentTransport jar = TRANSPORTS.get("jar");
+        if (jar instanceof JarTransport) ((JarTransport) jar).close();
+        TRANSPORTS.clear();
+        TRANSPORTS.put("http", ContentTransport.URL_CONNECTION);
+        TRANSPORTS.put("https", ContentTransport.URL_CONNECTION);
+        TRANSPORTS.put("file", new FileTransport());
+        TRANSPORTS.put("jar", new JarTransport());
+        TRANSPORTS.put("data", new DataTransport());
+    }
+
+    /**
+     * Parses a URL, accepting schemes the JDK has no handler for as long as
+     * a transport is registered for them.
+     *
+     * @param spec the URL string
+     * @return the URL
+     * @throws MalformedURLException if the string is not a valid URL
+     */
+    public static URL newURL(String spec) throws MalformedURLException {
+        try {
+            return new URL(spec);
+        } catch (MalformedURLException e) {
+            int colon = spec.indexOf(':');
+            if (colon <= 0 || !TRANSPORTS.containsKey(spec.substring(0, colon).toLowerCase(Locale.ROOT))) throw e;
+            return new URL(null, spec, HANDLER);
+        }
+    }
+
+    /**
+     * Decodes %XX escapes in part of a URL. Unlike URLDecoder, a "+" stays a
+     * plus sign.
+     *
+     * @param text the escaped text
+     * @return the decoded bytes
+     * @throws MalformedURLException if an escape is malformed
+     */
+    static byte[] percentDecode(String text) throws MalformedURLException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c != '%') {
+                // non-ASCII characters are taken as UTF-8
+                byte[] bytes = String.valueOf(c).getBytes(StandardCharsets.UTF_8);
+                out.write(bytes, 0, bytes.length);
+                continue;
+            }
+            int high = i + 2 < text.length() ? Character.digit(text.charAt(i + 1), 16) : -1;
+            int low = i + 2 < text.length() ? Character.digit(text.charAt(i + 2), 16) : -1;
+            if (high < 0 || low < 0) throw new MalformedURLException("Malformed escape in " + text + ".");
+            out.write(high << 4 | low);
+            i += 2;
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Base for connections to content that is not fetched over a network,
+     * answering the standard header lookups from the content type, length
+     * and modification time it was given.
+     */
+    abstract static class LocalConnection extends URLConnection {
+        private final String contentType;
+        private final long length;
+        private final long lastModified;
+
+        /**
+         * Create a connection.
+         *
+         * @param url the content URL
+         * @param contentType the content type, or null for "content/unknown"
+         * @param length the content length in bytes
+         * @param lastModified modification time in milliseconds, or 0 if unknown
+         */
+        LocalConnection(URL url, String contentType, long length, long lastModified) {
+            super(url);
+            this.contentType = contentType == null ? "content/unknown" : contentType;
+            this.length = length;
+            this.lastModified = lastModified;
+        }
+
+        @Override
+        public void connect() {
+            connected = true;
+        }
+
+        @Override
+        public String getContentType() {
+            return contentType;
+        }
+
+        @Override
+        public long getContentLengthLong() {
+            return length;
+        }
+
+        @Override
+        public int getContentLength() {
+            return length > Integer.MAX_VALUE ? -1 : (int) length;
+        }
+
+        @Override
+        public long getLastModified() {
+            return lastModified;
+        }
+
+        @Override
+        public Map<String, List<String>> getHeaderFields() {
+            Map<String, List<String>> fields = new LinkedHashMap<>();
+            fields.put("content-type", Collections.singletonList(contentType));
+            fields.put("content-length", Collections.singletonList(Long.toString(length)));
+            if (lastModified > 0) {
+                SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.US);
+                format.setTimeZone(TimeZone.getTimeZone("GMT"));
+                fields.put("last-modified", Collections.singletonList(format.format(new Date(lastModified))));
+            }
+            return Collections.unmodifiableMap(fields);
+        }
+
+        @Override
+        public String getHeaderField(String name) {
+            List<String> values = name == null ? null : getHeaderFields().get(name.toLowerCase(Locale.ROOT));
+            return values == null ? null : values.get(0);
+        }
+    }
+}
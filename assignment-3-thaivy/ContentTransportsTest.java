@@ -0,0 +1,234 @@
+import static org.junit.Assert.*;
+import org.junit.Test;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.MalformedURLException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * ContentTransportsTest.java
+ */
+
+/**
+ * JUnit tests for ContentTransports class and the built-in transports
+ *
+ *
+ * @author Vy Thai
+ * @since 2020-10-30
+ */
+public class ContentTransportsTest {
+
+    /**
+     * Test method for {@link DataTransport#open(java.net.URL)}
+     */
+    @Test
+    public void testData() {
+        try {
+            ContentInfo plain = new ContentInfo("data:,one%0Atwo%0Athree");
+            assertEquals("data - default type", "text/plain;charset=US-ASCII", plain.getContentType());
+            assertEquals("data - line count", 3, plain.getLineCount());
+
+            ContentInfo encoded = new ContentInfo("data:text/csv;base64,YSxiCjEsMgo=");
+            assertEquals("data - base64 type", "text/csv", encoded.getContentType());
+            assertEquals("data - base64 line count", 2, encoded.getLineCount());
+            assertEquals("data - base64 length", 8, encoded.getContentLength());
+        } catch (IOException e) {
+            fail("Unexpected IOException");
+        }
+
+        try {
+            new ContentInfo("data:text/plain").getContentType();
+            fail("Expected IOException");
+        } catch (IOException e) {
+            // IOException caught
+        }
+    }
+
+    /**
+     * Test method for {@link JarTransport#open(java.net.URL)}
+     *
+     * @throws IOException if the archive cannot be written
+     */
+    @Test
+    public void testJar() throws IOException {
+        Path zip = Files.createTempFile("transport", ".zip");
+        try {
+            try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(zip))) {
+                out.putNextEntry(new ZipEntry("dir/a b.txt"));
+                out.write("one\ntwo\n".getBytes(StandardCharsets.UTF_8));
+                out.closeEntry();
+            }
+            String base = "jar:" + zip.toUri() + "!/";
+            ContentInfo entry = new ContentInfo(base + "dir/a%20b.txt");
+            assertTrue("jar - text", entry.isText());
+            assertEquals("jar - line count", 2, entry.getLineCount());
+            assertEquals("jar - length", 8, entry.getContentLength());
+            JarTransport jar = (JarTransport) ContentTransports.forScheme("jar");
+            assertTrue("jar - kept open", jar.getOpenCount() >= 1);
+
+            try {
+                new ContentInfo(base + "missing.txt").getContentType();
+                fail("Expected IOException");
+            } catch (IOException e) {
+                // IOException caught
+            }
+        } finally {
+            ContentTransports.reset();
+            Files.delete(zip);
+        }
+    }
+
+    /**
+     * Test method for {@link JarTransport#JarTransport(int)} closing the least
+     * recently used archive beyond its capacity
+     *
+     * @throws IOException if the archives cannot be written
+     */
+    @Test
+    public void testJarCapacity() throws IOException {
+        Path first = Files.createTempFile("first", ".zip");
+        Path second = Files.createTempFile("second", ".zip");
+        JarTransport jar = new JarTransport(1);
+        ContentTransports.register("jar", jar);
+        try {
+            for (Path zip : new Path[]{first, second}) {
+                try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(zip))) {
+                    out.putNextEntry(new ZipEntry("a.txt"));
+                    out.write("one\ntwo\n".getBytes(StandardCharsets.UTF_8));
+                    out.closeEntry();
+                }
+            }
+            try (InputStream in = ContentTransports.newURL("jar:" + first.toUri() + "!/a.txt").openStream()) {
+                // evicts the first archive while its entry is still being read
+                assertEquals("capacity - second", 2, new ContentInfo("jar:" + second.toUri() + "!/a.txt").getLineCount());
+                assertEquals("capacity - open count", 1, jar.getOpenCount());
+                assertEquals("capacity - evicted archive still readable", 'o', in.read());
+            }
+            assertEquals("capacity - reopened", 2, new ContentInfo("jar:" + first.toUri() + "!/a.txt").getLineCount());
+            assertEquals("capacity - open count after reopening", 1, jar.getOpenCount());
+        } finally {
+            ContentTransports.reset();
+            Files.delete(first);
+            Files.delete(second);
+        }
+        try {
+            new JarTransport(0);
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // IllegalArgumentException caught
+        }
+    }
+
+    /**
+     * Test method for {@link FileTransport#open(java.net.URL)}
+     *
+     * @throws IOException if the file cannot be written
+     */
+    @Test
+    public void testFile() throws IOException {
+        Path file = Files.createTempFile("transport", ".txt");
+        try {
+            Files.write(file, "one\ntwo\nthree\n".getBytes(StandardCharsets.UTF_8));
+            ContentInfo local = new ContentInfo(file.toUri().toURL());
+            assertEquals("file - type", "text/plain", local.getContentType());
+            assertEquals("file - length", 14, local.getContentLength());
+            assertEquals("file - line count", 3, local.getLineCount());
+            assertEquals("file - modified", Files.getLastModifiedTime(file).toMillis(), local.getLastModified().getTime());
+            String digest = local.getDigest("SHA-256");
+
+            // a transport without a channel is streamed instead
+            FileTransport files = new FileTransport();
+            ContentTransports.register("file", files::open);
+            assertEquals("file - streamed digest", digest, local.getDigest("SHA-256"));
+            assertEquals("file - streamed stats", 3, local.getTextStats().getLineCount());
+        } finally {
+            ContentTransports.reset();
+            Files.delete(file);
+        }
+        try {
+            new ContentInfo(file.toUri().toURL()).getContentType();
+            fail("Expected IOException");
+        } catch (IOException e) {
+            // IOException caught
+        }
+    }
+
+    /**
+     * Test method for {@link ContentTransports#register(String, ContentTransport)}
+     * plugging in an in-process stand-in
+     */
+    @Test
+    public void testRegister() {
+        byte[] body = "one\ntwo\n".getBytes(StandardCharsets.UTF_8);
+        ContentTransports.register("mem", url -> new ContentTransports.LocalConnection(url, "text/plain", body.length, 0) {
+            @Override
+            public InputStream getInputStream() {
+                return new ByteArrayInputStream(body);
+            }
+        });
+        try {
+            ContentInfo memory = new ContentInfo("mem:greeting");
+            assertTrue("register - text", memory.isText());
+            assertEquals("register - line count", 2, memory.getLineCount());
+        } catch (IOException e) {
+            fail("Unexpected IOException");
+        } finally {
+            ContentTransports.reset();
+        }
+        assertSame("register - reset", ContentTransport.URL_CONNECTION, ContentTransports.forScheme("mem"));
+        try {
+            new ContentInfo("mem:greeting");
+            fail("Expected MalformedURLException");
+        } catch (MalformedURLException e) {
+            // MalformedURLException caught
+        }
+    }
+
+    /**
+     * Test method for {@link HttpClientTransport#open(java.net.URL)}
+     *
+     * @throws IOException if the local server cannot start
+     */
+    @Test
+    public void testHttpClient() throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/old.txt", exchange -> {
+            exchange.getResponseHeaders().set("Location", "/new.txt");
+            exchange.sendResponseHeaders(301, -1);
+            exchange.close();
+        });
+        server.createContext("/new.txt", exchange -> {
+            byte[] body = "one\ntwo\nthree\n".getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain");
+            exchange.sendResponseHeaders(200, "HEAD".equals(exchange.getRequestMethod()) ? -1 : body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                if (!"HEAD".equals(exchange.getRequestMethod())) out.write(body);
+            }
+        });
+        server.start();
+        ContentTransports.register("http", new HttpClientTransport());
+        try {
+            ContentInfo moved = new ContentInfo("http://127.0.0.1:" + server.getAddress().getPort() + "/old.txt");
+            assertEquals("http client - type", "text/plain", moved.getContentType());
+            assertEquals("http client - line count", 3, moved.getLineCount());
+
+            try {
+                new ContentInfo("http://127.0.0.1:" + server.getAddress().getPort() + "/missing.txt").getContentType();
+                fail("Expected IOException");
+            } catch (IOException e) {
+                // IOException caught
+            }
+        } finally {
+            ContentTransports.reset();
+            server.stop(0);
+        }
+    }
+}
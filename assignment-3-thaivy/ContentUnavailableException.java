@@ -0,0 +1,62 @@
+import java.io.IOException;
+import java.net.HttpURLConnection;
+
+/**
+ * ContentUnavailableException.java
+ */
+
+/**
+ * Thrown when the server answers a content request with an unsuccessful
+ * HTTP status, keeping the status and any Retry-After delay so callers can
+ * tell throttling apart from missing content.
+ *
+ *
+ * @author Vy Thai
+ * @since 2020-10-09
+ */
+public class ContentUnavailableException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    private final int responseCode;
+    private final long retryAfter;
+
+    /**
+     * Create an instance for an unsuccessful response.
+     *
+     * @param responseCode the HTTP status code
+     * @param retryAfter delay requested by a Retry-After header in milliseconds, or -1 if none
+     */
+    public ContentUnavailableException(int responseCode, long retryAfter) {
+        super("Content unavailable.");
+        this.responseCode = responseCode;
+        this.retryAfter = retryAfter;
+    }
+
+    /**
+     * Gets the HTTP status code of the response.
+     *
+     * @return the status code
+     */
+    public int getResponseCode() {
+        return responseCode;
+    }
+
+    /**
+     * Gets the delay requested by the server's Retry-After header.
+     *
+     * @return delay in milliseconds, or -1 if the response had none
+     */
+    public long getRetryAfter() {
+        return retryAfter;
+    }
+
+    /**
+     * Determines whether the server is asking the client to slow down
+     * (429 Too Many Requests or 503 Service Unavailable).
+     *
+     * @return true if the response is a throttling response
+     */
+    public boolean isThrottled() {
+        return responseCode == 429 || responseCode == HttpURLConnection.HTTP_UNAVAILABLE;
+    }
+}
@@ -0,0 +1,292 @@
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * ContentWatcher.java
+ */
+
+/**
+ * Watches many URLs for changes. Each URL is probed with a conditional HEAD
+ * request carrying the ETag and Last-Modified of its previous response, so
+ * an unchanged resource costs only a bodiless 304 answer. Every URL has its
+ * own poll interval that follows how often it actually changes: the interval
+ * is halved when a change is seen and grows by half when none is, always
+ * staying between the minimum and maximum interval. The first probe of each
+ * URL is spread randomly over the starting interval so that a large set does
+ * not start with a burst.
+ *
+ * Probes run on a small scheduled thread pool. A probe holds a thread for
+ * one HEAD request, which the probe timeout bounds both while connecting
+ * and while waiting for the response, so a few threads keep up with a large
+ * number of URLs on long intervals and an unresponsive host delays the
+ * others by at most that long per probe.
+ *
+ *
+ * @author Vy Thai
+ * @since 2020-10-23
+ */
+public class ContentWatcher implements AutoCloseable {
+    /** Factor applied to the interval of a URL that did not change */
+    private static final double BACKOFF = 1.5;
+
+    /** Milliseconds a probe waits to connect, and again for the response, unless set otherwise */
+    public static final int DEFAULT_PROBE_TIMEOUT = 10000;
+
+    private final Listener listener;
+    private final long minInterval;
+    private final long maxInterval;
+    private final int probeTimeout;
+    private final ScheduledThreadPoolExecutor executor;
+    /** Watches by URL string, since URL.equals resolves host names */
+    private final Map<String, Watch> watches = new ConcurrentHashMap<>();
+
+    /**
+     * Receives change notifications. Callbacks run on the watcher's threads
+     * and should return quickly.
+     */
+    public interface Listener {
+        /**
+         * Called when a watched URL changed since its previous probe.
+         *
+         * @param url the URL
+         * @param etag the new ETag, or null if the server sent none
+         * @param lastModified the new modification time in milliseconds, or 0 if unknown
+         */
+        void changed(URL url, String etag, long lastModified);
+
+        /**
+         * Called when a probe failed. The URL stays watched.
+         *
+         * @param url the URL
+         * @param failure the failure
+         */
+        default void failed(URL url, IOException failure) {
+        }
+    }
+
+    /**
+     * Probe state of one URL.
+     */
+    private final class Watch implements Runnable {
+        private final ContentInfo content;
+        private String etag;
+        private long lastModified;
+        private boolean probed;
+        private volatile long interval;
+        private ScheduledFuture<?> next;
+
+        /**
+         * Create a watch.
+         *
+         * @param url the URL to watch
+         */
+        Watch(URL url) {
+            this.content = new ContentInfo(url);
+            // one attempt per probe: the next probe is the retry
+            this.content.setRetryPolicy(RetryPolicy.NONE);
+            this.content.setConnectTimeout(probeTimeout);
+            this.content.setReadTimeout(probeTimeout);
+            this.interval = (long) Math.sqrt((double) minInterval * maxInterval);
+        }
+
+        @Override
+        public void run() {
+            URL url = content.getUrl();
+            try {
+                if (probe()) {
+                    interval = Math.max(minInterval, interval / 2);
+                    listener.changed(url, etag, lastModified);
+                } else {
+                    interval = Math.min(maxInterval, (long) (interval * BACKOFF));
+                }
+            } catch (IOException e) {
+                interval = Math.min(maxInterval, (long) (interval * BACKOFF));
+                listener.failed(url, e);
+            } catch (RuntimeException e) {
+                // keep watching after a failing listener
+                interval = Math.min(maxInterval, (long) (interval * BACKOFF));
+            }
+            schedule(interval);
+        }
+
+        /**
+         * Probes the URL once and remembers its validators.
+         *
+         * @return true if the content changed since the previous probe
+         * @throws IOException if the probe failed
+         */
+        private boolean probe() throws IOException {
+            URLConnection connection = content.getConditionalConnection(etag, lastModified);
+            boolean unchanged = connection instanceof HttpURLConnection
+                    && ((HttpURLConnection) connection).getResponseCode() == HttpURLConnection.HTTP_NOT_MODIFIED;
+            String newEtag = connection.getHeaderField("ETag");
+            long newLastModified = connection.getLastModified();
+            release(connection);
+            if (unchanged) return false;
+
+            boolean changed = probed && !(Objects.equals(newEtag, etag) && newLastModified == lastModified);
+            etag = newEtag;
+            lastModified = newLastModified;
+            probed = true;
+            return changed;
+        }
+
+        /**
+         * Schedules the next probe.
+         *
+         * @param delay delay in milliseconds
+         */
+        synchronized void schedule(long delay) {
+            if (watches.get(content.getUrl().toString()) != this) return;
+            try {
+                next = executor.schedule(this, delay, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                // the watcher was closed
+            }
+        }
+
+        /**
+         * Stops probing.
+         */
+        synchronized void cancel() {
+            if (next != null) next.cancel(false);
+        }
+    }
+
+    /**
+     * Create a watcher with the default probe timeout.
+     *
+     * @param listener receives change notifications
+     * @param minInterval shortest poll interval in milliseconds
+     * @param maxInterval longest poll interval in milliseconds
+     * @param threads number of probes running at once
+     * @throws NullPointerException if listener is null
+     * @throws IllegalArgumentException if an interval or the thread count is not positive,
+     *         or minInterval is greater than maxInterval
+     */
+    public ContentWatcher(Listener listener, long minInterval, long maxInterval, int threads) {
+        this(listener, minInterval, maxInterval, threads, DEFAULT_PROBE_TIMEOUT);
+    }
+
+    /**
+     * Create a watcher.
+     *
+     * @param listener receives change notifications
+     * @param minInterval shortest poll interval in milliseconds
+     * @param maxInterval longest poll interval in milliseconds
+     * @param threads number of probes running at once
+     * @param probeTimeout milliseconds a probe waits to connect, and again for the response
+     * @throws NullPointerException if listener is null
+     * @throws IllegalArgumentException if an interval, the thread count or the timeout is not positive,
+     *         or minInterval is greater than maxInterval
+     */
+    public ContentWatcher(Listener listener, long minInterval, long maxInterval, int threads, int probeTimeout) {
+        if (listener == null) throw new NullPointerException("Listener is null");
+        if (minInterval < 1 || maxInterval < minInterval || threads < 1 || probeTimeout < 1) {
+            throw new IllegalArgumentException("Invalid watcher limits.");
+        }
+        this.listener = listener;
+        this.minInterval = minInterval;
+        this.maxInterval = maxInterval;
+        this.probeTimeout = probeTimeout;
+        AtomicInteger count = new AtomicInteger();
+        this.executor = new ScheduledThreadPoolExecutor(threads, runnable -> {
+            Thread thread = new Thread(runnable, "ContentWatcher-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.executor.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * Starts watching a URL. Watching a URL that is already watched has no effect.
+     *
+     * @param url the URL
+     * @throws NullPointerException if url is null
+     */
+    public void watch(URL url) {
+        if (url == null) throw new NullPointerException("Url is null");
+        Watch watch = new Watch(url);
+        if (watches.putIfAbsent(url.toString(), watch) == null) {
+            watch.schedule(ThreadLocalRandom.current().nextLong(watch.interval));
+        }
+    }
+
+    /**
+     * Starts watching every URL of a collection.
+     *
+     * @param urls the URLs
+     * @throws NullPointerException if urls or one of its URLs is null
+     */
+    public void watchAll(Collection<URL> urls) {
+        for (URL url : urls) watch(url);
+    }
+
+    /**
+     * Stops watching a URL.
+     *
+     * @param url the URL
+     * @return true if the URL was watched
+     */
+    public boolean unwatch(URL url) {
+        Watch watch = watches.remove(url.toString());
+        if (watch == null) return false;
+        watch.cancel();
+        return true;
+    }
+
+    /**
+     * Gets the number of watched URLs.
+     *
+     * @return watched URL count
+     */
+    public int getWatchedCount() {
+        return watches.size();
+    }
+
+    /**
+     * Gets the current poll interval of a URL.
+     *
+     * @param url the URL
+     * @return interval in milliseconds, or -1 if the URL is not watched
+     */
+    public long getInterval(URL url) {
+        Watch watch = watches.get(url.toString());
+        return watch == null ? -1 : watch.interval;
+    }
+
+    /**
+     * Stops watching every URL and shuts down the probe threads.
+     */
+    @Override
+    public void close() {
+        watches.clear();
+        executor.shutdownNow();
+    }
+
+    /**
+     * Releases a probe connection, keeping an HTTP connection alive for the
+     * next request to the same host.
+     *
+     * @param connection the connection
+     */
+    private static void release(URLConnection connection) {
+        try {
+            connection.getInputStream().close();
+        } catch (IOException e) {
+            if (connection instanceof HttpURLConnection) ((HttpURLConnection) connection).disconnect();
+        }
+    }
+}
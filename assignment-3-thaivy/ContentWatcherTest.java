@@ -0,0 +1,163 @@
+import static org.junit.Assert.*;
+import org.junit.Test;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * ContentWatcherTest.java
+ */
+
+/**
+ * JUnit tests for ContentWatcher class
+ *
+ *
+ * @author Vy Thai
+ * @since 2020-10-23
+ */
+public class ContentWatcherTest {
+
+    /**
+     * Test method for {@link ContentWatcher#watch(java.net.URL)} answering
+     * unchanged probes with 304 and reporting a change
+     *
+     * @throws Exception if the local server fails
+     */
+    @Test
+    public void testWatch() throws Exception {
+        AtomicInteger version = new AtomicInteger(1);
+        AtomicInteger notModified = new AtomicInteger();
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/page.html", exchange -> {
+            String etag = "\"v" + version.get() + "\"";
+            exchange.getResponseHeaders().set("ETag", etag);
+            if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                notModified.incrementAndGet();
+                exchange.sendResponseHeaders(304, -1);
+            } else {
+                exchange.sendResponseHeaders(200, -1);
+            }
+            exchange.close();
+        });
+        server.start();
+
+        BlockingQueue<String> changes = new LinkedBlockingQueue<>();
+        URL url = new URL("http://127.0.0.1:" + server.getAddress().getPort() + "/page.html");
+        try (ContentWatcher watcher = new ContentWatcher((u, etag, lastModified) -> changes.add(etag), 10, 40, 2)) {
+            watcher.watch(url);
+            watcher.watch(url);
+            assertEquals("watch - count", 1, watcher.getWatchedCount());
+
+            // unchanged probes are cheap and back off to the longest interval
+            while (notModified.get() < 5) Thread.sleep(10);
+            assertEquals("watch - backed off", 40, watcher.getInterval(url));
+            assertNull("watch - no change", changes.poll());
+
+            version.set(2);
+            assertEquals("watch - change", "\"v2\"", changes.poll(5, TimeUnit.SECONDS));
+            assertTrue("watch - sped up", watcher.getInterval(url) < 40);
+
+            assertTrue("watch - unwatch", watcher.unwatch(url));
+            assertEquals("watch - unwatched interval", -1, watcher.getInterval(url));
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    /**
+     * Test method for {@link ContentWatcher#watch(java.net.URL)} for a local
+     * file, which has a modification time but no conditional requests
+     *
+     * @throws Exception if the local file fails
+     */
+    @Test
+    public void testWatchFile() throws Exception {
+        Path file = Files.createTempFile("watch", ".txt");
+        BlockingQueue<Long> changes = new LinkedBlockingQueue<>();
+        try (ContentWatcher watcher = new ContentWatcher((u, etag, lastModified) -> changes.add(lastModified), 10, 20, 1)) {
+            Files.setLastModifiedTime(file, FileTime.fromMillis(1000000000000L));
+            watcher.watch(file.toUri().toURL());
+            // let the first probe record the modification time
+            Thread.sleep(100);
+            Files.setLastModifiedTime(file, FileTime.fromMillis(1600000000000L));
+            assertEquals("watch file - change", Long.valueOf(1600000000000L), changes.poll(5, TimeUnit.SECONDS));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    /**
+     * Test method for {@link ContentWatcher#watch(java.net.URL)} with a host
+     * that never answers sharing the only probe thread with a healthy one
+     *
+     * @throws Exception if the local servers fail
+     */
+    @Test
+    public void testWatchHungHost() throws Exception {
+        AtomicInteger probes = new AtomicInteger();
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/page.html", exchange -> {
+            probes.incrementAndGet();
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+        });
+        server.start();
+        BlockingQueue<IOException> failures = new LinkedBlockingQueue<>();
+        // never accepted: connections wait in the backlog without a response
+        try (ServerSocket hung = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+             ContentWatcher watcher = new ContentWatcher(new ContentWatcher.Listener() {
+                 @Override
+                 public void changed(URL url, String etag, long lastModified) {
+                 }
+
+                 @Override
+                 public void failed(URL url, IOException failure) {
+                     failures.add(failure);
+                 }
+             }, 10, 20, 1, 200)) {
+            watcher.watch(new URL("http://127.0.0.1:" + hung.getLocalPort() + "/hung.html"));
+            watcher.watch(new URL("http://127.0.0.1:" + server.getAddress().getPort() + "/page.html"));
+            assertTrue("hung host - timed out", failures.poll(5, TimeUnit.SECONDS) instanceof SocketTimeoutException);
+            for (int i = 0; i < 100 && probes.get() < 3; i++) Thread.sleep(50);
+            assertTrue("hung host - others still probed", probes.get() >= 3);
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    /**
+     * Test method for {@link ContentWatcher#ContentWatcher(ContentWatcher.Listener, long, long, int)}
+     */
+    @Test
+    public void testContentWatcher() {
+        try {
+            new ContentWatcher(null, 1, 2, 1);
+            fail("Expected NullPointerException");
+        } catch (NullPointerException e) {
+            // NullPointerException caught
+        }
+        try {
+            new ContentWatcher((u, etag, lastModified) -> { }, 10, 5, 1);
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // IllegalArgumentException caught
+        }
+        try {
+            new ContentWatcher((u, etag, lastModified) -> { }, 10, 20, 1, 0);
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // IllegalArgumentException caught
+        }
+    }
+}
@@ -0,0 +1,57 @@
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * DataTransport.java
+ */
+
+/**
+ * Transport for RFC 2397 "data:" URLs, which carry their content in the URL
+ * itself: "data:[media type][;base64],data". The content is decoded in memory
+ * when the connection is opened; a missing media type means
+ * "text/plain;charset=US-ASCII". The JDK has no handler for this scheme, so
+ * such URLs are created with {@link ContentTransports#newURL(String)}.
+ *
+ *
+ * @author Vy Thai
+ * @since 2020-10-30
+ */
+public class DataTransport implements ContentTransport {
+
+    @Override
+    public URLConnection open(URL url) throws IOException {
+        String spec = url.toExternalForm();
+        int comma = spec.indexOf(',');
+        if (!spec.regionMatches(true, 0, "data:", 0, 5) || comma < 0) {
+            throw new MalformedURLException("Invalid data URL.");
+        }
+        String mediaType = spec.substring(5, comma);
+        boolean base64 = mediaType.regionMatches(true, Math.max(0, mediaType.length() - 7), ";base64", 0, 7);
+        if (base64) mediaType = mediaType.substring(0, mediaType.length() - 7);
+        if (mediaType.isEmpty()) mediaType = "text/plain;charset=US-ASCII";
+        else if (mediaType.startsWith(";")) mediaType = "text/plain" + mediaType;
+
+        byte[] data = ContentTransports.percentDecode(spec.substring(comma + 1));
+        if (base64) {
+            try {
+                data = Base64.getMimeDecoder().decode(new String(data, StandardCharsets.US_ASCII));
+            } catch (IllegalArgumentException e) {
+                throw new MalformedURLException("Invalid base64 in data URL.");
+            }
+        }
+        byte[] content = data;
+        return new ContentTransports.LocalConnection(url, mediaType, content.length, 0) {
+            @Override
+            public InputStream getInputStream() {
+                connect();
+                return new ByteArrayInputStream(content);
+            }
+        };
+    }
+}
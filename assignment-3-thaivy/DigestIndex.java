@@ -0,0 +1,105 @@
+import java.net.URL;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * DigestIndex.java
+ */
+
+/**
+ * Remembers content digests by the strong ETag and length the server
+ * reported, so {@link ContentInfo#getDigest(String)} can answer for content
+ * that has not changed without downloading and hashing it again. Weak ETags
+ * only promise equivalent content, not identical bytes, and are never used.
+ * An ETag is only meaningful for the resource that sent it, so entries are
+ * also keyed by URL. The index keeps the most recently used entries up to a
+ * fixed capacity.
+ *
+ *
+ * @author Vy Thai
+ * @since 2020-10-23
+ */
+public class DigestIndex {
+    /** Index shared by ContentInfo instances unless they are given another */
+    public static final DigestIndex DEFAULT = new DigestIndex(100000);
+
+    private final Map<String, String> digests;
+
+    /**
+     * Create an empty index.
+     *
+     * @param capacity most entries kept
+     * @throws IllegalArgumentException if capacity is not positive
+     */
+    public DigestIndex(int capacity) {
+        if (capacity < 1) throw new IllegalArgumentException("Capacity must be positive.");
+        this.digests = new LinkedHashMap<String, String>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Gets a known digest.
+     *
+     * @param url the content URL
+     * @param etag the ETag the server sent
+     * @param length the content length the server sent
+     * @param algorithm the digest algorithm
+     * @return the hex digest, or null if unknown or the ETag is not strong
+     */
+    public synchronized String get(URL url, String etag, long length, String algorithm) {
+        String key = key(url, etag, length, algorithm);
+        return key == null ? null : digests.get(key);
+    }
+
+    /**
+     * Records a digest. Nothing is recorded for a weak or missing ETag or an
+     * unknown length.
+     *
+     * @param url the content URL
+     * @param etag the ETag the server sent
+     * @param length the content length the server sent
+     * @param algorithm the digest algorithm
+     * @param digest the hex digest
+     */
+    public synchronized void put(URL url, String etag, long length, String algorithm, String digest) {
+        String key = key(url, etag, length, algorithm);
+        if (key != null) digests.put(key, digest);
+    }
+
+    /**
+     * Gets the number of known digests.
+     *
+     * @return entry count
+     */
+    public synchronized int size() {
+        return digests.size();
+    }
+
+    /**
+     * Forgets every digest.
+     */
+    public synchronized void clear() {
+        digests.clear();
+    }
+
+    /**
+     * Builds the lookup key.
+     *
+     * @param url the content URL
+     * @param etag the ETag
+     * @param length the content length
+     * @param algorithm the digest algorithm
+     * @return the key, or null if the ETag cannot identify the bytes
+     */
+    private static String key(URL url, String etag, long length, String algorithm) {
+        if (etag == null || etag.startsWith("W/") || length < 0) return null;
+        return algorithm.toUpperCase(Locale.ROOT) + " " + length + " " + etag + " " + url;
+    }
+}
@@ -0,0 +1,62 @@
+import static org.junit.Assert.*;
+import org.junit.Test;
+import java.net.MalformedURLException;
+import java.net.URL;
+
+/**
+ * DigestIndexTest.java
+ */
+
+/**
+ * JUnit tests for DigestIndex class
+ *
+ *
+ * @author Vy Thai
+ * @since 2020-10-23
+ */
+public class DigestIndexTest {
+
+    /**
+     * Test method for {@link DigestIndex#get(URL, String, long, String)}
+     *
+     * @throws MalformedURLException never
+     */
+    @Test
+    public void testGet() throws MalformedURLException {
+        DigestIndex index = new DigestIndex(2);
+        URL url = new URL("https://example.com/a.txt");
+        index.put(url, "\"v1\"", 10, "SHA-256", "aa");
+        assertEquals("get - known", "aa", index.get(url, "\"v1\"", 10, "sha-256"));
+        assertNull("get - other etag", index.get(url, "\"v2\"", 10, "SHA-256"));
+        assertNull("get - other length", index.get(url, "\"v1\"", 11, "SHA-256"));
+        assertNull("get - other algorithm", index.get(url, "\"v1\"", 10, "XXH64"));
+        assertNull("get - other url", index.get(new URL("https://example.org/a.txt"), "\"v1\"", 10, "SHA-256"));
+
+        // weak ETags and unknown lengths are never recorded
+        index.put(url, "W/\"v1\"", 10, "XXH64", "bb");
+        index.put(url, "\"v1\"", -1, "XXH64", "cc");
+        index.put(url, null, 10, "XXH64", "dd");
+        assertEquals("get - size", 1, index.size());
+    }
+
+    /**
+     * Test method for {@link DigestIndex#put(URL, String, long, String, String)}
+     * evicting the least recently used entry
+     *
+     * @throws MalformedURLException never
+     */
+    @Test
+    public void testPut() throws MalformedURLException {
+        DigestIndex index = new DigestIndex(2);
+        URL url = new URL("https://example.com/a.txt");
+        index.put(url, "\"1\"", 1, "XXH64", "01");
+        index.put(url, "\"2\"", 2, "XXH64", "02");
+        index.get(url, "\"1\"", 1, "XXH64");
+        index.put(url, "\"3\"", 3, "XXH64", "03");
+        assertEquals("put - size", 2, index.size());
+        assertEquals("put - recently used kept", "01", index.get(url, "\"1\"", 1, "XXH64"));
+        assertNull("put - eldest evicted", index.get(url, "\"2\"", 2, "XXH64"));
+        index.clear();
+        assertEquals("put - cleared", 0, index.size());
+    }
+}
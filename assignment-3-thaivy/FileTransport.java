@@ -0,0 +1,80 @@
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * FileTransport.java
+ */
+
+/**
+ * Transport for "file:" URLs that reads files through NIO. One attribute
+ * read gives the length and modification time, and the content stream is
+ * a FileChannel, so there is no URL handler lookup or buffered copy in
+ * between. The same channel is offered for random access. Directories are
+ * left to the JDK's handler, which lists them.
+ *
+ *
+ * @author Vy Thai
+ * @since 2020-10-30
+ */
+public class FileTransport implements ContentTransport {
+
+    @Override
+    public URLConnection open(URL url) throws IOException {
+        Path path = path(url);
+        // e.g. a UNC host or unencoded characters: let the JDK make sense of it
+        if (path == null) return url.openConnection();
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            throw new FileNotFoundException(path.toString());
+        }
+        if (attributes.isDirectory()) return url.openConnection();
+
+        String contentType = URLConnection.getFileNameMap().getContentTypeFor(path.getFileName().toString());
+        return new ContentTransports.LocalConnection(url, contentType, attributes.size(),
+                attributes.lastModifiedTime().toMillis()) {
+            @Override
+            public InputStream getInputStream() throws IOException {
+                connect();
+                return Channels.newInputStream(FileChannel.open(path));
+            }
+        };
+    }
+
+    @Override
+    public FileChannel openChannel(URL url) throws IOException {
+        Path path = path(url);
+        if (path == null || Files.isDirectory(path)) return null;
+        try {
+            return FileChannel.open(path);
+        } catch (NoSuchFileException e) {
+            throw new FileNotFoundException(path.toString());
+        }
+    }
+
+    /**
+     * Gets the file path of a "file:" URL.
+     *
+     * @param url the URL
+     * @return the path, or null if the URL does not map to one
+     */
+    private static Path path(URL url) {
+        try {
+            return Paths.get(url.toURI());
+        } catch (URISyntaxException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
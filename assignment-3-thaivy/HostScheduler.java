@@ -0,0 +1,365 @@
+import java.net.URL;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * HostScheduler.java
+ */
+
+/**
+ * Politeness scheduler for ContentInfo requests. Each host has its own queue,
+ * a token bucket limiting its request rate and a cap on concurrent
+ * connections; a dispatcher thread serves the hosts round-robin so that one
+ * large host cannot starve the others, and any host with capacity is served
+ * immediately so aggregate throughput is limited only by the total number of
+ * connections. A task failing with a 429 or 503 response pauses its host for
+ * the Retry-After delay and is queued again at the front of its host.
+ *
+ *
+ * @author Vy Thai
+ * @since 2020-10-09
+ */
+public class HostScheduler implements AutoCloseable {
+    /** Pause applied to a throttled host whose response had no Retry-After */
+    private static final long DEFAULT_RETRY_AFTER = 1000;
+
+    /** Times a throttled task is queued again before its failure is reported */
+    private static final int MAX_DEFERRALS = 3;
+
+    /** Seconds close waits for running requests before interrupting them */
+    private static final long CLOSE_TIMEOUT = 10;
+
+    private final int maxConnections;
+    private final int maxConnectionsPerHost;
+    private final double requestsPerSecond;
+    private final double burst;
+    private final ExecutorService workers;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final Map<String, Host> hosts = new HashMap<>();
+    /** Hosts with queued tasks, in round-robin order */
+    private final Deque<Host> ring = new ArrayDeque<>();
+    /** Tasks handed to a worker and not yet finished */
+    private final Set<Task<?>> running = new HashSet<>();
+    private final Thread dispatcher;
+    private int active;
+    private long swept = System.nanoTime();
+    private boolean closed;
+
+    /**
+     * Per-host queue and limits.
+     */
+    private final class Host {
+        private final String name;
+        private final Deque<Task<?>> queue = new ArrayDeque<>();
+        private int active;
+        private double tokens = burst;
+        private long refilled = System.nanoTime();
+        private long pausedUntil;
+
+        /**
+         * Create a host.
+         *
+         * @param name host and port
+         */
+        Host(String name) {
+            this.name = name;
+        }
+
+        /**
+         * Adds the tokens accrued since the last refill.
+         *
+         * @param now current time in nanoseconds
+         */
+        void refill(long now) {
+            tokens = Math.min(burst, tokens + (now - refilled) / 1e9 * requestsPerSecond);
+            refilled = now;
+        }
+
+        /**
+         * Gets how long until this host may start another request.
+         *
+         * @param now current time in nanoseconds
+         * @return delay in nanoseconds, 0 if a request may start now, or
+         *         Long.MAX_VALUE if it must wait for a running request to finish
+         */
+        long delay(long now) {
+            if (active >= maxConnectionsPerHost) return Long.MAX_VALUE;
+            if (now < pausedUntil) return pausedUntil - now;
+            refill(now);
+            if (tokens >= 1) return 0;
+            return (long) ((1 - tokens) / requestsPerSecond * 1e9);
+        }
+    }
+
+    /**
+     * A queued task and the future it completes.
+     *
+     * @param <T> result type
+     */
+    private static final class Task<T> {
+        private final Host host;
+        private final Callable<T> callable;
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+        private int deferrals;
+
+        /**
+         * Create a task.
+         *
+         * @param host the host it belongs to
+         * @param callable the work to run
+         */
+        Task(Host host, Callable<T> callable) {
+            this.host = host;
+            this.callable = callable;
+        }
+    }
+
+    /**
+     * Create a scheduler.
+     *
+     * @param maxConnections total number of requests running at once
+     * @param maxConnectionsPerHost number of requests running at once per host
+     * @param requestsPerSecond sustained request rate per host
+     * @param burst number of requests a host may receive back to back after being idle
+     * @throws IllegalArgumentException if any limit is not positive
+     */
+    public HostScheduler(int maxConnections, int maxConnectionsPerHost, double requestsPerSecond, int burst) {
+        if (maxConnections < 1 || maxConnectionsPerHost < 1 || !(requestsPerSecond > 0) || burst < 1) {
+            throw new IllegalArgumentException("Scheduler limits must be positive.");
+        }
+        this.maxConnections = maxConnections;
+        this.maxConnectionsPerHost = maxConnectionsPerHost;
+        this.requestsPerSecond = requestsPerSecond;
+        this.burst = burst;
+        this.workers = Executors.newFixedThreadPool(maxConnections);
+        this.dispatcher = new Thread(this::dispatch, "HostScheduler-dispatcher");
+        this.dispatcher.setDaemon(true);
+        this.dispatcher.start();
+    }
+
+    /**
+     * Queues a request for the host of a URL.
+     *
+     * @param url the URL the request is for
+     * @param callable the request, e.g. a ContentInfo call
+     * @param <T> result type
+     * @return future completed with the result or failure of the request
+     * @throws NullPointerException if url or callable is null
+     * @throws RejectedExecutionException if the scheduler is closed
+     */
+    public <T> CompletableFuture<T> submit(URL url, Callable<T> callable) {
+        if (url == null || callable == null) throw new NullPointerException("Url or task is null");
+        String name = url.getHost().toLowerCase(Locale.ROOT) + ":" + (url.getPort() < 0 ? url.getDefaultPort() : url.getPort());
+
+        lock.lock();
+        try {
+            if (closed) throw new RejectedExecutionException("Scheduler is closed.");
+            Host host = hosts.computeIfAbsent(name, Host::new);
+            Task<T> task = new Task<>(host, callable);
+            if (host.queue.isEmpty()) ring.addLast(host);
+            host.queue.addLast(task);
+            changed.signal();
+            return task.future;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gets the number of requests waiting to start.
+     *
+     * @return queued request count
+     */
+    public int getQueuedCount() {
+        lock.lock();
+        try {
+            int count = 0;
+            for (Host host : ring) count += host.queue.size();
+            return count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gets the number of requests running for a host.
+     *
+     * @param host the host name
+     * @return active request count for every port of the host
+     */
+    public int getActiveCount(String host) {
+        lock.lock();
+        try {
+            int count = 0;
+            for (Host h : hosts.values()) {
+                if (h.name.startsWith(host.toLowerCase(Locale.ROOT) + ":")) count += h.active;
+            }
+            return count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stops accepting requests, cancels queued ones and waits briefly for
+     * running ones to finish. Requests still running after that are
+     * interrupted and their futures fail with CancellationException.
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            for (Host host : ring) {
+                for (Task<?> task : host.queue) task.future.cancel(false);
+                host.queue.clear();
+            }
+            ring.clear();
+            changed.signal();
+        } finally {
+            lock.unlock();
+        }
+        workers.shutdown();
+        boolean terminated = false;
+        try {
+            terminated = workers.awaitTermination(CLOSE_TIMEOUT, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (terminated) return;
+
+        workers.shutdownNow();
+        List<Task<?>> abandoned;
+        lock.lock();
+        try {
+            abandoned = new ArrayList<>(running);
+            running.clear();
+        } finally {
+            lock.unlock();
+        }
+        // the interrupted workers may still finish, but their results come too late
+        for (Task<?> task : abandoned) {
+            task.future.completeExceptionally(new CancellationException("Scheduler closed before the request finished."));
+        }
+    }
+
+    /**
+     * Dispatcher loop: walks the ring once per round, starting one request on
+     * each host that is ready, then sleeps until the earliest host becomes
+     * ready or the queues change.
+     */
+    private void dispatch() {
+        lock.lock();
+        try {
+            while (!closed) {
+                long now = System.nanoTime();
+                long wait = Long.MAX_VALUE;
+                for (int i = ring.size(); i > 0 && active < maxConnections; i--) {
+                    Host host = ring.pollFirst();
+                    long delay = host.delay(now);
+                    if (delay == 0) {
+                        host.tokens -= 1;
+                        host.active++;
+                        active++;
+                        start(host.queue.pollFirst());
+                    } else {
+                        wait = Math.min(wait, delay);
+                    }
+                    if (!host.queue.isEmpty()) {
+                        ring.addLast(host);
+                        if (delay == 0) wait = 0;
+                    }
+                }
+                if (now - swept > TimeUnit.SECONDS.toNanos(1)) sweep(now);
+                // all connections busy: a completion will signal
+                if (active >= maxConnections) wait = Long.MAX_VALUE;
+                if (wait == Long.MAX_VALUE) changed.await();
+                else if (wait > 0) changed.awaitNanos(wait);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Forgets hosts that are idle with a full token bucket, so memory follows
+     * the set of recently used hosts. Hosts are kept until their bucket refills
+     * so that dropping one never grants an extra burst.
+     *
+     * @param now current time in nanoseconds
+     */
+    private void sweep(long now) {
+        swept = now;
+        hosts.values().removeIf(host -> {
+            if (host.active > 0 || !host.queue.isEmpty() || now < host.pausedUntil) return false;
+            host.refill(now);
+            return host.tokens >= burst;
+        });
+    }
+
+    /**
+     * Runs a task on a worker and handles its completion.
+     *
+     * @param task the task
+     * @param <T> result type
+     */
+    private <T> void start(Task<T> task) {
+        running.add(task);
+        workers.execute(() -> {
+            T result = null;
+            Exception failure = null;
+            try {
+                result = task.callable.call();
+            } catch (Exception e) {
+                failure = e;
+            }
+
+            boolean requeued = false;
+            lock.lock();
+            try {
+                running.remove(task);
+                Host host = task.host;
+                host.active--;
+                active--;
+                if (failure instanceof ContentUnavailableException && ((ContentUnavailableException) failure).isThrottled()) {
+                    // pause the host and put the task back at the front of its queue
+                    long retryAfter = ((ContentUnavailableException) failure).getRetryAfter();
+                    long pause = TimeUnit.MILLISECONDS.toNanos(retryAfter >= 0 ? retryAfter : DEFAULT_RETRY_AFTER);
+                    host.pausedUntil = Math.max(host.pausedUntil, System.nanoTime() + pause);
+                    if (task.deferrals++ < MAX_DEFERRALS && !closed) {
+                        if (host.queue.isEmpty()) ring.addLast(host);
+                        host.queue.addFirst(task);
+                        requeued = true;
+                    }
+                }
+                changed.signal();
+            } finally {
+                lock.unlock();
+            }
+
+            if (requeued) return;
+            if (failure != null) task.future.completeExceptionally(failure);
+            else task.future.complete(result);
+        });
+    }
+}
@@ -0,0 +1,129 @@
+import static org.junit.Assert.*;
+import org.junit.Test;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * HostSchedulerTest.java
+ */
+
+/**
+ * JUnit tests for HostScheduler class
+ *
+ *
+ * @author Vy Thai
+ * @since 2020-10-09
+ */
+public class HostSchedulerTest {
+    URL a;
+    URL b;
+
+    public HostSchedulerTest() throws MalformedURLException {
+        a = new URL("http://a.example.com/file.txt");
+        b = new URL("http://b.example.com/file.txt");
+    }
+
+    /**
+     * Test method for {@link HostScheduler#submit(java.net.URL, java.util.concurrent.Callable)}
+     * limiting concurrent connections per host
+     */
+    @Test
+    public void testPerHostLimit() {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        List<CompletableFuture<Integer>> futures = new ArrayList<>();
+        try (HostScheduler scheduler = new HostScheduler(8, 2, 1000, 100)) {
+            for (int i = 0; i < 10; i++) {
+                futures.add(scheduler.submit(a, () -> {
+                    peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    Thread.sleep(20);
+                    return running.decrementAndGet();
+                }));
+            }
+            for (CompletableFuture<Integer> future : futures) future.get();
+            assertEquals("per-host limit - peak connections", 2, peak.get());
+        } catch (InterruptedException | ExecutionException e) {
+            fail("Unexpected " + e);
+        }
+    }
+
+    /**
+     * Test method for {@link HostScheduler#submit(java.net.URL, java.util.concurrent.Callable)}
+     * serving hosts round-robin
+     */
+    @Test
+    public void testFairQueuing() {
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        List<CompletableFuture<Boolean>> futures = new ArrayList<>();
+        try (HostScheduler scheduler = new HostScheduler(1, 1, 1000, 100)) {
+            // a long running first task lets both queues fill up
+            futures.add(scheduler.submit(a, () -> {
+                Thread.sleep(100);
+                return order.add("a");
+            }));
+            // b queues first whether or not the dispatcher has started the first task yet
+            for (int i = 0; i < 3; i++) futures.add(scheduler.submit(b, () -> order.add("b")));
+            for (int i = 0; i < 3; i++) futures.add(scheduler.submit(a, () -> order.add("a")));
+            for (CompletableFuture<Boolean> future : futures) future.get();
+            assertEquals("fair queuing - order", "[a, b, a, b, a, b, a]", order.toString());
+        } catch (InterruptedException | ExecutionException e) {
+            fail("Unexpected " + e);
+        }
+    }
+
+    /**
+     * Test method for {@link HostScheduler#submit(java.net.URL, java.util.concurrent.Callable)}
+     * limiting the request rate per host
+     */
+    @Test
+    public void testRateLimit() {
+        try (HostScheduler scheduler = new HostScheduler(4, 4, 20, 1)) {
+            long start = System.nanoTime();
+            List<CompletableFuture<Boolean>> futures = new ArrayList<>();
+            for (int i = 0; i < 5; i++) futures.add(scheduler.submit(a, () -> true));
+            for (CompletableFuture<Boolean> future : futures) future.get();
+            // one request immediately, then one every 50ms
+            assertTrue("rate limit - elapsed", System.nanoTime() - start >= 190_000_000L);
+        } catch (InterruptedException | ExecutionException e) {
+            fail("Unexpected " + e);
+        }
+    }
+
+    /**
+     * Test method for {@link HostScheduler#submit(java.net.URL, java.util.concurrent.Callable)}
+     * honoring Retry-After on a throttled response
+     */
+    @Test
+    public void testRetryAfter() {
+        AtomicInteger attempts = new AtomicInteger();
+        try (HostScheduler scheduler = new HostScheduler(4, 4, 1000, 100)) {
+            long start = System.nanoTime();
+            CompletableFuture<String> future = scheduler.submit(a, () -> {
+                if (attempts.incrementAndGet() == 1) throw new ContentUnavailableException(429, 200);
+                return "done";
+            });
+            assertEquals("retry after - result", "done", future.get());
+            assertEquals("retry after - attempts", 2, attempts.get());
+            assertTrue("retry after - elapsed", System.nanoTime() - start >= 200_000_000L);
+
+            // missing content is not throttling and fails at once
+            CompletableFuture<String> missing = scheduler.submit(b, () -> {
+                throw new ContentUnavailableException(404, -1);
+            });
+            try {
+                missing.get();
+                fail("Expected ExecutionException");
+            } catch (ExecutionException e) {
+                assertEquals("retry after - not found", 404, ((ContentUnavailableException) e.getCause()).getResponseCode());
+            }
+        } catch (InterruptedException | ExecutionException e) {
+            fail("Unexpected " + e);
+        }
+    }
+}
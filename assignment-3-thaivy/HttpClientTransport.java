@@ -0,0 +1,189 @@
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * HttpClientTransport.java
+ */
+
+/**
+ * Transport for "http" and "https" URLs built on java.net.http.HttpClient,
+ * which pools connections across threads and speaks HTTP/2 where the server
+ * does. Connections are presented as HttpURLConnection, so ContentInfo sets
+ * the method and headers and follows redirects exactly as with the default
+ * transport; the client itself never follows redirects. The connect and
+ * read timeouts of a connection together bound the wait for its response;
+ * reads of the body are not timed out by the client. Install it with
+ * {@code ContentTransports.register("http", transport)} and likewise for
+ * "https".
+ *
+ *
+ * @author Vy Thai
+ * @since 2020-10-30
+ */
+public class HttpClientTransport implements ContentTransport {
+    private final HttpClient client;
+
+    /**
+     * Create a transport with a client of its own.
+     */
+    public HttpClientTransport() {
+        this(HttpClient.newBuilder().followRedirects(HttpClient.Redirect.NEVER).build());
+    }
+
+    /**
+     * Create a transport sharing a client. The client should not follow
+     * redirects, or ContentInfo cannot memoize permanent ones.
+     *
+     * @param client the client
+     * @throws NullPointerException if client is null
+     */
+    public HttpClientTransport(HttpClient client) {
+        if (client == null) throw new NullPointerException("Client is null");
+        this.client = client;
+    }
+
+    @Override
+    public URLConnection open(URL url) throws IOException {
+        if (!"http".equalsIgnoreCase(url.getProtocol()) && !"https".equalsIgnoreCase(url.getProtocol())) {
+            return url.openConnection();
+        }
+        return new Connection(url);
+    }
+
+    /**
+     * One request sent through the client when its response is first needed.
+     */
+    private final class Connection extends HttpURLConnection {
+        private HttpResponse<InputStream> response;
+        /** Header names and values in response order, preceded by the status line */
+        private final List<String[]> headers = new ArrayList<>();
+
+        /**
+         * Create an unsent request.
+         *
+         * @param url the URL
+         */
+        Connection(URL url) {
+            super(url);
+        }
+
+        @Override
+        public void connect() throws IOException {
+            if (connected) return;
+            HttpRequest.Builder request;
+            try {
+                request = HttpRequest.newBuilder(url.toURI());
+            } catch (URISyntaxException | IllegalArgumentException e) {
+                throw new IOException("Invalid URL " + url + ".");
+            }
+            request.method(method, HttpRequest.BodyPublishers.noBody());
+            // the client has no per-request connect timeout: bound connecting and waiting for the response together
+            if (getConnectTimeout() > 0 && getReadTimeout() > 0) {
+                request.timeout(Duration.ofMillis((long) getConnectTimeout() + getReadTimeout()));
+            }
+            for (Map.Entry<String, List<String>> property : getRequestProperties().entrySet()) {
+                for (String value : property.getValue()) request.header(property.getKey(), value);
+            }
+            try {
+                response = client.send(request.build(), HttpResponse.BodyHandlers.ofInputStream());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while connecting.");
+            }
+            responseCode = response.statusCode();
+            headers.add(new String[] {null, "HTTP/1.1 " + responseCode});
+            response.headers().map().forEach((name, values) -> {
+                for (String value : values) headers.add(new String[] {name, value});
+            });
+            connected = true;
+        }
+
+        @Override
+        public int getResponseCode() throws IOException {
+            connect();
+            return responseCode;
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            connect();
+            if (responseCode >= 400) {
+                response.body().close();
+                if (responseCode == HTTP_NOT_FOUND || responseCode == HTTP_GONE) throw new FileNotFoundException(url.toString());
+                throw new IOException("Server returned HTTP response code: " + responseCode + " for URL: " + url);
+            }
+            return response.body();
+        }
+
+        @Override
+        public InputStream getErrorStream() {
+            return connected && responseCode >= 400 ? response.body() : null;
+        }
+
+        @Override
+        public String getHeaderField(String name) {
+            if (!ensureConnected()) return null;
+            return response.headers().firstValue(name).orElse(null);
+        }
+
+        @Override
+        public String getHeaderFieldKey(int n) {
+            return ensureConnected() && n < headers.size() ? headers.get(n)[0] : null;
+        }
+
+        @Override
+        public String getHeaderField(int n) {
+            return ensureConnected() && n < headers.size() ? headers.get(n)[1] : null;
+        }
+
+        @Override
+        public Map<String, List<String>> getHeaderFields() {
+            if (!ensureConnected()) return Collections.emptyMap();
+            return Collections.unmodifiableMap(new LinkedHashMap<>(response.headers().map()));
+        }
+
+        @Override
+        public void disconnect() {
+            if (response == null) return;
+            try {
+                response.body().close();
+            } catch (IOException e) {
+                // the exchange is being abandoned anyway
+            }
+        }
+
+        @Override
+        public boolean usingProxy() {
+            return false;
+        }
+
+        /**
+         * Sends the request if needed, for header accessors that cannot throw.
+         *
+         * @return true if a response is available
+         */
+        private boolean ensureConnected() {
+            try {
+                connect();
+                return true;
+            } catch (IOException e) {
+                return false;
+            }
+        }
+    }
+}
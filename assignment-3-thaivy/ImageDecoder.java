@@ -0,0 +1,49 @@
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+
+/**
+ * ImageDecoder.java
+ */
+
+/**
+ * Image header reading for {@link ContentInfo#getImageSize()}, kept out of
+ * ContentInfo so that ImageIO, which scans for reader plugins when first
+ * used, is only loaded by the first call that needs it.
+ *
+ *
+ * @author Vy Thai
+ * @since 2020-11-20
+ */
+final class ImageDecoder {
+    /**
+     * Not instantiated.
+     */
+    private ImageDecoder() {
+    }
+
+    /**
+     * Gets the size of an image from its header, without decoding any pixels.
+     *
+     * @param in the image content
+     * @return the image size
+     * @throws IOException if the image cannot be read or the format is unsupported
+     */
+    static ImageSize readSize(InputStream in) throws IOException {
+        try (ImageInputStream stream = new MemoryCacheImageInputStream(in)) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(stream);
+            if (!readers.hasNext()) throw new IOException("Unsupported image format.");
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(stream, true, true);
+                return new ImageSize(reader.getWidth(0), reader.getHeight(0));
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+}
@@ -0,0 +1,66 @@
+/**
+ * ImageSize.java
+ */
+
+/**
+ * Width and height of an image in pixels. Unlike java.awt.Dimension it is
+ * immutable and does not pull in AWT, so asking for an image size costs no
+ * more class loading than the image decoder needs.
+ *
+ *
+ * @author Vy Thai
+ * @since 2020-11-20
+ */
+public final class ImageSize {
+    private final int width;
+    private final int height;
+
+    /**
+     * Create an instance with the dimensions.
+     *
+     * @param width width in pixels
+     * @param height height in pixels
+     * @throws IllegalArgumentException if width or height is negative
+     */
+    public ImageSize(int width, int height) {
+        if (width < 0 || height < 0) throw new IllegalArgumentException("Invalid image size.");
+        this.width = width;
+        this.height = height;
+    }
+
+    /**
+     * Gets the width.
+     *
+     * @return width in pixels
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Gets the height.
+     *
+     * @return height in pixels
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof ImageSize)) return false;
+        ImageSize other = (ImageSize) o;
+        return width == other.width && height == other.height;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * width + height;
+    }
+
+    @Override
+    public String toString() {
+        return width + "x" + height;
+    }
+}
@@ -0,0 +1,249 @@
+import java.io.Closeable;
+import java.io.FileNotFoundException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * JarTransport.java
+ */
+
+/**
+ * Transport for "jar:file:" URLs that keeps recently used archives open as
+ * ZipFiles between requests. Looking up an entry is then a hash lookup in the
+ * central directory already in memory, and the entry is streamed straight
+ * from the archive file with no temporary copy. At most a fixed number of
+ * archives is kept open; the least recently used one is closed to make room,
+ * as soon as no stream is reading from it. An archive that changed on disk
+ * since it was opened is opened again. Archives that are not local files are
+ * left to the JDK's handler.
+ *
+ *
+ * @author Vy Thai
+ * @since 2020-10-30
+ */
+public class JarTransport implements ContentTransport, Closeable {
+    /** Archives kept open unless another limit is given */
+    public static final int DEFAULT_CAPACITY = 32;
+
+    private final int capacity;
+    /** Open archives, least recently used first; guarded by itself */
+    private final Map<Path, Archive> archives = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * An open archive and the file attributes it was opened with.
+     */
+    private static final class Archive {
+        private final ZipFile zipFile;
+        private final long size;
+        private final long lastModified;
+        /** Streams reading from the archive */
+        private int readers;
+        /** Set once the archive is no longer kept, so the last reader closes it */
+        private boolean retired;
+
+        /**
+         * Create an open archive.
+         *
+         * @param zipFile the open archive
+         * @param attributes its file attributes when opened
+         */
+        Archive(ZipFile zipFile, BasicFileAttributes attributes) {
+            this.zipFile = zipFile;
+            this.size = attributes.size();
+            this.lastModified = attributes.lastModifiedTime().toMillis();
+        }
+
+        /**
+         * Determines whether the file still matches this archive.
+         *
+         * @param attributes current file attributes
+         * @return true if the file is unchanged
+         */
+        boolean matches(BasicFileAttributes attributes) {
+            return size == attributes.size() && lastModified == attributes.lastModifiedTime().toMillis();
+        }
+    }
+
+    /**
+     * Create a transport keeping up to {@link #DEFAULT_CAPACITY} archives open.
+     */
+    public JarTransport() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Create a transport.
+     *
+     * @param capacity most archives kept open at once
+     * @throws IllegalArgumentException if capacity is not positive
+     */
+    public JarTransport(int capacity) {
+        if (capacity < 1) throw new IllegalArgumentException("Capacity must be positive.");
+        this.capacity = capacity;
+    }
+
+    @Override
+    public URLConnection open(URL url) throws IOException {
+        String spec = url.getFile();
+        int separator = spec.indexOf("!/");
+        if (separator < 0 || separator + 2 == spec.length() || !spec.startsWith("file:")) return url.openConnection();
+        Path path;
+        try {
+            path = Paths.get(new URL(spec.substring(0, separator)).toURI());
+        } catch (URISyntaxException | IllegalArgumentException e) {
+            return url.openConnection();
+        }
+        String name = new String(ContentTransports.percentDecode(spec.substring(separator + 2)), StandardCharsets.UTF_8);
+
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        ZipEntry entry;
+        synchronized (archives) {
+            entry = archive(path, attributes).zipFile.getEntry(name);
+        }
+        if (entry == null || entry.isDirectory()) throw new FileNotFoundException("No entry " + name + " in " + path);
+        String contentType = URLConnection.getFileNameMap().getContentTypeFor(name);
+        return new ContentTransports.LocalConnection(url, contentType, entry.getSize(), Math.max(0, entry.getTime())) {
+            @Override
+            public InputStream getInputStream() throws IOException {
+                connect();
+                return read(path, name);
+            }
+        };
+    }
+
+    /**
+     * Opens a stream on an archive entry, keeping the archive open until the
+     * stream is closed.
+     *
+     * @param path the archive file
+     * @param name the entry name
+     * @return the entry content
+     * @throws IOException if the archive or entry cannot be opened
+     */
+    private InputStream read(Path path, String name) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        Archive archive;
+        InputStream in;
+        synchronized (archives) {
+            // looked up again: the archive may have been closed since the connection was opened
+            archive = archive(path, attributes);
+            ZipEntry entry = archive.zipFile.getEntry(name);
+            if (entry == null || entry.isDirectory()) throw new FileNotFoundException("No entry " + name + " in " + path);
+            in = archive.zipFile.getInputStream(entry);
+            archive.readers++;
+        }
+        return new FilterInputStream(in) {
+            private boolean closed;
+
+            @Override
+            public void close() throws IOException {
+                if (closed) return;
+                closed = true;
+                try {
+                    super.close();
+                } finally {
+                    synchronized (archives) {
+                        archive.readers--;
+                        if (archive.retired) closeIfUnread(archive);
+                    }
+                }
+            }
+        };
+    }
+
+    /**
+     * Gets the open archive for a file, opening it on first use or when the
+     * file changed and closing the least recently used archives beyond the
+     * capacity. The caller must hold the lock on the archive map.
+     *
+     * @param path the archive file
+     * @param attributes current file attributes
+     * @return the open archive
+     * @throws IOException if the file cannot be opened as an archive
+     */
+    private Archive archive(Path path, BasicFileAttributes attributes) throws IOException {
+        Archive archive = archives.get(path);
+        if (archive != null && archive.matches(attributes)) return archive;
+        if (archive != null) retire(archives.remove(path));
+
+        Archive opened = new Archive(new ZipFile(path.toFile()), attributes);
+        archives.put(path, opened);
+        Iterator<Archive> eldest = archives.values().iterator();
+        while (archives.size() > capacity) {
+            Archive evicted = eldest.next();
+            eldest.remove();
+            retire(evicted);
+        }
+        return opened;
+    }
+
+    /**
+     * Stops keeping an archive, closing it now or when its last stream closes.
+     *
+     * @param archive the archive
+     */
+    private static void retire(Archive archive) {
+        archive.retired = true;
+        closeIfUnread(archive);
+    }
+
+    /**
+     * Closes an archive that no stream is reading from.
+     *
+     * @param archive the archive
+     */
+    private static void closeIfUnread(Archive archive) {
+        if (archive.readers > 0) return;
+        try {
+            archive.zipFile.close();
+        } catch (IOException e) {
+            // nothing left to release
+        }
+    }
+
+    /**
+     * Gets the most archives kept open at once.
+     *
+     * @return the capacity
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Gets the number of archives kept open.
+     *
+     * @return open archive count
+     */
+    public int getOpenCount() {
+        synchronized (archives) {
+            return archives.size();
+        }
+    }
+
+    /**
+     * Closes every archive kept open, each as soon as no stream is reading
+     * from it. Entries can still be opened afterwards.
+     */
+    @Override
+    public void close() {
+        synchronized (archives) {
+            for (Archive archive : archives.values()) retire(archive);
+            archives.clear();
+        }
+    }
+}
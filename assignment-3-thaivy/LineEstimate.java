@@ -0,0 +1,109 @@
+/**
+ * LineEstimate.java
+ */
+
+/**
+ * An estimated line count with its 95% confidence interval, as returned by
+ * {@link ContentInfo#estimateLineCount(int, long, double)}. When the content
+ * was counted in full instead of sampled, the interval is the exact count.
+ *
+ *
+ * @author Vy Thai
+ * @since 2020-10-23
+ */
+public class LineEstimate {
+    private final long lineCount;
+    private final long lower;
+    private final long upper;
+    private final boolean exact;
+    private final int samples;
+    private final long sampledBytes;
+
+    /**
+     * Create an instance.
+     *
+     * @param lineCount estimated number of lines
+     * @param lower lower bound of the 95% confidence interval
+     * @param upper upper bound of the 95% confidence interval
+     * @param exact true if every byte was counted
+     * @param samples number of ranges sampled
+     * @param sampledBytes number of bytes read
+     */
+    public LineEstimate(long lineCount, long lower, long upper, boolean exact, int samples, long sampledBytes) {
+        this.lineCount = lineCount;
+        this.lower = lower;
+        this.upper = upper;
+        this.exact = exact;
+        this.samples = samples;
+        this.sampledBytes = sampledBytes;
+    }
+
+    /**
+     * Gets the estimated number of lines.
+     *
+     * @return line count
+     */
+    public long getLineCount() {
+        return lineCount;
+    }
+
+    /**
+     * Gets the lower bound of the 95% confidence interval.
+     *
+     * @return lowest plausible line count
+     */
+    public long getLower() {
+        return lower;
+    }
+
+    /**
+     * Gets the upper bound of the 95% confidence interval.
+     *
+     * @return highest plausible line count
+     */
+    public long getUpper() {
+        return upper;
+    }
+
+    /**
+     * Determines whether the count is exact rather than sampled.
+     *
+     * @return true if every byte was counted
+     */
+    public boolean isExact() {
+        return exact;
+    }
+
+    /**
+     * Gets the number of ranges sampled.
+     *
+     * @return sample count, 0 for an exact count
+     */
+    public int getSamples() {
+        return samples;
+    }
+
+    /**
+     * Gets the number of bytes read to produce the estimate.
+     *
+     * @return bytes read
+     */
+    public long getSampledBytes() {
+        return sampledBytes;
+    }
+
+    /**
+     * Gets the half-width of the confidence interval relative to the estimate.
+     *
+     * @return relative error, 0 for an exact count
+     */
+    public double getRelativeError() {
+        if (lineCount == 0) return upper == 0 ? 0 : Double.POSITIVE_INFINITY;
+        return (upper - lower) / 2.0 / lineCount;
+    }
+
+    @Override
+    public String toString() {
+        return exact ? lineCount + " lines" : lineCount + " lines (95% CI " + lower + "-" + upper + ")";
+    }
+}
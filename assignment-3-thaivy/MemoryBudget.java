@@ -0,0 +1,244 @@
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * MemoryBudget.java
+ */
+
+/**
+ * Global limit on the memory held by decode-heavy operations such as
+ * {@link ContentInfo#getAudioDuration()}.
+ * Each operation states its estimated footprint before decoding; it is
+ * admitted at once if that fits in what is left of the budget, and otherwise
+ * queued until enough is released. Operations are admitted in arrival order,
+ * so a large one is not starved by a stream of small ones. An operation
+ * larger than the whole budget is admitted once nothing else holds any of it.
+ *
+ *
+ * @author Vy Thai
+ * @since 2020-11-13
+ */
+public class MemoryBudget {
+    /** Budget shared by ContentInfo instances unless they are given another: a quarter of the heap */
+    public static final MemoryBudget DEFAULT = new MemoryBudget(Runtime.getRuntime().maxMemory() / 4);
+
+    private final long capacity;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition released = lock.newCondition();
+    /** Waiting operations in arrival order, each holding its footprint */
+    private final Deque<long[]> queue = new ArrayDeque<>();
+    private long used;
+    private long peakUsed;
+    private long admitted;
+    private long waited;
+
+    /**
+     * Create a budget.
+     *
+     * @param capacity bytes that may be held at once
+     * @throws IllegalArgumentException if capacity is not positive
+     */
+    public MemoryBudget(long capacity) {
+        if (capacity < 1) throw new IllegalArgumentException("Capacity must be positive.");
+        this.capacity = capacity;
+    }
+
+    /**
+     * Waits until an operation of the given footprint can be admitted and
+     * reserves it. Every successful call must be paired with a call to
+     * {@link #release(long)} with the same footprint.
+     *
+     * @param bytes estimated footprint of the operation
+     * @throws InterruptedException if interrupted while queued
+     * @throws IllegalArgumentException if bytes is negative
+     */
+    public void acquire(long bytes) throws InterruptedException {
+        if (bytes < 0) throw new IllegalArgumentException("Invalid footprint.");
+        lock.lock();
+        try {
+            if (queue.isEmpty() && fits(bytes)) {
+                reserve(bytes);
+                return;
+            }
+            long[] ticket = {bytes};
+            queue.addLast(ticket);
+            waited++;
+            try {
+                while (queue.peekFirst() != ticket || !fits(bytes)) released.await();
+            } catch (InterruptedException e) {
+                queue.remove(ticket);
+                // the next operation may fit now that this one left the head of the queue
+                released.signalAll();
+                throw e;
+            }
+            queue.removeFirst();
+            reserve(bytes);
+            // the next in line may fit too
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits until an operation can be admitted, for callers reporting
+     * interruption as I/O failure.
+     *
+     * @param bytes estimated footprint of the operation
+     * @throws InterruptedIOException if interrupted while queued
+     */
+    void admit(long bytes) throws InterruptedIOException {
+        try {
+            acquire(bytes);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for memory.");
+        }
+    }
+
+    /**
+     * Releases the footprint of a finished operation.
+     *
+     * @param bytes the footprint passed to {@link #acquire(long)}
+     */
+    public void release(long bytes) {
+        lock.lock();
+        try {
+            used = Math.max(0, used - bytes);
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Determines whether a footprint can be admitted now.
+     *
+     * @param bytes the footprint
+     * @return true if it fits, or the budget is unused
+     */
+    private boolean fits(long bytes) {
+        return used == 0 || bytes <= capacity - used;
+    }
+
+    /**
+     * Reserves an admitted footprint.
+     *
+     * @param bytes the footprint
+     */
+    private void reserve(long bytes) {
+        used += bytes;
+        peakUsed = Math.max(peakUsed, used);
+        admitted++;
+    }
+
+    /**
+     * Gets the bytes that may be held at once.
+     *
+     * @return capacity in bytes
+     */
+    public long getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Gets the bytes held by admitted operations.
+     *
+     * @return bytes in use
+     */
+    public long getUsed() {
+        lock.lock();
+        try {
+            return used;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gets the most bytes that were held at the same time.
+     *
+     * @return peak bytes in use
+     */
+    public long getPeakUsed() {
+        lock.lock();
+        try {
+            return peakUsed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gets the number of operations waiting to be admitted.
+     *
+     * @return queue length
+     */
+    public int getQueueLength() {
+        lock.lock();
+        try {
+            return queue.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gets the number of operations admitted.
+     *
+     * @return admission count
+     */
+    public long getAdmittedCount() {
+        lock.lock();
+        try {
+            return admitted;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gets the number of operations that had to wait before admission.
+     *
+     * @return count of queued operations
+     */
+    public long getWaitedCount() {
+        lock.lock();
+        try {
+            return waited;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gets the budget utilization as named values for a metrics system.
+     *
+     * @return metric names and values, in a stable order
+     */
+    public Map<String, Long> getMetrics() {
+        lock.lock();
+        try {
+            Map<String, Long> metrics = new LinkedHashMap<>();
+            metrics.put("memorybudget.capacity", capacity);
+            metrics.put("memorybudget.used", used);
+            metrics.put("memorybudget.used.peak", peakUsed);
+            metrics.put("memorybudget.queued", (long) queue.size());
+            metrics.put("memorybudget.admitted", admitted);
+            metrics.put("memorybudget.waited", waited);
+            return metrics;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "MemoryBudget" + getMetrics();
+    }
+}
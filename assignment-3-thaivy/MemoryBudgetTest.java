@@ -0,0 +1,136 @@
+import static org.junit.Assert.*;
+import org.junit.Test;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * MemoryBudgetTest.java
+ */
+
+/**
+ * JUnit tests for MemoryBudget class
+ *
+ *
+ * @author Vy Thai
+ * @since 2020-11-13
+ */
+public class MemoryBudgetTest {
+    /**
+     * Waits until a number of operations are queued.
+     *
+     * @param budget the budget
+     * @param length the queue length to wait for
+     * @throws InterruptedException if interrupted
+     */
+    private static void awaitQueue(MemoryBudget budget, int length) throws InterruptedException {
+        for (int i = 0; i < 200 && budget.getQueueLength() < length; i++) Thread.sleep(10);
+        assertEquals("queue length", length, budget.getQueueLength());
+    }
+
+    /**
+     * Test method for {@link MemoryBudget#MemoryBudget(long)}
+     */
+    @Test
+    public void testMemoryBudget() {
+        try {
+            new MemoryBudget(0);
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // IllegalArgumentException caught
+        }
+        try {
+            new MemoryBudget(10).acquire(-1);
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // IllegalArgumentException caught
+        } catch (InterruptedException e) {
+            fail("Unexpected InterruptedException");
+        }
+    }
+
+    /**
+     * Test method for {@link MemoryBudget#acquire(long)} queuing until memory is released
+     *
+     * @throws InterruptedException if interrupted
+     */
+    @Test
+    public void testQueuing() throws InterruptedException {
+        MemoryBudget budget = new MemoryBudget(100);
+        budget.acquire(60);
+        budget.acquire(40);
+        assertEquals("acquire - used", 100, budget.getUsed());
+
+        AtomicBoolean admitted = new AtomicBoolean();
+        Thread waiting = new Thread(() -> {
+            try {
+                budget.acquire(50);
+                admitted.set(true);
+            } catch (InterruptedException e) {
+                // test failed
+            }
+        });
+        waiting.start();
+        awaitQueue(budget, 1);
+        assertFalse("acquire - queued", admitted.get());
+
+        budget.release(60);
+        waiting.join(2000);
+        assertTrue("release - admitted", admitted.get());
+        assertEquals("release - used", 90, budget.getUsed());
+        assertEquals("metrics - waited", Long.valueOf(1), budget.getMetrics().get("memorybudget.waited"));
+        assertEquals("metrics - peak", Long.valueOf(100), budget.getMetrics().get("memorybudget.used.peak"));
+    }
+
+    /**
+     * Test method for {@link MemoryBudget#acquire(long)} admitting in arrival order
+     *
+     * @throws InterruptedException if interrupted
+     */
+    @Test
+    public void testFairness() throws InterruptedException {
+        MemoryBudget budget = new MemoryBudget(100);
+        budget.acquire(90);
+
+        // a large operation queues first; a small one that would fit must wait behind it
+        CountDownLatch large = new CountDownLatch(1);
+        CountDownLatch small = new CountDownLatch(1);
+        new Thread(() -> {
+            try {
+                budget.acquire(80);
+                large.countDown();
+            } catch (InterruptedException e) {
+                // test failed
+            }
+        }).start();
+        awaitQueue(budget, 1);
+        new Thread(() -> {
+            try {
+                budget.acquire(5);
+                small.countDown();
+            } catch (InterruptedException e) {
+                // test failed
+            }
+        }).start();
+        awaitQueue(budget, 2);
+        assertEquals("fairness - small waits", 1, small.getCount());
+
+        budget.release(90);
+        assertTrue("fairness - large admitted", large.await(2, java.util.concurrent.TimeUnit.SECONDS));
+        assertTrue("fairness - small admitted", small.await(2, java.util.concurrent.TimeUnit.SECONDS));
+        assertEquals("fairness - used", 85, budget.getUsed());
+    }
+
+    /**
+     * Test method for {@link MemoryBudget#acquire(long)} with more than the whole budget
+     *
+     * @throws InterruptedException if interrupted
+     */
+    @Test
+    public void testOversized() throws InterruptedException {
+        MemoryBudget budget = new MemoryBudget(100);
+        budget.acquire(500);
+        assertEquals("oversized - admitted alone", 500, budget.getUsed());
+        budget.release(500);
+        assertEquals("oversized - released", 0, budget.getUsed());
+    }
+}
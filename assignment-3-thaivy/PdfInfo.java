@@ -0,0 +1,1046 @@
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * PdfInfo.java
+ */
+
+/**
+ * Page count, version, encryption flag and Info dictionary of PDF content,
+ * read from the trailer and cross-reference data so that only the handful of
+ * objects needed are fetched, never the page content.
+ *
+ *
+ * @author Vy Thai
+ * @since 2020-10-02
+ */
+public class PdfInfo {
+    /** How far from the end of the file "startxref" may appear */
+    private static final int TRAILER_WINDOW = 2048;
+
+    /** Largest stream (xref or object stream) we are willing to fetch */
+    private static final int MAX_STREAM_SIZE = 64 * 1024 * 1024;
+
+    /** Deepest nesting of arrays and dictionaries we are willing to parse */
+    private static final int MAX_NESTING = 256;
+
+    private final int pageCount;
+    private final String version;
+    private final boolean encrypted;
+    private final boolean linearized;
+    private final Map<String, String> info;
+
+    /**
+     * Create an instance with the document properties.
+     *
+     * @param pageCount number of pages
+     * @param version PDF version, e.g. "1.7"
+     * @param encrypted true if the document is encrypted
+     * @param linearized true if the document is linearized for fast web view
+     * @param info entries of the document Info dictionary
+     */
+    public PdfInfo(int pageCount, String version, boolean encrypted, boolean linearized, Map<String, String> info) {
+        this.pageCount = pageCount;
+        this.version = version;
+        this.encrypted = encrypted;
+        this.linearized = linearized;
+        this.info = Collections.unmodifiableMap(new LinkedHashMap<>(info));
+    }
+
+    /**
+     * Gets the number of pages.
+     *
+     * @return page count
+     */
+    public int getPageCount() {
+        return pageCount;
+    }
+
+    /**
+     * Gets the PDF version, taking a catalog /Version override into account.
+     *
+     * @return version, e.g. "1.7"
+     */
+    public String getVersion() {
+        return version;
+    }
+
+    /**
+     * Determines whether the document is encrypted.
+     *
+     * @return true if encrypted, false otherwise
+     */
+    public boolean isEncrypted() {
+        return encrypted;
+    }
+
+    /**
+     * Determines whether the document is linearized.
+     *
+     * @return true if linearized, false otherwise
+     */
+    public boolean isLinearized() {
+        return linearized;
+    }
+
+    /**
+     * Gets the entries of the document Info dictionary, such as Title, Author
+     * and CreationDate. Empty for encrypted documents, whose strings cannot be
+     * read without the key.
+     *
+     * @return unmodifiable map of entry names to text values
+     */
+    public Map<String, String> getInfo() {
+        return info;
+    }
+
+    @Override
+    public String toString() {
+        return "PdfInfo[pageCount=" + pageCount + ", version=" + version + ", encrypted=" + encrypted
+                + ", linearized=" + linearized + ", info=" + info + "]";
+    }
+
+    /**
+     * Reads the document properties of PDF content.
+     *
+     * @param reader random access to the content
+     * @return the document properties, or null if the content is not a PDF
+     * @throws IOException if content unavailable or the document is corrupt
+     */
+    static PdfInfo read(RangeReader reader) throws IOException {
+        byte[] head = reader.read(0, 1024);
+        int header = indexOf(head, "%PDF-", 0);
+        if (header < 0) return null;
+        String version = new String(head, header + 5, Math.min(3, head.length - header - 5), StandardCharsets.US_ASCII);
+
+        Document document = new Document(reader);
+
+        // a linearization dictionary as the first object carries the page count
+        Integer linearizedPages = null;
+        Lexer lexer = new Lexer(reader, header);
+        try {
+            Object first = document.readIndirect(lexer, header);
+            if (first instanceof Map) {
+                Map<?, ?> dict = (Map<?, ?>) first;
+                Object length = dict.get("L");
+                // /L no longer matches once the file has been incrementally updated
+                if (dict.containsKey("Linearized") && length instanceof Number
+                        && ((Number) length).longValue() == reader.length() && dict.get("N") instanceof Number) {
+                    linearizedPages = ((Number) dict.get("N")).intValue();
+                }
+            }
+        } catch (IOException e) {
+            // not a linearized file, fall back to the trailer
+        }
+
+        // startxref near the end of the file gives the latest cross-reference section
+        long length = reader.length();
+        long tailStart = Math.max(0, length - TRAILER_WINDOW);
+        byte[] tail = reader.read(tailStart, (int) (length - tailStart));
+        int startxref = lastIndexOf(tail, "startxref");
+        if (startxref < 0) throw new IOException("PDF startxref not found.");
+        Lexer tailLexer = new Lexer(reader, tailStart + startxref + "startxref".length());
+        Object xrefOffset = tailLexer.readValue();
+        if (!(xrefOffset instanceof Number)) throw new IOException("Corrupt PDF startxref.");
+        document.addSection(((Number) xrefOffset).longValue());
+
+        boolean encrypted = document.trailerValue("Encrypt") != null;
+
+        Map<?, ?> catalog = asDict(document.resolve(document.trailerValue("Root")));
+        if (catalog == null) throw new IOException("PDF catalog not found.");
+        Object catalogVersion = catalog.get("Version");
+        if (catalogVersion instanceof String && ((String) catalogVersion).compareTo(version) > 0) {
+            version = (String) catalogVersion;
+        }
+
+        int pageCount;
+        if (linearizedPages != null) {
+            pageCount = linearizedPages;
+        } else {
+            Map<?, ?> pages = asDict(document.resolve(catalog.get("Pages")));
+            Object count = pages == null ? null : document.resolve(pages.get("Count"));
+            if (!(count instanceof Number)) throw new IOException("PDF page tree not found.");
+            pageCount = ((Number) count).intValue();
+        }
+
+        Map<String, String> info = new LinkedHashMap<>();
+        Map<?, ?> infoDict = encrypted ? null : asDict(document.resolve(document.trailerValue("Info")));
+        if (infoDict != null) {
+            for (Map.Entry<?, ?> entry : infoDict.entrySet()) {
+                // only text, names and numbers: a nested reference or dictionary has no useful string form
+                if (!(entry.getKey() instanceof String)) continue;
+                String key = (String) entry.getKey();
+                Object value = document.resolve(entry.getValue());
+                if (value instanceof byte[]) info.put(key, decodeText((byte[]) value));
+                else if (value instanceof String || value instanceof Number) info.put(key, value.toString());
+            }
+        }
+        return new PdfInfo(pageCount, version, encrypted, linearizedPages != null, info);
+    }
+
+    /**
+     * Gets a value as a dictionary, also accepting a stream's dictionary.
+     *
+     * @param value the value
+     * @return the dictionary, or null if the value is not a dictionary
+     */
+    private static Map<?, ?> asDict(Object value) {
+        if (value instanceof Stream) return ((Stream) value).dict;
+        return value instanceof Map ? (Map<?, ?>) value : null;
+    }
+
+    /**
+     * Decodes a PDF text string, which is UTF-16BE when it starts with a byte
+     * order mark and PDFDocEncoding (close to Latin-1) otherwise.
+     *
+     * @param bytes the string bytes
+     * @return the text
+     */
+    private static String decodeText(byte[] bytes) {
+        if (bytes.length >= 2 && (bytes[0] & 0xFF) == 0xFE && (bytes[1] & 0xFF) == 0xFF) {
+            return new String(bytes, 2, bytes.length - 2, StandardCharsets.UTF_16BE);
+        }
+        return new String(bytes, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Finds the first occurrence of an ASCII string in a buffer.
+     *
+     * @param buf the buffer
+     * @param s the string
+     * @param from offset to start searching at
+     * @return offset of the string, or -1 if not found
+     */
+    private static int indexOf(byte[] buf, String s, int from) {
+        outer:
+        for (int i = from; i + s.length() <= buf.length; i++) {
+            for (int j = 0; j < s.length(); j++) {
+                if (buf[i + j] != s.charAt(j)) continue outer;
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Finds the last occurrence of an ASCII string in a buffer.
+     *
+     * @param buf the buffer
+     * @param s the string
+     * @return offset of the string, or -1 if not found
+     */
+    private static int lastIndexOf(byte[] buf, String s) {
+        int found = -1;
+        int i = indexOf(buf, s, 0);
+        while (i >= 0) {
+            found = i;
+            i = indexOf(buf, s, i + 1);
+        }
+        return found;
+    }
+
+    /**
+     * An indirect object reference.
+     */
+    private static final class Ref {
+        private final long number;
+
+        /**
+         * Create a reference.
+         *
+         * @param number object number
+         */
+        Ref(long number) {
+            this.number = number;
+        }
+    }
+
+    /**
+     * A PDF keyword such as "obj", "stream" or "trailer".
+     */
+    private static final class Keyword {
+        private final String word;
+
+        /**
+         * Create a keyword.
+         *
+         * @param word the keyword
+         */
+        Keyword(String word) {
+            this.word = word;
+        }
+
+        /**
+         * Determines whether this is the given keyword.
+         *
+         * @param value the value to test
+         * @param word the keyword
+         * @return true if the value is that keyword
+         */
+        static boolean is(Object value, String word) {
+            return value instanceof Keyword && ((Keyword) value).word.equals(word);
+        }
+    }
+
+    /**
+     * A stream object: its dictionary and the absolute offset of its data.
+     */
+    private static final class Stream {
+        private final Map<?, ?> dict;
+        private final long dataOffset;
+
+        /**
+         * Create a stream.
+         *
+         * @param dict the stream dictionary
+         * @param dataOffset absolute offset of the stream data
+         */
+        Stream(Map<?, ?> dict, long dataOffset) {
+            this.dict = dict;
+            this.dataOffset = dataOffset;
+        }
+    }
+
+    /**
+     * One cross-reference section: either a classic table whose entries are
+     * read on demand, or a decoded cross-reference stream.
+     */
+    private static final class Section {
+        private Map<?, ?> trailer;
+        /** Table subsections as {first object, count, offset of first entry} */
+        private final List<long[]> subsections = new ArrayList<>();
+        /** Stream entries as object number to {type, field 2, field 3} */
+        private Map<Long, long[]> entries;
+    }
+
+    /**
+     * Lazily loaded cross-reference data and object access for one document.
+     */
+    private static final class Document {
+        private final RangeReader reader;
+        private final List<Section> sections = new ArrayList<>();
+        private final List<Long> pending = new ArrayList<>();
+        private final Set<Long> visited = new HashSet<>();
+        private final Map<Long, byte[]> objectStreams = new HashMap<>();
+        private final Map<Long, Stream> objectStreamHeaders = new HashMap<>();
+        /** Objects being fetched, to catch objects that need themselves to be read */
+        private final Set<Long> fetching = new HashSet<>();
+
+        /**
+         * Create a document over the content.
+         *
+         * @param reader random access to the content
+         */
+        Document(RangeReader reader) {
+            this.reader = reader;
+        }
+
+        /**
+         * Loads the cross-reference section at an offset.
+         *
+         * @param offset absolute offset of the section
+         * @throws IOException if content unavailable or the section is corrupt
+         */
+        void addSection(long offset) throws IOException {
+            if (!visited.add(offset)) return;
+            Lexer lexer = new Lexer(reader, offset);
+            Section section = new Section();
+            Object first = lexer.readValue();
+            if (Keyword.is(first, "xref")) {
+                // classic table: subsection headers followed by fixed 20 byte entries
+                while (true) {
+                    Object value = lexer.readValue();
+                    if (Keyword.is(value, "trailer")) break;
+                    Object count = lexer.readValue();
+                    if (!(value instanceof Number) || !(count instanceof Number)) throw new IOException("Corrupt PDF xref table.");
+                    lexer.skipSpace();
+                    long n = ((Number) count).longValue();
+                    section.subsections.add(new long[]{((Number) value).longValue(), n, lexer.pos});
+                    lexer.pos += 20 * n;
+                }
+                section.trailer = asDict(lexer.readValue());
+            } else {
+                // cross-reference stream
+                lexer.pos = offset;
+                Object value = readIndirect(lexer, offset);
+                if (!(value instanceof Stream)) throw new IOException("Corrupt PDF xref stream.");
+                Stream stream = (Stream) value;
+                section.trailer = stream.dict;
+                section.entries = decodeXrefStream(stream);
+            }
+            if (section.trailer == null) throw new IOException("PDF trailer not found.");
+            sections.add(section);
+
+            // hybrid files point at a cross-reference stream before the previous section
+            if (section.trailer.get("XRefStm") instanceof Number) {
+                pending.add(((Number) section.trailer.get("XRefStm")).longValue());
+            }
+            if (section.trailer.get("Prev") instanceof Number) {
+                pending.add(((Number) section.trailer.get("Prev")).longValue());
+            }
+        }
+
+        /**
+         * Gets a trailer entry from the newest section that defines it.
+         *
+         * @param key the entry name
+         * @return the value, or null if no trailer defines it
+         * @throws IOException if content unavailable
+         */
+        Object trailerValue(String key) throws IOException {
+            for (int i = 0; ; i++) {
+                if (i == sections.size() && !loadNext()) return null;
+                Object value = sections.get(i).trailer.get(key);
+                if (value != null) return value;
+            }
+        }
+
+        /**
+         * Loads the next pending older section.
+         *
+         * @return true if a section was loaded
+         * @throws IOException if content unavailable
+         */
+        private boolean loadNext() throws IOException {
+            while (!pending.isEmpty()) {
+                int before = sections.size();
+                addSection(pending.remove(0));
+                if (sections.size() > before) return true;
+            }
+            return false;
+        }
+
+        /**
+         * Finds the cross-reference entry of an object, newest section first.
+         *
+         * @param number object number
+         * @return {type, field 2, field 3}, or null if the object does not exist
+         * @throws IOException if content unavailable
+         */
+        private long[] findEntry(long number) throws IOException {
+            for (int i = 0; ; i++) {
+                if (i == sections.size() && !loadNext()) return null;
+                Section section = sections.get(i);
+                if (section.entries != null) {
+                    long[] entry = section.entries.get(number);
+                    if (entry != null) return entry[0] == 0 ? null : entry;
+                    continue;
+                }
+                for (long[] subsection : section.subsections) {
+                    if (number >= subsection[0] && number < subsection[0] + subsection[1]) {
+                        // "oooooooooo ggggg n" at a computable position
+                        byte[] raw = reader.read(subsection[2] + 20 * (number - subsection[0]), 18);
+                        if (raw.length < 18 || raw[17] != 'n') return null;
+                        try {
+                            long offset = Long.parseLong(new String(raw, 0, 10, StandardCharsets.US_ASCII).trim());
+                            return new long[]{1, offset, 0};
+                        } catch (NumberFormatException e) {
+                            throw new IOException("Corrupt PDF xref table.");
+                        }
+                    }
+                }
+            }
+        }
+
+        /**
+         * Resolves indirect references to the object they point at.
+         *
+         * @param value a value that may be a reference
+         * @return the resolved value, or null if the object does not exist
+         * @throws IOException if content unavailable or the object is corrupt
+         */
+        Object resolve(Object value) throws IOException {
+            for (int depth = 0; value instanceof Ref && depth < 32; depth++) {
+                value = getObject(((Ref) value).number);
+            }
+            return value instanceof Ref ? null : value;
+        }
+
+        /**
+         * Gets an indirect object, from the file or from an object stream.
+         *
+         * @param number object number
+         * @return the object, or null if it does not exist
+         * @throws IOException if content unavailable or the object is corrupt
+         */
+        private Object getObject(long number) throws IOException {
+            // e.g. an object stream inside itself, or a stream /Length stored in the same stream
+            if (!fetching.add(number)) throw new IOException("Corrupt PDF object reference cycle.");
+            try {
+                return fetchObject(number);
+            } finally {
+                fetching.remove(number);
+            }
+        }
+
+        /**
+         * Fetches an indirect object that is not already being fetched.
+         *
+         * @param number object number
+         * @return the object, or null if it does not exist
+         * @throws IOException if content unavailable or the object is corrupt
+         */
+        private Object fetchObject(long number) throws IOException {
+            long[] entry = findEntry(number);
+            if (entry == null) return null;
+            if (entry[0] == 1) return readIndirect(new Lexer(reader, entry[1]), entry[1]);
+            if (entry[0] != 2) return null;
+
+            // compressed object: field 2 is the object stream, field 3 the index within it
+            byte[] data = objectStreams.get(entry[1]);
+            Stream container = objectStreamHeaders.get(entry[1]);
+            if (data == null) {
+                Object value = getObject(entry[1]);
+                if (!(value instanceof Stream)) throw new IOException("PDF object stream not found.");
+                container = (Stream) value;
+                data = decodeStream(container);
+                objectStreams.put(entry[1], data);
+                objectStreamHeaders.put(entry[1], container);
+            }
+            Object first = container.dict.get("First");
+            if (!(first instanceof Number)) throw new IOException("Corrupt PDF object stream.");
+            Lexer lexer = new Lexer(data);
+            for (long i = 0; i <= entry[2]; i++) {
+                Object objectNumber = lexer.readValue();
+                Object offset = lexer.readValue();
+                if (i == entry[2] && objectNumber instanceof Number && offset instanceof Number) {
+                    lexer.pos = ((Number) first).longValue() + ((Number) offset).longValue();
+                    return lexer.readValue();
+                }
+            }
+            throw new IOException("PDF compressed object not found.");
+        }
+
+        /**
+         * Reads "n g obj value" at the lexer position.
+         *
+         * @param lexer lexer positioned at the object
+         * @param offset absolute offset of the object
+         * @return the value, or a {@link Stream} if a stream follows the dictionary
+         * @throws IOException if content unavailable or the object is corrupt
+         */
+        Object readIndirect(Lexer lexer, long offset) throws IOException {
+            lexer.pos = offset;
+            Object number = lexer.readValue();
+            Object generation = lexer.readValue();
+            Object keyword = lexer.readValue();
+            if (!(number instanceof Number) || !(generation instanceof Number) || !Keyword.is(keyword, "obj")) {
+                throw new IOException("Corrupt PDF object.");
+            }
+            Object value = lexer.readValue();
+            if (value instanceof Map) {
+                long mark = lexer.pos;
+                Object next = lexer.readValue();
+                if (Keyword.is(next, "stream")) {
+                    // the keyword is followed by CRLF or LF before the data
+                    if (lexer.peek() == '\r') lexer.next();
+                    if (lexer.peek() == '\n') lexer.next();
+                    return new Stream((Map<?, ?>) value, lexer.pos);
+                }
+                lexer.pos = mark;
+            }
+            return value;
+        }
+
+        /**
+         * Fetches and decodes the data of a stream.
+         *
+         * @param stream the stream
+         * @return the decoded data
+         * @throws IOException if content unavailable or the filter is unsupported
+         */
+        private byte[] decodeStream(Stream stream) throws IOException {
+            Object length = resolve(stream.dict.get("Length"));
+            if (!(length instanceof Number) || ((Number) length).longValue() > MAX_STREAM_SIZE) {
+                throw new IOException("Invalid PDF stream length.");
+            }
+            byte[] data = reader.read(stream.dataOffset, ((Number) length).intValue());
+
+            Object filter = stream.dict.get("Filter");
+            if (filter instanceof List) filter = ((List<?>) filter).isEmpty() ? null : ((List<?>) filter).get(0);
+            if (filter == null) return data;
+            if (!"FlateDecode".equals(filter)) throw new IOException("Unsupported PDF filter " + filter + ".");
+            data = inflate(data);
+
+            Object parms = stream.dict.get("DecodeParms");
+            if (parms instanceof List) parms = ((List<?>) parms).isEmpty() ? null : ((List<?>) parms).get(0);
+            Map<?, ?> decodeParms = asDict(resolve(parms));
+            if (decodeParms != null && decodeParms.get("Predictor") instanceof Number
+                    && ((Number) decodeParms.get("Predictor")).intValue() >= 10) {
+                int columns = decodeParms.get("Columns") instanceof Number ? ((Number) decodeParms.get("Columns")).intValue() : 1;
+                int colors = decodeParms.get("Colors") instanceof Number ? ((Number) decodeParms.get("Colors")).intValue() : 1;
+                int bits = decodeParms.get("BitsPerComponent") instanceof Number
+                        ? ((Number) decodeParms.get("BitsPerComponent")).intValue() : 8;
+                data = unpredict(data, columns * colors * bits / 8, Math.max(1, colors * bits / 8));
+            }
+            return data;
+        }
+
+        /**
+         * Decodes the entries of a cross-reference stream.
+         *
+         * @param stream the cross-reference stream
+         * @return object number to {type, field 2, field 3}
+         * @throws IOException if content unavailable or the stream is corrupt
+         */
+        private Map<Long, long[]> decodeXrefStream(Stream stream) throws IOException {
+            byte[] data = decodeStream(stream);
+            List<?> widths = numbers(stream.dict.get("W"));
+            if (widths == null || widths.size() < 3) throw new IOException("Corrupt PDF xref stream.");
+            int[] w = new int[3];
+            for (int i = 0; i < 3; i++) {
+                w[i] = ((Number) widths.get(i)).intValue();
+                // fields wider than a long cannot be read
+                if (w[i] < 0 || w[i] > 8) throw new IOException("Corrupt PDF xref stream.");
+            }
+            int rowLength = w[0] + w[1] + w[2];
+
+            List<?> index;
+            if (stream.dict.get("Index") != null) {
+                index = numbers(stream.dict.get("Index"));
+                if (index == null) throw new IOException("Corrupt PDF xref stream.");
+            } else {
+                if (!(stream.dict.get("Size") instanceof Number)) throw new IOException("Corrupt PDF xref stream.");
+                List<Object> whole = new ArrayList<>();
+                whole.add(0L);
+                whole.add(stream.dict.get("Size"));
+                index = whole;
+            }
+
+            Map<Long, long[]> entries = new HashMap<>();
+            int row = 0;
+            for (int i = 0; i + 1 < index.size(); i += 2) {
+                long start = ((Number) index.get(i)).longValue();
+                long count = ((Number) index.get(i + 1)).longValue();
+                for (long n = 0; n < count && (row + 1) * rowLength <= data.length; n++, row++) {
+                    int offset = row * rowLength;
+                    // a zero width type field defaults to type 1
+                    long type = w[0] == 0 ? 1 : field(data, offset, w[0]);
+                    long field2 = field(data, offset + w[0], w[1]);
+                    long field3 = field(data, offset + w[0] + w[1], w[2]);
+                    entries.put(start + n, new long[]{type, field2, field3});
+                }
+            }
+            return entries;
+        }
+
+        /**
+         * Gets a value as an array of numbers.
+         *
+         * @param value the value
+         * @return the array, or null if the value is not an array of numbers
+         */
+        private static List<?> numbers(Object value) {
+            if (!(value instanceof List)) return null;
+            for (Object element : (List<?>) value) {
+                if (!(element instanceof Number)) return null;
+            }
+            return (List<?>) value;
+        }
+
+        /**
+         * Reads a big-endian field of a cross-reference stream row.
+         *
+         * @param data the decoded stream
+         * @param offset offset of the field
+         * @param width width of the field in bytes
+         * @return the field value
+         */
+        private static long field(byte[] data, int offset, int width) {
+            long value = 0;
+            for (int i = 0; i < width; i++) value = (value << 8) | (data[offset + i] & 0xFF);
+            return value;
+        }
+
+        /**
+         * Inflates FlateDecode data.
+         *
+         * @param data the compressed data
+         * @return the inflated data
+         * @throws IOException if the data is corrupt
+         */
+        private static byte[] inflate(byte[] data) throws IOException {
+            Inflater inflater = new Inflater();
+            inflater.setInput(data);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(data.length * 4);
+            byte[] buf = new byte[8192];
+            try {
+                while (!inflater.finished()) {
+                    int n = inflater.inflate(buf);
+                    if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) break;
+                    out.write(buf, 0, n);
+                    if (out.size() > MAX_STREAM_SIZE) throw new IOException("PDF stream too large.");
+                }
+            } catch (DataFormatException e) {
+                throw new IOException("Corrupt PDF stream.");
+            } finally {
+                inflater.end();
+            }
+            return out.toByteArray();
+        }
+
+        /**
+         * Reverses PNG row predictors.
+         *
+         * @param data rows, each prefixed by its filter type byte
+         * @param rowLength bytes per row excluding the filter byte
+         * @param bpp bytes per pixel
+         * @return the unfiltered rows
+         */
+        private static byte[] unpredict(byte[] data, int rowLength, int bpp) {
+            int rows = data.length / (rowLength + 1);
+            byte[] out = new byte[rows * rowLength];
+            for (int r = 0; r < rows; r++) {
+                int type = data[r * (rowLength + 1)];
+                int in = r * (rowLength + 1) + 1;
+                int at = r * rowLength;
+                for (int i = 0; i < rowLength; i++) {
+                    int raw = data[in + i] & 0xFF;
+                    int left = i >= bpp ? out[at + i - bpp] & 0xFF : 0;
+                    int up = r > 0 ? out[at + i - rowLength] & 0xFF : 0;
+                    int upLeft = r > 0 && i >= bpp ? out[at + i - rowLength - bpp] & 0xFF : 0;
+                    int predicted;
+                    switch (type) {
+                        case 1: predicted = left; break;
+                        case 2: predicted = up; break;
+                        case 3: predicted = (left + up) / 2; break;
+                        case 4: {
+                            int p = left + up - upLeft;
+                            int pa = Math.abs(p - left);
+                            int pb = Math.abs(p - up);
+                            int pc = Math.abs(p - upLeft);
+                            predicted = pa <= pb && pa <= pc ? left : pb <= pc ? up : upLeft;
+                            break;
+                        }
+                        default: predicted = 0;
+                    }
+                    out[at + i] = (byte) (raw + predicted);
+                }
+            }
+            return out;
+        }
+    }
+
+    /**
+     * Tokenizer for PDF objects that pulls bytes from the content in small
+     * chunks as it advances, or works over an already decoded buffer.
+     */
+    private static final class Lexer {
+        private static final int CHUNK = 4096;
+
+        private final RangeReader reader;
+        private byte[] buf = new byte[0];
+        private long bufStart;
+        private long pos;
+        /** Arrays and dictionaries open at the current position */
+        private int nesting;
+
+        /**
+         * Create a lexer over the content.
+         *
+         * @param reader random access to the content
+         * @param pos absolute offset to start at
+         */
+        Lexer(RangeReader reader, long pos) {
+            this.reader = reader;
+            this.pos = pos;
+        }
+
+        /**
+         * Create a lexer over a decoded buffer.
+         *
+         * @param data the buffer
+         */
+        Lexer(byte[] data) {
+            this.reader = null;
+            this.buf = data;
+        }
+
+        /**
+         * Gets the byte at the current position without consuming it.
+         *
+         * @return the byte, or -1 at the end of the content
+         * @throws IOException if content unavailable
+         */
+        int peek() throws IOException {
+            if (pos < bufStart || pos >= bufStart + buf.length) {
+                if (reader == null) return -1;
+                buf = reader.read(pos, CHUNK);
+                bufStart = pos;
+                if (buf.length == 0) return -1;
+            }
+            return buf[(int) (pos - bufStart)] & 0xFF;
+        }
+
+        /**
+         * Consumes the byte at the current position.
+         *
+         * @return the byte, or -1 at the end of the content
+         * @throws IOException if content unavailable
+         */
+        int next() throws IOException {
+            int c = peek();
+            if (c >= 0) pos++;
+            return c;
+        }
+
+        /**
+         * Skips white space and comments.
+         *
+         * @throws IOException if content unavailable
+         */
+        void skipSpace() throws IOException {
+            int c;
+            while ((c = peek()) >= 0) {
+                if (c == '%') {
+                    while ((c = peek()) >= 0 && c != '\r' && c != '\n') next();
+                } else if (isSpace(c)) {
+                    next();
+                } else {
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Reads the next value: a dictionary (Map), array (List), name (String),
+         * string (byte[]), number, boolean, null, reference or keyword.
+         *
+         * @return the value
+         * @throws IOException if content unavailable or the syntax is invalid
+         */
+        Object readValue() throws IOException {
+            skipSpace();
+            int c = peek();
+            if (c < 0) throw new IOException("Unexpected end of PDF.");
+            if (c == '/') {
+                next();
+                return readName();
+            }
+            if (c == '(') {
+                next();
+                return readLiteralString();
+            }
+            if (c == '[') {
+                next();
+                enter();
+                List<Object> list = new ArrayList<>();
+                while (true) {
+                    skipSpace();
+                    if (peek() == ']') {
+                        next();
+                        nesting--;
+                        return list;
+                    }
+                    list.add(readValue());
+                }
+            }
+            if (c == '<') {
+                next();
+                if (peek() == '<') {
+                    next();
+                    enter();
+                    Map<String, Object> dict = new LinkedHashMap<>();
+                    while (true) {
+                        skipSpace();
+                        if (peek() == '>') {
+                            next();
+                            next();
+                            nesting--;
+                            return dict;
+                        }
+                        Object key = readValue();
+                        if (!(key instanceof String)) throw new IOException("Corrupt PDF dictionary.");
+                        dict.put((String) key, readValue());
+                    }
+                }
+                return readHexString();
+            }
+
+            String token = readToken();
+            if (token.isEmpty()) {
+                next();
+                throw new IOException("Unexpected PDF delimiter.");
+            }
+            char first = token.charAt(0);
+            if (Character.isDigit(first) || first == '-' || first == '+' || first == '.') {
+                long number;
+                try {
+                    if (token.indexOf('.') >= 0) return Double.parseDouble(token);
+                    number = Long.parseLong(token);
+                } catch (NumberFormatException e) {
+                    throw new IOException("Corrupt PDF number " + token + ".");
+                }
+                // "n g R" is a reference
+                long mark = pos;
+                skipSpace();
+                if (Character.isDigit(peek())) {
+                    String generation = readToken();
+                    skipSpace();
+                    if (peek() == 'R' && generation.chars().allMatch(Character::isDigit)) {
+                        next();
+                        return new Ref(number);
+                    }
+                }
+                pos = mark;
+                return number;
+            }
+            if (token.equals("true")) return Boolean.TRUE;
+            if (token.equals("false")) return Boolean.FALSE;
+            if (token.equals("null")) return null;
+            return new Keyword(token);
+        }
+
+        /**
+         * Opens an array or dictionary.
+         *
+         * @throws IOException if they are nested too deeply
+         */
+        private void enter() throws IOException {
+            if (++nesting > MAX_NESTING) throw new IOException("Corrupt PDF nesting.");
+        }
+
+        /**
+         * Reads a run of regular characters.
+         *
+         * @return the token, empty if positioned at a delimiter
+         * @throws IOException if content unavailable
+         */
+        private String readToken() throws IOException {
+            StringBuilder sb = new StringBuilder();
+            int c;
+            while ((c = peek()) >= 0 && !isSpace(c) && !isDelimiter(c)) {
+                sb.append((char) next());
+            }
+            return sb.toString();
+        }
+
+        /**
+         * Reads a name after its slash, decoding #xx escapes.
+         *
+         * @return the name without the slash
+         * @throws IOException if content unavailable or an escape is malformed
+         */
+        private String readName() throws IOException {
+            String token = readToken();
+            if (token.indexOf('#') < 0) return token;
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < token.length(); i++) {
+                char ch = token.charAt(i);
+                if (ch == '#' && i + 2 < token.length()) {
+                    int high = Character.digit(token.charAt(i + 1), 16);
+                    int low = Character.digit(token.charAt(i + 2), 16);
+                    if (high < 0 || low < 0) throw new IOException("Corrupt PDF name " + token + ".");
+                    sb.append((char) (high << 4 | low));
+                    i += 2;
+                } else {
+                    sb.append(ch);
+                }
+            }
+            return sb.toString();
+        }
+
+        /**
+         * Reads a literal string after its opening parenthesis.
+         *
+         * @return the string bytes
+         * @throws IOException if content unavailable or the string is unterminated
+         */
+        private byte[] readLiteralString() throws IOException {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            int depth = 1;
+            while (true) {
+                int c = next();
+                if (c < 0) throw new IOException("Unterminated PDF string.");
+                if (c == '(') {
+                    depth++;
+                } else if (c == ')') {
+                    if (--depth == 0) return out.toByteArray();
+                } else if (c == '\\') {
+                    c = next();
+                    switch (c) {
+                        case 'n': c = '\n'; break;
+                        case 'r': c = '\r'; break;
+                        case 't': c = '\t'; break;
+                        case 'b': c = '\b'; break;
+                        case 'f': c = '\f'; break;
+                        case '\r':
+                            // line continuation
+                            if (peek() == '\n') next();
+                            continue;
+                        case '\n':
+                            continue;
+                        default:
+                            if (c >= '0' && c <= '7') {
+                                int octal = c - '0';
+                                for (int i = 0; i < 2 && peek() >= '0' && peek() <= '7'; i++) {
+                                    octal = octal * 8 + next() - '0';
+                                }
+                                c = octal & 0xFF;
+                            }
+                    }
+                }
+                out.write(c);
+            }
+        }
+
+        /**
+         * Reads a hexadecimal string after its opening angle bracket.
+         *
+         * @return the string bytes
+         * @throws IOException if content unavailable or the string is unterminated
+         */
+        private byte[] readHexString() throws IOException {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            int high = -1;
+            while (true) {
+                int c = next();
+                if (c < 0) throw new IOException("Unterminated PDF string.");
+                if (c == '>') break;
+                int digit = Character.digit(c, 16);
+                if (digit < 0) continue;
+                if (high < 0) {
+                    high = digit;
+                } else {
+                    out.write(high << 4 | digit);
+                    high = -1;
+                }
+            }
+            // an odd final digit is followed by an implied zero
+            if (high >= 0) out.write(high << 4);
+            return out.toByteArray();
+        }
+
+        /**
+         * Determines whether a byte is PDF white space.
+         *
+         * @param c the byte
+         * @return true if white space
+         */
+        private static boolean isSpace(int c) {
+            return c == ' ' || c == '\n' || c == '\r' || c == '\t' || c == '\f' || c == 0;
+        }
+
+        /**
+         * Determines whether a byte is a PDF delimiter.
+         *
+         * @param c the byte
+         * @return true if a delimiter
+         */
+        private static boolean isDelimiter(int c) {
+            return c == '(' || c == ')' || c == '<' || c == '>' || c == '[' || c == ']'
+                    || c == '{' || c == '}' || c == '/' || c == '%';
+        }
+    }
+}
@@ -0,0 +1,127 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * PooledInputStream.java
+ */
+
+/**
+ * Buffered stream over a body that reads through a buffer taken from a
+ * {@link BufferPool} instead of allocating its own, and gives the buffer back
+ * when closed. Like BufferedInputStream it supports mark and reset, which
+ * parsers probing the format of a stream rely on, as long as no more than a
+ * buffer's worth of bytes is read past the mark.
+ *
+ *
+ * @author Vy Thai
+ * @since 2020-11-13
+ */
+final class PooledInputStream extends InputStream {
+    private final ReadableByteChannel channel;
+    private final BufferPool pool;
+    /** Bytes read from the channel and not yet consumed, between position and limit */
+    private ByteBuffer buffer;
+    /** Position of the mark in the buffer, or -1 if none */
+    private int mark = -1;
+
+    /**
+     * Create a stream.
+     *
+     * @param in the body
+     * @param pool the pool to take the buffer from
+     */
+    PooledInputStream(InputStream in, BufferPool pool) {
+        this.channel = Channels.newChannel(in);
+        this.pool = pool;
+        this.buffer = pool.acquire();
+        buffer.flip();
+    }
+
+    /**
+     * Reads more of the body into the buffer, keeping the bytes after the mark.
+     *
+     * @return false at the end of the body
+     * @throws IOException if the body cannot be read
+     */
+    private boolean fill() throws IOException {
+        if (buffer == null) throw new IOException("Stream closed.");
+        if (mark < 0) {
+            buffer.clear();
+        } else {
+            buffer.position(mark);
+            buffer.compact();
+            mark = 0;
+            // a full buffer cannot hold any more bytes after the mark
+            if (!buffer.hasRemaining()) {
+                mark = -1;
+                buffer.clear();
+            }
+        }
+        int start = buffer.position();
+        int n;
+        do {
+            n = channel.read(buffer);
+        } while (n == 0);
+        buffer.limit(buffer.position());
+        buffer.position(start);
+        return n > 0;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if ((buffer == null || !buffer.hasRemaining()) && !fill()) return -1;
+        return buffer.get() & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) return 0;
+        if ((buffer == null || !buffer.hasRemaining()) && !fill()) return -1;
+        int n = Math.min(len, buffer.remaining());
+        buffer.get(b, off, n);
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        if (n <= 0) return 0;
+        if ((buffer == null || !buffer.hasRemaining()) && !fill()) return 0;
+        int skipped = (int) Math.min(n, buffer.remaining());
+        buffer.position(buffer.position() + skipped);
+        return skipped;
+    }
+
+    @Override
+    public int available() throws IOException {
+        if (buffer == null) throw new IOException("Stream closed.");
+        return buffer.remaining();
+    }
+
+    @Override
+    public boolean markSupported() {
+        return true;
+    }
+
+    @Override
+    public void mark(int readlimit) {
+        if (buffer != null) mark = buffer.position();
+    }
+
+    @Override
+    public void reset() throws IOException {
+        if (buffer == null) throw new IOException("Stream closed.");
+        if (mark < 0) throw new IOException("Resetting to invalid mark.");
+        buffer.position(mark);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (buffer == null) return;
+        pool.release(buffer);
+        buffer = null;
+        channel.close();
+    }
+}
@@ -0,0 +1,81 @@
+import static org.junit.Assert.*;
+import org.junit.Test;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * PooledInputStreamTest.java
+ */
+
+/**
+ * JUnit tests for PooledInputStream class
+ *
+ *
+ * @author Vy Thai
+ * @since 2020-11-13
+ */
+public class PooledInputStreamTest {
+    /**
+     * Creates test input.
+     *
+     * @param length number of bytes
+     * @return the input
+     */
+    private static byte[] input(int length) {
+        byte[] data = new byte[length];
+        for (int i = 0; i < length; i++) data[i] = (byte) i;
+        return data;
+    }
+
+    /**
+     * Test method for reading through {@link PooledInputStream}
+     */
+    @Test
+    public void testRead() {
+        BufferPool pool = new BufferPool(16, 1);
+        byte[] data = input(100);
+        try (InputStream in = new PooledInputStream(new ByteArrayInputStream(data), pool)) {
+            assertEquals("read - in use", 1, pool.getInUseCount());
+            byte[] read = new byte[100];
+            int total = 0;
+            int n;
+            while ((n = in.read(read, total, read.length - total)) > 0) total += n;
+            assertArrayEquals("read - bytes", data, read);
+            assertEquals("read - end", -1, in.read());
+        } catch (IOException e) {
+            fail("Unexpected IOException");
+        }
+        assertEquals("close - released", 0, pool.getInUseCount());
+        assertEquals("close - idle", 1, pool.getIdleCount());
+    }
+
+    /**
+     * Test method for {@link PooledInputStream#mark(int)} and {@link PooledInputStream#reset()}
+     */
+    @Test
+    public void testMark() {
+        BufferPool pool = new BufferPool(16, 1);
+        try (InputStream in = new PooledInputStream(new ByteArrayInputStream(input(100)), pool)) {
+            assertTrue("mark - supported", in.markSupported());
+            in.skip(10);
+            in.mark(16);
+            // read across a refill of the buffer
+            for (int i = 0; i < 12; i++) in.read();
+            in.reset();
+            assertEquals("mark - reset", 10, in.read());
+
+            // reading more than a buffer past the mark invalidates it
+            in.mark(16);
+            for (int i = 0; i < 40; i++) in.read();
+            try {
+                in.reset();
+                fail("Expected IOException");
+            } catch (IOException e) {
+                // IOException caught
+            }
+        } catch (IOException e) {
+            fail("Unexpected IOException");
+        }
+    }
+}
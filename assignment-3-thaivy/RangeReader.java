@@ -0,0 +1,48 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * RangeReader.java
+ */
+
+/**
+ * Random access to the bytes of a piece of content, used by the container
+ * parsers so that they only fetch the parts of a file they actually need.
+ *
+ *
+ * @author Vy Thai
+ * @since 2020-10-02
+ */
+interface RangeReader {
+    /**
+     * Gets the total length of the content in bytes.
+     *
+     * @return length in bytes
+     * @throws IOException if content unavailable or the length cannot be determined
+     */
+    long length() throws IOException;
+
+    /**
+     * Reads bytes starting at an absolute offset. Fewer bytes than requested
+     * are returned only when the read runs past the end of the content.
+     *
+     * @param offset absolute offset of the first byte
+     * @param length number of bytes to read
+     * @return the bytes read
+     * @throws IOException if content unavailable
+     */
+    byte[] read(long offset, int length) throws IOException;
+
+    /**
+     * Reads bytes starting at an absolute offset into a buffer. Implementations
+     * backed by a local file may map the region instead of copying it.
+     *
+     * @param offset absolute offset of the first byte
+     * @param length number of bytes to read
+     * @return buffer positioned at the first byte read
+     * @throws IOException if content unavailable
+     */
+    default ByteBuffer buffer(long offset, int length) throws IOException {
+        return ByteBuffer.wrap(read(offset, length));
+    }
+}
@@ -0,0 +1,159 @@
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.ProtocolException;
+import java.net.UnknownHostException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * RetryPolicy.java
+ */
+
+/**
+ * How many times an idempotent HEAD/GET probe is attempted, and how long to
+ * wait between attempts: exponential backoff with full jitter, or the
+ * server's Retry-After delay when it sends one. Only transient failures are
+ * retried (resets, timeouts, 502 and 504 gateway responses, and 429 and 503
+ * throttling responses); missing content, unknown hosts and protocol errors
+ * such as redirect loops fail at once. A caller that paces requests itself,
+ * such as a {@link HostScheduler}, can use a policy that reports throttling
+ * instead, so that the whole host is paused rather than each request
+ * retrying on its own.
+ *
+ *
+ * @author Vy Thai
+ * @since 2020-10-16
+ */
+public class RetryPolicy {
+    /** A single attempt, no retries */
+    public static final RetryPolicy NONE = new RetryPolicy(1, 0, 0);
+
+    /** Three attempts with 200ms base backoff capped at 5s */
+    public static final RetryPolicy DEFAULT = new RetryPolicy(3, 200, 5000);
+
+    private final int maxAttempts;
+    private final long baseDelay;
+    private final long maxDelay;
+    private final boolean retryingThrottled;
+
+    /**
+     * Create a retry policy.
+     *
+     * @param maxAttempts total number of attempts, including the first
+     * @param baseDelay backoff before the second attempt in milliseconds
+     * @param maxDelay upper bound for any single backoff in milliseconds
+     * @throws IllegalArgumentException if maxAttempts is less than 1 or a delay is negative
+     */
+    public RetryPolicy(int maxAttempts, long baseDelay, long maxDelay) {
+        this(maxAttempts, baseDelay, maxDelay, true);
+    }
+
+    /**
+     * Create a retry policy that may leave throttling to the caller.
+     *
+     * @param maxAttempts total number of attempts, including the first
+     * @param baseDelay backoff before the second attempt in milliseconds
+     * @param maxDelay upper bound for any single backoff in milliseconds
+     * @param retryingThrottled true to retry 429 and 503 responses, false to report them at once
+     * @throws IllegalArgumentException if maxAttempts is less than 1 or a delay is negative
+     */
+    public RetryPolicy(int maxAttempts, long baseDelay, long maxDelay, boolean retryingThrottled) {
+        if (maxAttempts < 1 || baseDelay < 0 || maxDelay < baseDelay) {
+            throw new IllegalArgumentException("Invalid retry policy.");
+        }
+        this.maxAttempts = maxAttempts;
+        this.baseDelay = baseDelay;
+        this.maxDelay = maxDelay;
+        this.retryingThrottled = retryingThrottled;
+    }
+
+    /**
+     * Gets the total number of attempts.
+     *
+     * @return attempts including the first
+     */
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    /**
+     * Gets the backoff before the second attempt.
+     *
+     * @return delay in milliseconds
+     */
+    public long getBaseDelay() {
+        return baseDelay;
+    }
+
+    /**
+     * Gets the upper bound for any single backoff.
+     *
+     * @return delay in milliseconds
+     */
+    public long getMaxDelay() {
+        return maxDelay;
+    }
+
+    /**
+     * Determines whether 429 and 503 responses are retried.
+     *
+     * @return true if throttled requests are retried, false if they are reported
+     */
+    public boolean isRetryingThrottled() {
+        return retryingThrottled;
+    }
+
+    /**
+     * Gets the delay before the next attempt.
+     *
+     * @param attempt number of the attempt that just failed, starting at 1
+     * @param failure the failure of that attempt
+     * @return delay in milliseconds, or -1 if the server asked for a longer
+     *         wait than the maximum delay and the failure should be reported
+     */
+    public long delay(int attempt, IOException failure) {
+        if (failure instanceof ContentUnavailableException) {
+            long retryAfter = ((ContentUnavailableException) failure).getRetryAfter();
+            // retrying sooner than the server asked would only be refused again
+            if (retryAfter > maxDelay) return -1;
+            if (retryAfter >= 0) return retryAfter;
+        }
+        // full jitter: uniform between 0 and the exponential ceiling
+        long ceiling = Math.min(maxDelay, baseDelay << Math.min(attempt - 1, 30));
+        return ceiling == 0 ? 0 : ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    /**
+     * Determines whether a failure is transient and worth another attempt.
+     *
+     * @param failure the failure
+     * @return true if the request should be retried
+     */
+    public boolean isRetryable(IOException failure) {
+        if (failure instanceof ContentUnavailableException) {
+            ContentUnavailableException unavailable = (ContentUnavailableException) failure;
+            int code = unavailable.getResponseCode();
+            return code == 502 || code == 504 || (retryingThrottled && unavailable.isThrottled());
+        }
+        return !(failure instanceof UnknownHostException || failure instanceof FileNotFoundException
+                || failure instanceof MalformedURLException || failure instanceof ProtocolException
+                || failure instanceof CircuitBreaker.OpenException);
+    }
+
+    /**
+     * Determines whether a failure says something is wrong with the host
+     * rather than with the content, and so counts against its circuit breaker.
+     * A throttled host is answering, so 429 and 503 do not count.
+     *
+     * @param failure the failure
+     * @return true if the host failed
+     */
+    static boolean isHostFailure(IOException failure) {
+        if (failure instanceof ContentUnavailableException) {
+            ContentUnavailableException unavailable = (ContentUnavailableException) failure;
+            return unavailable.getResponseCode() >= 500 && !unavailable.isThrottled();
+        }
+        return !(failure instanceof FileNotFoundException || failure instanceof MalformedURLException
+                || failure instanceof ProtocolException || failure instanceof CircuitBreaker.OpenException);
+    }
+}
@@ -0,0 +1,79 @@
+import static org.junit.Assert.*;
+import org.junit.Test;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+
+/**
+ * RetryPolicyTest.java
+ */
+
+/**
+ * JUnit tests for RetryPolicy class
+ *
+ *
+ * @author Vy Thai
+ * @since 2020-10-16
+ */
+public class RetryPolicyTest {
+
+    /**
+     * Test method for {@link RetryPolicy#isRetryable(java.io.IOException)}
+     */
+    @Test
+    public void testIsRetryable() {
+        RetryPolicy policy = RetryPolicy.DEFAULT;
+        assertTrue("retryable - reset", policy.isRetryable(new SocketException("Connection reset")));
+        assertTrue("retryable - timeout", policy.isRetryable(new SocketTimeoutException()));
+        assertTrue("retryable - 502", policy.isRetryable(new ContentUnavailableException(502, -1)));
+        assertTrue("retryable - 503", policy.isRetryable(new ContentUnavailableException(503, -1)));
+        assertTrue("retryable - 429", policy.isRetryable(new ContentUnavailableException(429, 1000)));
+        assertFalse("retryable - 404", policy.isRetryable(new ContentUnavailableException(404, -1)));
+        assertFalse("retryable - unknown host", policy.isRetryable(new UnknownHostException("blahbabbaah.com")));
+        assertFalse("retryable - missing file", policy.isRetryable(new FileNotFoundException()));
+        assertFalse("retryable - open circuit", policy.isRetryable(new CircuitBreaker.OpenException("example.com")));
+
+        // throttling left to the caller, e.g. HostScheduler
+        RetryPolicy paced = new RetryPolicy(3, 200, 5000, false);
+        assertFalse("paced - 503", paced.isRetryable(new ContentUnavailableException(503, -1)));
+        assertFalse("paced - 429", paced.isRetryable(new ContentUnavailableException(429, 1000)));
+        assertTrue("paced - 502", paced.isRetryable(new ContentUnavailableException(502, -1)));
+
+        // a throttled host is up, so it does not count against its breaker
+        assertTrue("host failure - 502", RetryPolicy.isHostFailure(new ContentUnavailableException(502, -1)));
+        assertFalse("host failure - 503", RetryPolicy.isHostFailure(new ContentUnavailableException(503, 1000)));
+        assertFalse("host failure - 429", RetryPolicy.isHostFailure(new ContentUnavailableException(429, -1)));
+    }
+
+    /**
+     * Test method for {@link RetryPolicy#delay(int, java.io.IOException)}
+     */
+    @Test
+    public void testDelay() {
+        RetryPolicy policy = new RetryPolicy(5, 100, 1000);
+        IOException reset = new SocketException("Connection reset");
+        for (int i = 0; i < 100; i++) {
+            assertTrue("delay - first backoff", policy.delay(1, reset) <= 100);
+            assertTrue("delay - third backoff", policy.delay(3, reset) <= 400);
+            assertTrue("delay - capped", policy.delay(10, reset) <= 1000);
+        }
+        // Retry-After wins over the backoff, and one beyond the cap gives up
+        assertEquals("delay - retry after", 700, policy.delay(1, new ContentUnavailableException(504, 700)));
+        assertEquals("delay - retry after too long", -1, policy.delay(1, new ContentUnavailableException(504, 60000)));
+    }
+
+    /**
+     * Test method for {@link RetryPolicy#RetryPolicy(int, long, long)}
+     */
+    @Test
+    public void testRetryPolicy() {
+        try {
+            new RetryPolicy(0, 100, 1000);
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // IllegalArgumentException caught
+        }
+    }
+}
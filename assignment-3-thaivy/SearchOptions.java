@@ -0,0 +1,65 @@
+/**
+ * SearchOptions.java
+ */
+
+/**
+ * How {@link ContentInfo#search(java.util.Set, SearchOptions)} matches
+ * patterns and how much it reports.
+ *
+ *
+ * @author Vy Thai
+ * @since 2020-11-06
+ */
+public class SearchOptions {
+    /** Count every match, case-sensitive, keeping up to 1000 line numbers per pattern */
+    public static final SearchOptions ALL = new SearchOptions(false, false, 1000);
+
+    /** Stop at the first match of any pattern, case-sensitive */
+    public static final SearchOptions ANY = new SearchOptions(false, true, 1);
+
+    private final boolean ignoreCase;
+    private final boolean anyMatch;
+    private final int maxLines;
+
+    /**
+     * Create search options.
+     *
+     * @param ignoreCase true to match ASCII letters in either case
+     * @param anyMatch true to stop reading at the first match and disconnect
+     * @param maxLines most line numbers kept per pattern; matches beyond are still counted
+     * @throws IllegalArgumentException if maxLines is negative
+     */
+    public SearchOptions(boolean ignoreCase, boolean anyMatch, int maxLines) {
+        if (maxLines < 0) throw new IllegalArgumentException("Invalid line limit.");
+        this.ignoreCase = ignoreCase;
+        this.anyMatch = anyMatch;
+        this.maxLines = maxLines;
+    }
+
+    /**
+     * Determines whether ASCII letters match in either case.
+     *
+     * @return true if case is ignored
+     */
+    public boolean isIgnoreCase() {
+        return ignoreCase;
+    }
+
+    /**
+     * Determines whether the search stops at the first match.
+     *
+     * @return true in "any match" mode
+     */
+    public boolean isAnyMatch() {
+        return anyMatch;
+    }
+
+    /**
+     * Gets the most line numbers kept per pattern.
+     *
+     * @return line number limit
+     */
+    public int getMaxLines() {
+        return maxLines;
+    }
+}
@@ -0,0 +1,103 @@
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * SearchResult.java
+ */
+
+/**
+ * Outcome of {@link ContentInfo#search(java.util.Set, SearchOptions)}: how
+ * often each pattern occurred and on which lines. After a search in "any
+ * match" mode that stopped early, the counts only cover the content read.
+ *
+ *
+ * @author Vy Thai
+ * @since 2020-11-06
+ */
+public class SearchResult {
+    private final Map<String, Long> counts;
+    private final Map<String, List<Long>> lines;
+    private final boolean complete;
+    private final long bytesRead;
+
+    /**
+     * Create an instance.
+     *
+     * @param counts number of matches of each pattern
+     * @param lines 1-based line numbers with a match of each pattern
+     * @param complete true if the whole content was searched
+     * @param bytesRead number of bytes searched
+     */
+    public SearchResult(Map<String, Long> counts, Map<String, List<Long>> lines, boolean complete, long bytesRead) {
+        this.counts = Collections.unmodifiableMap(counts);
+        this.lines = Collections.unmodifiableMap(lines);
+        this.complete = complete;
+        this.bytesRead = bytesRead;
+    }
+
+    /**
+     * Determines whether any pattern matched.
+     *
+     * @return true if there was at least one match
+     */
+    public boolean isMatched() {
+        for (long count : counts.values()) {
+            if (count > 0) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Gets the number of matches of a pattern.
+     *
+     * @param pattern the pattern
+     * @return match count, 0 if it did not match or was not searched for
+     */
+    public long getCount(String pattern) {
+        return counts.getOrDefault(pattern, 0L);
+    }
+
+    /**
+     * Gets the lines on which a pattern matched, in order, up to the limit of
+     * the search options.
+     *
+     * @param pattern the pattern
+     * @return 1-based line numbers, empty if none
+     */
+    public List<Long> getLines(String pattern) {
+        return lines.getOrDefault(pattern, Collections.emptyList());
+    }
+
+    /**
+     * Gets the match count of every pattern.
+     *
+     * @return unmodifiable map of pattern to match count
+     */
+    public Map<String, Long> getCounts() {
+        return counts;
+    }
+
+    /**
+     * Determines whether the whole content was searched.
+     *
+     * @return false if the search stopped at the first match
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * Gets the number of bytes searched.
+     *
+     * @return bytes read
+     */
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    @Override
+    public String toString() {
+        return "SearchResult[counts=" + counts + ", complete=" + complete + ", bytesRead=" + bytesRead + "]";
+    }
+}
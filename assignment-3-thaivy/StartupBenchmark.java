@@ -0,0 +1,267 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.lang.management.ClassLoadingMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * StartupBenchmark.java
+ */
+
+/**
+ * Measures the cold start of ContentInfo: the time and number of classes
+ * loaded by the first calls a short-lived process makes. Every run is a
+ * fresh JVM, since class loading and plugin scans only happen once per
+ * process. Steps run in this order, each on local files so the network
+ * does not blur the numbers:
+ *
+ * jvm            JVM start until main
+ * construct      loading ContentInfo and creating an instance
+ * contentType    first getContentType, which must not load image or audio support
+ * imageSize      first getImageSize, loading ImageIO
+ * imageSizeWarm  second getImageSize
+ * audioDuration  first getAudioDuration, loading javax.sound
+ *
+ * The medians over all runs are printed, and with --output appended to a
+ * CSV file so that they can be tracked from build to build.
+ *
+ *
+ * @author Vy Thai
+ * @since 2020-11-20
+ */
+public class StartupBenchmark {
+    /** A 1x1 PNG */
+    private static final String PNG =
+            "iVBORw0KGgoAAAANSUhEUgAAAAEAAAABCAYAAAAfFcSJAAAADUlEQVR42mNkYPhfDwAChwGA60e6kgAAAABJRU5ErkJggg==";
+
+    /** Prefix of the lines a measuring run prints */
+    static final String PREFIX = "startup.";
+
+    private int runs = 5;
+    private Path output;
+
+    /**
+     * Runs the benchmark from the command line.
+     *
+     * @param args command-line arguments
+     */
+    public static void main(String[] args) {
+        try {
+            if (args.length == 1 && args[0].equals("--child")) {
+                measure(System.out);
+                return;
+            }
+            new StartupBenchmark(args).run(System.out);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println("usage: java StartupBenchmark [--runs N] [--output FILE]");
+            System.exit(2);
+        } catch (IOException e) {
+            System.err.println("StartupBenchmark: " + e.getMessage());
+            System.exit(1);
+        } catch (InterruptedException e) {
+            System.exit(130);
+        }
+    }
+
+    /**
+     * Create a benchmark from command-line arguments.
+     *
+     * @param args command-line arguments
+     * @throws IllegalArgumentException if the arguments are invalid
+     */
+    public StartupBenchmark(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (i + 1 >= args.length) throw new IllegalArgumentException("Missing value for " + arg);
+            String value = args[++i];
+            switch (arg) {
+                case "--runs":
+                    try {
+                        runs = Integer.parseInt(value);
+                    } catch (NumberFormatException e) {
+                        runs = 0;
+                    }
+                    if (runs < 1) throw new IllegalArgumentException("Invalid value for " + arg + ": " + value);
+                    break;
+                case "--output": output = Paths.get(value); break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + arg);
+            }
+        }
+    }
+
+    /**
+     * Measures in fresh JVMs and reports the medians.
+     *
+     * @param out where to print the report
+     * @throws IOException if a run fails or the output cannot be written
+     * @throws InterruptedException if interrupted while waiting for a run
+     */
+    public void run(PrintStream out) throws IOException, InterruptedException {
+        Map<String, List<Double>> samples = new LinkedHashMap<>();
+        for (int i = 0; i < runs; i++) {
+            for (Map.Entry<String, Double> metric : runChild().entrySet()) {
+                samples.computeIfAbsent(metric.getKey(), k -> new ArrayList<>()).add(metric.getValue());
+            }
+        }
+
+        Map<String, Double> medians = new LinkedHashMap<>();
+        for (Map.Entry<String, List<Double>> metric : samples.entrySet()) {
+            List<Double> values = metric.getValue();
+            Collections.sort(values);
+            medians.put(metric.getKey(), values.get(values.size() / 2));
+        }
+        out.printf(Locale.ROOT, "median of %d runs, java %s%n", runs, System.getProperty("java.version"));
+        for (Map.Entry<String, Double> metric : medians.entrySet()) {
+            out.printf(Locale.ROOT, "%-28s %10.2f%n", metric.getKey(), metric.getValue());
+        }
+        if (output != null) append(medians);
+    }
+
+    /**
+     * Runs one measurement in a new JVM.
+     *
+     * @return metric names and values
+     * @throws IOException if the run fails
+     * @throws InterruptedException if interrupted while waiting for it
+     */
+    private static Map<String, Double> runChild() throws IOException, InterruptedException {
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        Process process = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                StartupBenchmark.class.getName(), "--child").redirectErrorStream(true).start();
+        Map<String, Double> metrics = new LinkedHashMap<>();
+        StringBuilder transcript = new StringBuilder();
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            for (String line; (line = in.readLine()) != null; ) {
+                transcript.append(line).append('\n');
+                int equals = line.indexOf('=');
+                if (line.startsWith(PREFIX) && equals > 0) {
+                    metrics.put(line.substring(PREFIX.length(), equals), Double.parseDouble(line.substring(equals + 1)));
+                }
+            }
+        }
+        if (process.waitFor() != 0) throw new IOException("Run failed:\n" + transcript);
+        return metrics;
+    }
+
+    /**
+     * Appends the medians to the output CSV, writing a header to a new file.
+     *
+     * @param medians metric names and values
+     * @throws IOException if the file cannot be written
+     */
+    private void append(Map<String, Double> medians) throws IOException {
+        boolean fresh = !Files.exists(output) || Files.size(output) == 0;
+        try (Writer writer = Files.newBufferedWriter(output, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            if (fresh) writer.write("time,java," + String.join(",", medians.keySet()) + "\n");
+            StringBuilder row = new StringBuilder().append(Instant.now()).append(',')
+                    .append(System.getProperty("java.version"));
+            for (double value : medians.values()) row.append(',').append(String.format(Locale.ROOT, "%.2f", value));
+            writer.write(row.append('\n').toString());
+        }
+    }
+
+    /**
+     * Takes the measurements of one run in this JVM, printing each as soon as
+     * it is taken, so that they can be lined up with the output of
+     * -verbose:class.
+     *
+     * @param out where to print the measurements
+     * @throws IOException if the local content cannot be created or read
+     */
+    static void measure(PrintStream out) throws IOException {
+        long uptime = ManagementFactory.getRuntimeMXBean().getUptime();
+        ClassLoadingMXBean classes = ManagementFactory.getClassLoadingMXBean();
+        Path dir = Files.createTempDirectory("startup");
+        Path text = Files.write(dir.resolve("lines.txt"), "one\ntwo\n".getBytes(StandardCharsets.UTF_8));
+        Path image = Files.write(dir.resolve("pixel.png"), Base64.getDecoder().decode(PNG));
+        Path sound = Files.write(dir.resolve("half.wav"), wav(8000, 4000));
+        try {
+            out.println(PREFIX + "jvm.ms=" + uptime);
+
+            long loaded = classes.getTotalLoadedClassCount();
+            long start = System.nanoTime();
+            ContentInfo info = new ContentInfo(text.toUri().toURL());
+            loaded = report(out, "construct", start, loaded, classes);
+
+            start = System.nanoTime();
+            info.getContentType();
+            loaded = report(out, "contentType", start, loaded, classes);
+
+            ContentInfo png = new ContentInfo(image.toUri().toURL());
+            start = System.nanoTime();
+            png.getImageSize();
+            loaded = report(out, "imageSize", start, loaded, classes);
+
+            start = System.nanoTime();
+            png.getImageSize();
+            loaded = report(out, "imageSizeWarm", start, loaded, classes);
+
+            ContentInfo wav = new ContentInfo(sound.toUri().toURL());
+            start = System.nanoTime();
+            wav.getAudioDuration();
+            report(out, "audioDuration", start, loaded, classes);
+        } finally {
+            Files.delete(text);
+            Files.delete(image);
+            Files.delete(sound);
+            Files.delete(dir);
+        }
+    }
+
+    /**
+     * Prints the time and classes loaded by one step.
+     *
+     * @param out where to print
+     * @param step the step name
+     * @param start when the step started, in nanoseconds
+     * @param loaded classes loaded before the step
+     * @param classes the class loading bean
+     * @return classes loaded after the step
+     */
+    private static long report(PrintStream out, String step, long start, long loaded, ClassLoadingMXBean classes) {
+        double millis = (System.nanoTime() - start) / 1e6;
+        long now = classes.getTotalLoadedClassCount();
+        out.println(PREFIX + step + ".ms=" + String.format(Locale.ROOT, "%.3f", millis));
+        out.println(PREFIX + step + ".classes=" + (now - loaded));
+        out.flush();
+        return now;
+    }
+
+    /**
+     * Builds a silent 8-bit mono WAVE file.
+     *
+     * @param rate sample rate
+     * @param samples number of samples
+     * @return the file contents
+     */
+    private static byte[] wav(int rate, int samples) {
+        ByteBuffer wav = ByteBuffer.allocate(44 + samples).order(ByteOrder.LITTLE_ENDIAN);
+        wav.put("RIFF".getBytes(StandardCharsets.US_ASCII)).putInt(36 + samples);
+        wav.put("WAVEfmt ".getBytes(StandardCharsets.US_ASCII)).putInt(16);
+        // PCM, one channel, one byte per sample
+        wav.putShort((short) 1).putShort((short) 1).putInt(rate).putInt(rate).putShort((short) 1).putShort((short) 8);
+        wav.put("data".getBytes(StandardCharsets.US_ASCII)).putInt(samples);
+        for (int i = 0; i < samples; i++) wav.put((byte) 0x80);
+        return wav.array();
+    }
+}
@@ -0,0 +1,326 @@
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * TextStats.java
+ */
+
+/**
+ * Line, word and character statistics of content, computed in one pass over
+ * its raw bytes without decoding it. Characters are UTF-8 code points;
+ * words are runs of bytes other than ASCII whitespace, as counted by wc;
+ * lines end with "\n", with a last line lacking one counted too. Content
+ * holding a NUL byte, or more than one control character in ten bytes, is
+ * reported as binary.
+ *
+ *
+ * @author Vy Thai
+ * @since 2020-10-30
+ */
+public class TextStats {
+    private final long byteCount;
+    private final long charCount;
+    private final long wordCount;
+    private final long lineCount;
+    private final long blankLineCount;
+    private final long longestLine;
+    private final boolean binary;
+
+    /**
+     * Create an instance with the statistics.
+     *
+     * @param byteCount number of bytes
+     * @param charCount number of UTF-8 characters
+     * @param wordCount number of words
+     * @param lineCount number of lines
+     * @param blankLineCount number of lines holding only whitespace
+     * @param longestLine characters in the longest line, not counting its line break
+     * @param binary true if the content looks binary
+     */
+    public TextStats(long byteCount, long charCount, long wordCount, long lineCount, long blankLineCount,
+                     long longestLine, boolean binary) {
+        this.byteCount = byteCount;
+        this.charCount = charCount;
+        this.wordCount = wordCount;
+        this.lineCount = lineCount;
+        this.blankLineCount = blankLineCount;
+        this.longestLine = longestLine;
+        this.binary = binary;
+    }
+
+    /**
+     * Gets the number of bytes.
+     *
+     * @return byte count
+     */
+    public long getByteCount() {
+        return byteCount;
+    }
+
+    /**
+     * Gets the number of UTF-8 characters.
+     *
+     * @return character count
+     */
+    public long getCharCount() {
+        return charCount;
+    }
+
+    /**
+     * Gets the number of words.
+     *
+     * @return word count
+     */
+    public long getWordCount() {
+        return wordCount;
+    }
+
+    /**
+     * Gets the number of lines.
+     *
+     * @return line count
+     */
+    public long getLineCount() {
+        return lineCount;
+    }
+
+    /**
+     * Gets the number of lines that are empty or hold only whitespace.
+     *
+     * @return blank line count
+     */
+    public long getBlankLineCount() {
+        return blankLineCount;
+    }
+
+    /**
+     * Gets the length of the longest line, not counting its line break.
+     *
+     * @return characters in the longest line
+     */
+    public long getLongestLine() {
+        return longestLine;
+    }
+
+    /**
+     * Determines whether the content looks binary rather than text.
+     *
+     * @return true if the content holds a NUL byte or many control characters
+     */
+    public boolean isBinary() {
+        return binary;
+    }
+
+    @Override
+    public String toString() {
+        return "TextStats[bytes=" + byteCount + ", chars=" + charCount + ", words=" + wordCount + ", lines=" + lineCount
+                + ", blankLines=" + blankLineCount + ", longestLine=" + longestLine + ", binary=" + binary + "]";
+    }
+
+    /**
+     * Accumulates statistics over consecutive chunks of content. Each byte is
+     * classified by a lookup table and the counters are advanced from
+     * per-class tables, so the scalar loop has no data-dependent branches
+     * except at line breaks. Unless the "textstats.swar" system property is
+     * "false", runs of eight bytes whose only bytes below 0x20 are tab,
+     * vertical tab and form feed are instead handled as one long, using bit masks to find whitespace,
+     * word starts and UTF-8 continuation bytes (SIMD within a register).
+     */
+    static final class Scanner {
+        /** Byte classes */
+        private static final int WORD = 0;
+        private static final int CONTINUATION = 1;
+        private static final int SPACE = 2;
+        private static final int CR = 3;
+        private static final int NEWLINE = 4;
+        private static final int CONTROL = 5;
+        private static final int NUL = 6;
+
+        /** Class of every byte value */
+        private static final byte[] CLASS = new byte[256];
+
+        /** Per class: 1 if the byte starts a character */
+        private static final int[] CHARS = {1, 0, 1, 1, 1, 1, 1};
+        /** Per class: 1 if the byte adds a character to the line length */
+        private static final int[] LINE_CHARS = {1, 0, 1, 0, 0, 1, 1};
+        /** Per class: 1 if the byte is part of a word */
+        private static final int[] IN_WORD = {1, 1, 0, 0, 0, 1, 1};
+        /** Per class: 1 if the byte hints at binary content */
+        private static final int[] CONTROLS = {0, 0, 0, 0, 0, 1, 1};
+
+        /** The same value in every byte of a long */
+        private static final long ONES = 0x0101010101010101L;
+        private static final long HIGH = 0x8080808080808080L;
+        private static final long LOW = 0x7F7F7F7F7F7F7F7FL;
+
+        static {
+            for (int b = 0; b < 256; b++) {
+                if (b == 0) CLASS[b] = NUL;
+                else if (b == '\n') CLASS[b] = NEWLINE;
+                else if (b == '\r') CLASS[b] = CR;
+                else if (b == ' ' || b == '\t' || b == 0x0B || b == '\f') CLASS[b] = SPACE;
+                else if (b < 0x20 || b == 0x7F) CLASS[b] = CONTROL;
+                else if (b >= 0x80 && b < 0xC0) CLASS[b] = CONTINUATION;
+                else CLASS[b] = WORD;
+            }
+            // backspace and escape are common in terminal logs
+            CLASS[0x08] = WORD;
+            CLASS[0x1B] = WORD;
+        }
+
+        private final boolean swar;
+        private long bytes;
+        private long chars;
+        private long words;
+        private long lines;
+        private long blankLines;
+        private long longestLine;
+        private long controls;
+        private boolean nul;
+        /** 1 while inside a word */
+        private int inWord;
+        private long lineLength;
+        private boolean lineHasContent;
+        /** True if the last byte scanned was a line break */
+        private boolean lineEnded;
+
+        /**
+         * Create a scanner using the fast path unless disabled by the
+         * "textstats.swar" system property.
+         */
+        Scanner() {
+            this(!"false".equals(System.getProperty("textstats.swar")));
+        }
+
+        /**
+         * Create a scanner.
+         *
+         * @param swar true to handle plain runs of bytes eight at a time
+         */
+        Scanner(boolean swar) {
+            this.swar = swar;
+        }
+
+        /**
+         * Scans the remaining bytes of a buffer.
+         *
+         * @param buffer the next chunk of content
+         */
+        void update(ByteBuffer buffer) {
+            ByteOrder order = buffer.order();
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            int position = buffer.position();
+            int limit = buffer.limit();
+            bytes += limit - position;
+            if (swar) {
+                for (; position + 8 <= limit; position += 8) {
+                    long block = buffer.getLong(position);
+                    if (!block(block)) {
+                        for (int i = 0; i < 8; i++) scan(buffer.get(position + i));
+                    }
+                }
+            }
+            for (; position < limit; position++) scan(buffer.get(position));
+            buffer.position(limit);
+            buffer.order(order);
+        }
+
+        /**
+         * Scans one byte.
+         *
+         * @param b the byte
+         */
+        private void scan(byte b) {
+            int cls = CLASS[b & 0xFF];
+            int word = IN_WORD[cls];
+            // a word starts where a word byte follows a non-word byte
+            words += word & ~inWord;
+            inWord = word;
+            chars += CHARS[cls];
+            controls += CONTROLS[cls];
+            lineEnded = cls == NEWLINE;
+            if (lineEnded) {
+                endLine();
+            } else {
+                lineLength += LINE_CHARS[cls];
+                lineHasContent |= word != 0;
+                nul |= cls == NUL;
+            }
+        }
+
+        /**
+         * Scans eight bytes at once if they hold no line break or control
+         * character. The only bytes below 0x20 handled here are tab, vertical
+         * tab and form feed, which are whitespace in the scalar tables too.
+         *
+         * @param block eight bytes, the first in the lowest bits
+         * @return false if the block must be scanned byte by byte
+         */
+        private boolean block(long block) {
+            long space = equal(block, ' ') | equal(block, '\t') | equal(block, 0x0B) | equal(block, '\f');
+            // line breaks, CR and every other byte below 0x20 (controls, NUL, backspace, escape) take the scalar path
+            if ((less(block, 0x20) & ~space | equal(block, 0x7F)) != 0) return false;
+
+            long word = ~space & HIGH;
+            long continuation = block & ~block << 1 & HIGH;
+            // the flag of each byte shifted onto the next byte tells whether it follows whitespace
+            long follows = space << 8 | (inWord == 0 ? 0x80L : 0);
+            words += Long.bitCount(word & follows);
+            inWord = (int) (word >>> 63);
+            int added = 8 - Long.bitCount(continuation);
+            chars += added;
+            lineLength += added;
+            lineHasContent |= word != 0;
+            lineEnded = false;
+            return true;
+        }
+
+        /**
+         * Finishes the current line.
+         */
+        private void endLine() {
+            lines++;
+            if (!lineHasContent) blankLines++;
+            longestLine = Math.max(longestLine, lineLength);
+            lineLength = 0;
+            lineHasContent = false;
+        }
+
+        /**
+         * Gets the statistics of everything scanned so far, counting an
+         * unterminated last line.
+         *
+         * @return the statistics
+         */
+        TextStats finish() {
+            boolean open = bytes > 0 && !lineEnded;
+            long lineTotal = lines + (open ? 1 : 0);
+            long blankTotal = blankLines + (open && !lineHasContent ? 1 : 0);
+            return new TextStats(bytes, chars, words, lineTotal, blankTotal, Math.max(longestLine, lineLength),
+                    nul || controls * 10 > bytes);
+        }
+
+        /**
+         * Gets a mask with the high bit set in every byte equal to a value.
+         *
+         * @param block eight bytes
+         * @param value the byte value
+         * @return the mask
+         */
+        private static long equal(long block, int value) {
+            long t = block ^ value * ONES;
+            return ~((t & LOW) + LOW | t) & HIGH;
+        }
+
+        /**
+         * Gets a mask with the high bit set in every byte less than a value.
+         *
+         * @param block eight bytes
+         * @param value the bound, at most 128
+         * @return the mask
+         */
+        private static long less(long block, int value) {
+            return ~((block | HIGH) - value * ONES) & ~block & HIGH;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+import static org.junit.Assert.*;
+import org.junit.Test;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+/**
+ * TextStatsTest.java
+ */
+
+/**
+ * JUnit tests for TextStats class
+ *
+ *
+ * @author Vy Thai
+ * @since 2020-10-30
+ */
+public class TextStatsTest {
+
+    /**
+     * Scans text in one chunk.
+     *
+     * @param text the text
+     * @param swar true to use the eight byte fast path
+     * @return the statistics
+     */
+    private static TextStats scan(byte[] text, boolean swar) {
+        TextStats.Scanner scanner = new TextStats.Scanner(swar);
+        scanner.update(ByteBuffer.wrap(text));
+        return scanner.finish();
+    }
+
+    /**
+     * Test method for {@link TextStats.Scanner#finish()}
+     */
+    @Test
+    public void testFinish() {
+        TextStats stats = scan("hello world\n  \n\nfoo  bar baz".getBytes(StandardCharsets.UTF_8), true);
+        assertEquals("finish - bytes", 28, stats.getByteCount());
+        assertEquals("finish - chars", 28, stats.getCharCount());
+        assertEquals("finish - words", 5, stats.getWordCount());
+        assertEquals("finish - lines", 4, stats.getLineCount());
+        assertEquals("finish - blank lines", 2, stats.getBlankLineCount());
+        assertEquals("finish - longest line", 12, stats.getLongestLine());
+        assertFalse("finish - text", stats.isBinary());
+
+        stats = scan("h\u00e9llo w\u00f6rld \u65e5\u672c\u8a9e\r\nnext\r\n".getBytes(StandardCharsets.UTF_8), true);
+        assertEquals("finish - UTF-8 chars", 23, stats.getCharCount());
+        assertEquals("finish - UTF-8 words", 4, stats.getWordCount());
+        assertEquals("finish - CRLF lines", 2, stats.getLineCount());
+        assertEquals("finish - CRLF longest line", 15, stats.getLongestLine());
+
+        assertEquals("finish - empty", 0, scan(new byte[0], true).getLineCount());
+        assertEquals("finish - one break", 1, scan(new byte[] {'\n'}, true).getBlankLineCount());
+        assertTrue("finish - NUL", scan("PK\u0003\u0004\u0000\u0000abc".getBytes(StandardCharsets.UTF_8), true).isBinary());
+    }
+
+    /**
+     * Test method for {@link TextStats.Scanner#update(ByteBuffer)} giving the
+     * same statistics with and without the fast path and however the
+     * content is split into chunks
+     */
+    @Test
+    public void testUpdate() {
+        Random random = new Random(42);
+        String alphabet = "abcdefghij      \t\n\n\r\u00e9\u65e5";
+        for (int round = 0; round < 50; round++) {
+            StringBuilder text = new StringBuilder();
+            int length = random.nextInt(2000);
+            for (int i = 0; i < length; i++) {
+                // long runs without whitespace exercise the fast path
+                int run = random.nextInt(4) == 0 ? 20 : 1;
+                char c = alphabet.charAt(random.nextInt(alphabet.length()));
+                for (int j = 0; j < run; j++) text.append(c);
+            }
+            byte[] bytes = text.toString().getBytes(StandardCharsets.UTF_8);
+            String expected = scan(bytes, false).toString();
+            assertEquals("update - fast path", expected, scan(bytes, true).toString());
+
+            TextStats.Scanner chunked = new TextStats.Scanner(true);
+            ByteBuffer direct = ByteBuffer.allocateDirect(13);
+            for (int offset = 0; offset < bytes.length; offset += 13) {
+                direct.clear();
+                direct.put(bytes, offset, Math.min(13, bytes.length - offset));
+                direct.flip();
+                chunked.update(direct);
+            }
+            assertEquals("update - chunks", expected, chunked.finish().toString());
+            assertEquals("update - chars", text.codePointCount(0, text.length()), scan(bytes, true).getCharCount());
+        }
+
+        // every byte value, including controls next to whitespace inside a block
+        for (int round = 0; round < 200; round++) {
+            byte[] bytes = new byte[random.nextInt(4096)];
+            int noise = 1 + random.nextInt(64);
+            for (int i = 0; i < bytes.length; i++) {
+                bytes[i] = random.nextInt(noise) == 0 ? (byte) random.nextInt(256) : (byte) 'x';
+            }
+            assertEquals("update - byte values", scan(bytes, false).toString(), scan(bytes, true).toString());
+        }
+        for (int b = 0; b < 256; b++) {
+            byte[] bytes = "abc?defghijklmn\n".getBytes(StandardCharsets.US_ASCII);
+            bytes[3] = (byte) b;
+            assertEquals("update - byte " + b, scan(bytes, false).toString(), scan(bytes, true).toString());
+        }
+        byte[] escapes = new byte[4096];
+        for (int i = 0; i < escapes.length; i++) escapes[i] = (byte) (i % 8 == 3 ? 0x15 : i % 8 == 6 ? 0x1B : 'x');
+        TextStats stats = scan(escapes, true);
+        assertEquals("update - controls are not whitespace", 1, stats.getWordCount());
+        assertTrue("update - controls are binary", stats.isBinary());
+    }
+}
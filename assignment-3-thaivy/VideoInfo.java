@@ -0,0 +1,637 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * VideoInfo.java
+ */
+
+/**
+ * Basic properties of video content, read from the container header
+ * (the MP4/MOV "moov" box or the Matroska/WebM EBML header) without
+ * touching any of the media data.
+ *
+ *
+ * @author Vy Thai
+ * @since 2020-10-02
+ */
+public class VideoInfo {
+    /** Largest "moov" box or Matroska header element we are willing to fetch */
+    private static final int MAX_HEADER_SIZE = 64 * 1024 * 1024;
+
+    /** Matroska element IDs */
+    private static final int EBML = 0x1A45DFA3;
+    private static final int SEGMENT = 0x18538067;
+    private static final int SEEK_HEAD = 0x114D9B74;
+    private static final int SEEK = 0x4DBB;
+    private static final int SEEK_ID = 0x53AB;
+    private static final int SEEK_POSITION = 0x53AC;
+    private static final int INFO = 0x1549A966;
+    private static final int TIMECODE_SCALE = 0x2AD7B1;
+    private static final int DURATION = 0x4489;
+    private static final int TRACKS = 0x1654AE6B;
+    private static final int TRACK_ENTRY = 0xAE;
+    private static final int TRACK_TYPE = 0x83;
+    private static final int CODEC_ID = 0x86;
+    private static final int DEFAULT_DURATION = 0x23E383;
+    private static final int VIDEO = 0xE0;
+    private static final int PIXEL_WIDTH = 0xB0;
+    private static final int PIXEL_HEIGHT = 0xBA;
+    private static final int CLUSTER = 0x1F43B675;
+
+    private final double duration;
+    private final int width;
+    private final int height;
+    private final String codec;
+    private final double frameRate;
+
+    /**
+     * Create an instance with the video properties.
+     *
+     * @param duration duration in seconds
+     * @param width frame width in pixels
+     * @param height frame height in pixels
+     * @param codec codec identifier, e.g. "avc1" or "V_VP9"
+     * @param frameRate frames per second, or 0 if unknown
+     */
+    public VideoInfo(double duration, int width, int height, String codec, double frameRate) {
+        this.duration = duration;
+        this.width = width;
+        this.height = height;
+        this.codec = codec;
+        this.frameRate = frameRate;
+    }
+
+    /**
+     * Gets the duration of the video.
+     *
+     * @return duration in seconds
+     */
+    public double getDuration() {
+        return duration;
+    }
+
+    /**
+     * Gets the frame width.
+     *
+     * @return width in pixels
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Gets the frame height.
+     *
+     * @return height in pixels
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Gets the codec of the first video track.
+     *
+     * @return codec identifier, or null if unknown
+     */
+    public String getCodec() {
+        return codec;
+    }
+
+    /**
+     * Gets the frame rate of the first video track.
+     *
+     * @return frames per second, or 0 if unknown
+     */
+    public double getFrameRate() {
+        return frameRate;
+    }
+
+    @Override
+    public String toString() {
+        return "VideoInfo[duration=" + duration + ", width=" + width + ", height=" + height
+                + ", codec=" + codec + ", frameRate=" + frameRate + "]";
+    }
+
+    /**
+     * Reads the video properties from an MP4/MOV or Matroska/WebM container.
+     *
+     * @param reader random access to the content
+     * @return the video properties
+     * @throws IOException if content unavailable or not a supported container
+     */
+    static VideoInfo read(RangeReader reader) throws IOException {
+        byte[] head = reader.read(0, 12);
+        if (head.length >= 8 && "ftyp".equals(fourcc(head, 4))) {
+            return readMp4(reader);
+        }
+        if (head.length >= 4 && u32(head, 0) == EBML) {
+            return readMatroska(reader);
+        }
+        throw new IOException("Unsupported video container.");
+    }
+
+    /**
+     * Walks the top-level MP4 boxes to find and parse the "moov" box. Only box
+     * headers are read, so "mdat" is skipped whatever its size, and a "moov" at
+     * the end of the file is served from the reader's suffix fetch.
+     *
+     * @param reader random access to the content
+     * @return the video properties
+     * @throws IOException if content unavailable or no "moov" box found
+     */
+    private static VideoInfo readMp4(RangeReader reader) throws IOException {
+        long length = reader.length();
+        long offset = 0;
+        while (offset + 8 <= length) {
+            byte[] header = reader.read(offset, 16);
+            check(header, 0, 8, header.length);
+            long size = u32(header, 0);
+            String type = fourcc(header, 4);
+            int headerSize = 8;
+            if (size == 1) {
+                // 64-bit "largesize" follows the type
+                check(header, 8, 8, header.length);
+                size = u64(header, 8);
+                headerSize = 16;
+            } else if (size == 0) {
+                // box extends to the end of the file
+                size = length - offset;
+            }
+            if (size < headerSize) throw new IOException("Corrupt MP4 box.");
+
+            if ("moov".equals(type)) {
+                if (size - headerSize > MAX_HEADER_SIZE) throw new IOException("MP4 moov box too large.");
+                byte[] moov = reader.read(offset + headerSize, (int) (size - headerSize));
+                if (moov.length < size - headerSize) throw new IOException("Truncated MP4 moov box.");
+                return parseMoov(moov);
+            }
+            offset += size;
+        }
+        throw new IOException("MP4 moov box not found.");
+    }
+
+    /**
+     * Parses the movie header and the first video track from a "moov" box.
+     *
+     * @param moov payload of the "moov" box
+     * @return the video properties
+     * @throws IOException if there is no video track or a box is corrupt
+     */
+    private static VideoInfo parseMoov(byte[] moov) throws IOException {
+        double duration = 0;
+        int mvhd = findBox(moov, 0, moov.length, "mvhd");
+        if (mvhd >= 0) {
+            int mvhdEnd = boxEnd(moov, mvhd);
+            long timescale;
+            long ticks;
+            // version 1 uses 64-bit times
+            if (byteAt(moov, mvhd, mvhdEnd) == 1) {
+                check(moov, mvhd + 20, 12, mvhdEnd);
+                timescale = u32(moov, mvhd + 20);
+                ticks = u64(moov, mvhd + 24);
+            } else {
+                check(moov, mvhd + 12, 8, mvhdEnd);
+                timescale = u32(moov, mvhd + 12);
+                ticks = u32(moov, mvhd + 16);
+            }
+            if (timescale > 0) duration = (double) ticks / timescale;
+        }
+
+        // scan the tracks for the first one with a "vide" handler
+        int offset = 0;
+        while (offset + 8 <= moov.length) {
+            long size = u32(moov, offset);
+            if (size < 8 || offset + size > moov.length) throw new IOException("Corrupt MP4 box.");
+            if ("trak".equals(fourcc(moov, offset + 4))) {
+                VideoInfo info = parseTrak(moov, offset + 8, offset + (int) size, duration);
+                if (info != null) return info;
+            }
+            offset += (int) size;
+        }
+        throw new IOException("No video track.");
+    }
+
+    /**
+     * Parses a "trak" box if it holds a video track.
+     *
+     * @param buf buffer holding the box
+     * @param start offset of the box payload
+     * @param end offset just past the box
+     * @param movieDuration movie duration in seconds from "mvhd"
+     * @return the video properties, or null if not a video track
+     * @throws IOException if a box is corrupt
+     */
+    private static VideoInfo parseTrak(byte[] buf, int start, int end, double movieDuration) throws IOException {
+        int mdia = findBox(buf, start, end, "mdia");
+        if (mdia < 0) return null;
+        int mdiaEnd = boxEnd(buf, mdia);
+        int hdlr = findBox(buf, mdia, mdiaEnd, "hdlr");
+        if (hdlr < 0) return null;
+        check(buf, hdlr + 8, 4, boxEnd(buf, hdlr));
+        if (!"vide".equals(fourcc(buf, hdlr + 8))) return null;
+
+        // track header holds the presentation size as 16.16 fixed point
+        int width = 0;
+        int height = 0;
+        int tkhd = findBox(buf, start, end, "tkhd");
+        if (tkhd >= 0) {
+            int tkhdEnd = boxEnd(buf, tkhd);
+            int sizeOffset = tkhd + (byteAt(buf, tkhd, tkhdEnd) == 1 ? 88 : 76);
+            if (sizeOffset + 8 <= tkhdEnd) {
+                width = (int) (u32(buf, sizeOffset) >> 16);
+                height = (int) (u32(buf, sizeOffset + 4) >> 16);
+            }
+        }
+
+        // media header gives the track's own timescale
+        long timescale = 0;
+        long mediaDuration = 0;
+        int mdhd = findBox(buf, mdia, mdiaEnd, "mdhd");
+        if (mdhd >= 0) {
+            int mdhdEnd = boxEnd(buf, mdhd);
+            if (byteAt(buf, mdhd, mdhdEnd) == 1) {
+                check(buf, mdhd + 20, 12, mdhdEnd);
+                timescale = u32(buf, mdhd + 20);
+                mediaDuration = u64(buf, mdhd + 24);
+            } else {
+                check(buf, mdhd + 12, 8, mdhdEnd);
+                timescale = u32(buf, mdhd + 12);
+                mediaDuration = u32(buf, mdhd + 16);
+            }
+        }
+
+        String codec = null;
+        double frameRate = 0;
+        int stbl = findPath(buf, mdia, mdiaEnd, "minf", "stbl");
+        if (stbl >= 0) {
+            int stblEnd = boxEnd(buf, stbl);
+            int stsd = findBox(buf, stbl, stblEnd, "stsd");
+            if (stsd >= 0) {
+                // first sample entry: size, format, then the visual sample entry fields
+                int entry = stsd + 8;
+                int stsdEnd = boxEnd(buf, stsd);
+                check(buf, entry + 4, 4, stsdEnd);
+                codec = fourcc(buf, entry + 4);
+                if ((width == 0 || height == 0) && entry + 36 <= stsdEnd) {
+                    width = u16(buf, entry + 32);
+                    height = u16(buf, entry + 34);
+                }
+            }
+            int stts = findBox(buf, stbl, stblEnd, "stts");
+            if (stts >= 0 && timescale > 0 && mediaDuration > 0) {
+                int sttsEnd = boxEnd(buf, stts);
+                check(buf, stts + 4, 4, sttsEnd);
+                // total sample count over the media duration
+                long count = u32(buf, stts + 4);
+                long samples = 0;
+                for (long i = 0; i < count && stts + 16 + i * 8 <= sttsEnd; i++) {
+                    samples += u32(buf, stts + 8 + (int) i * 8);
+                }
+                frameRate = samples * (double) timescale / mediaDuration;
+            }
+        }
+
+        double duration = movieDuration;
+        if (duration == 0 && timescale > 0) duration = (double) mediaDuration / timescale;
+        return new VideoInfo(duration, width, height, codec, frameRate);
+    }
+
+    /**
+     * Finds a nested box by following a path of box types.
+     *
+     * @param buf buffer holding the boxes
+     * @param start offset of the first box
+     * @param end offset just past the last box
+     * @param path box types, outermost first
+     * @return offset of the innermost box payload, or -1 if not found
+     */
+    private static int findPath(byte[] buf, int start, int end, String... path) {
+        int offset = start;
+        for (String type : path) {
+            offset = findBox(buf, start, end, type);
+            if (offset < 0) return -1;
+            start = offset;
+            end = boxEnd(buf, offset);
+        }
+        return offset;
+    }
+
+    /**
+     * Gets the end of a box found by {@link #findBox(byte[], int, int, String)},
+     * which has already checked that the box lies within its parent.
+     *
+     * @param buf buffer holding the box
+     * @param payload offset of the box payload
+     * @return offset just past the box
+     */
+    private static int boxEnd(byte[] buf, int payload) {
+        return payload + (int) u32(buf, payload - 8) - 8;
+    }
+
+    /**
+     * Checks that a field lies within its box.
+     *
+     * @param buf buffer holding the box
+     * @param offset offset of the field
+     * @param count size of the field
+     * @param end offset just past the box
+     * @throws IOException if the field extends past the box or the buffer
+     */
+    private static void check(byte[] buf, int offset, int count, int end) throws IOException {
+        if (offset < 0 || (long) offset + count > Math.min(end, buf.length)) {
+            throw new IOException("Corrupt MP4 box.");
+        }
+    }
+
+    /**
+     * Reads the first byte of a box payload, usually its version.
+     *
+     * @param buf buffer holding the box
+     * @param offset offset of the byte
+     * @param end offset just past the box
+     * @return the byte
+     * @throws IOException if the box is empty
+     */
+    private static int byteAt(byte[] buf, int offset, int end) throws IOException {
+        check(buf, offset, 1, end);
+        return buf[offset];
+    }
+
+    /**
+     * Finds a box of the given type among sibling boxes.
+     *
+     * @param buf buffer holding the boxes
+     * @param start offset of the first box
+     * @param end offset just past the last box
+     * @param type four character box type
+     * @return offset of the box payload, or -1 if not found
+     */
+    private static int findBox(byte[] buf, int start, int end, String type) {
+        int offset = start;
+        while (offset + 8 <= end) {
+            long size = u32(buf, offset);
+            if (size < 8 || offset + size > end) return -1;
+            if (type.equals(fourcc(buf, offset + 4))) return offset + 8;
+            offset += (int) size;
+        }
+        return -1;
+    }
+
+    /**
+     * Reads the Matroska/WebM segment information and first video track. The
+     * SeekHead is used to jump to the Info and Tracks elements, so clusters are
+     * never read.
+     *
+     * @param reader random access to the content
+     * @return the video properties
+     * @throws IOException if content unavailable or no video track found
+     */
+    private static VideoInfo readMatroska(RangeReader reader) throws IOException {
+        long length = reader.length();
+
+        // skip the EBML header to reach the Segment
+        long[] ebml = readElementHeader(reader, 0);
+        long offset = ebml[2] + ebml[1];
+        long[] segment = readElementHeader(reader, offset);
+        if (segment[0] != SEGMENT) throw new IOException("Matroska segment not found.");
+        long segmentStart = segment[2];
+
+        long infoPosition = -1;
+        long tracksPosition = -1;
+        offset = segmentStart;
+        while (offset < length && (infoPosition < 0 || tracksPosition < 0)) {
+            long[] element = readElementHeader(reader, offset);
+            if (element[0] == INFO) infoPosition = offset;
+            else if (element[0] == TRACKS) tracksPosition = offset;
+            else if (element[0] == SEEK_HEAD) {
+                // positions are relative to the segment data
+                byte[] body = readBody(reader, element);
+                for (long[] seek : children(body, 0, body.length)) {
+                    if (seek[0] != SEEK) continue;
+                    long id = 0;
+                    long position = -1;
+                    for (long[] child : children(body, (int) seek[2], (int) (seek[2] + seek[1]))) {
+                        if (child[0] == SEEK_ID) id = uint(body, (int) child[2], (int) child[1]);
+                        else if (child[0] == SEEK_POSITION) position = uint(body, (int) child[2], (int) child[1]);
+                    }
+                    if (id == INFO && position >= 0 && infoPosition < 0) infoPosition = segmentStart + position;
+                    if (id == TRACKS && position >= 0 && tracksPosition < 0) tracksPosition = segmentStart + position;
+                }
+            } else if (element[0] == CLUSTER || element[1] < 0) {
+                // media data reached without an index: stop rather than walking clusters
+                break;
+            }
+            offset = element[2] + element[1];
+        }
+        if (tracksPosition < 0) throw new IOException("Matroska tracks not found.");
+
+        double duration = 0;
+        if (infoPosition >= 0) {
+            byte[] info = readBody(reader, readElementHeader(reader, infoPosition));
+            long scale = 1000000;
+            double ticks = 0;
+            for (long[] child : children(info, 0, info.length)) {
+                if (child[0] == TIMECODE_SCALE) scale = uint(info, (int) child[2], (int) child[1]);
+                else if (child[0] == DURATION) ticks = ebmlFloat(info, (int) child[2], (int) child[1]);
+            }
+            duration = ticks * scale / 1e9;
+        }
+
+        byte[] tracks = readBody(reader, readElementHeader(reader, tracksPosition));
+        for (long[] entry : children(tracks, 0, tracks.length)) {
+            if (entry[0] != TRACK_ENTRY) continue;
+            long type = 0;
+            String codec = null;
+            long defaultDuration = 0;
+            int width = 0;
+            int height = 0;
+            for (long[] child : children(tracks, (int) entry[2], (int) (entry[2] + entry[1]))) {
+                int start = (int) child[2];
+                int size = (int) child[1];
+                if (child[0] == TRACK_TYPE) type = uint(tracks, start, size);
+                else if (child[0] == CODEC_ID) codec = new String(tracks, start, size, StandardCharsets.US_ASCII).trim();
+                else if (child[0] == DEFAULT_DURATION) defaultDuration = uint(tracks, start, size);
+                else if (child[0] == VIDEO) {
+                    for (long[] video : children(tracks, start, start + size)) {
+                        if (video[0] == PIXEL_WIDTH) width = (int) uint(tracks, (int) video[2], (int) video[1]);
+                        else if (video[0] == PIXEL_HEIGHT) height = (int) uint(tracks, (int) video[2], (int) video[1]);
+                    }
+                }
+            }
+            // track type 1 is video
+            if (type == 1) {
+                double frameRate = defaultDuration > 0 ? 1e9 / defaultDuration : 0;
+                return new VideoInfo(duration, width, height, codec, frameRate);
+            }
+        }
+        throw new IOException("No video track.");
+    }
+
+    /**
+     * Reads the header of the EBML element at an offset.
+     *
+     * @param reader random access to the content
+     * @param offset absolute offset of the element
+     * @return element ID, data size (-1 if unknown) and absolute data offset
+     * @throws IOException if content unavailable or the header is corrupt
+     */
+    private static long[] readElementHeader(RangeReader reader, long offset) throws IOException {
+        byte[] buf = reader.read(offset, 12);
+        long[] header = parseElementHeader(buf, 0, buf.length);
+        if (header == null) throw new IOException("Corrupt EBML element.");
+        header[2] += offset;
+        return header;
+    }
+
+    /**
+     * Reads the data of an EBML element.
+     *
+     * @param reader random access to the content
+     * @param header element header from {@link #readElementHeader(RangeReader, long)}
+     * @return the element data
+     * @throws IOException if content unavailable or the element is too large
+     */
+    private static byte[] readBody(RangeReader reader, long[] header) throws IOException {
+        if (header[1] < 0 || header[1] > MAX_HEADER_SIZE) throw new IOException("Matroska element too large.");
+        return reader.read(header[2], (int) header[1]);
+    }
+
+    /**
+     * Lists the child elements of an EBML master element.
+     *
+     * @param buf buffer holding the children
+     * @param start offset of the first child
+     * @param end offset just past the last child
+     * @return headers of the children with data offsets relative to buf
+     */
+    private static List<long[]> children(byte[] buf, int start, int end) {
+        List<long[]> list = new ArrayList<>();
+        int offset = start;
+        end = Math.min(end, buf.length);
+        while (offset < end) {
+            long[] header = parseElementHeader(buf, offset, end);
+            if (header == null || header[1] < 0 || header[2] + header[1] > end) break;
+            list.add(header);
+            offset = (int) (header[2] + header[1]);
+        }
+        return list;
+    }
+
+    /**
+     * Parses an EBML element ID and size.
+     *
+     * @param buf buffer holding the header
+     * @param offset offset of the header
+     * @param end offset just past the readable bytes
+     * @return element ID, data size (-1 if unknown) and data offset, or null if corrupt
+     */
+    private static long[] parseElementHeader(byte[] buf, int offset, int end) {
+        int idLength = vintLength(buf, offset, end);
+        if (idLength < 0 || idLength > 4) return null;
+        long id = 0;
+        for (int i = 0; i < idLength; i++) id = (id << 8) | (buf[offset + i] & 0xFF);
+
+        int sizeOffset = offset + idLength;
+        int sizeLength = vintLength(buf, sizeOffset, end);
+        if (sizeLength < 0) return null;
+        // strip the length marker bit from the size
+        long size = (buf[sizeOffset] & 0xFF) & (0xFF >> sizeLength);
+        boolean unknown = size == (0xFF >> sizeLength);
+        for (int i = 1; i < sizeLength; i++) {
+            int b = buf[sizeOffset + i] & 0xFF;
+            size = (size << 8) | b;
+            unknown &= b == 0xFF;
+        }
+        return new long[]{id, unknown ? -1 : size, sizeOffset + sizeLength};
+    }
+
+    /**
+     * Gets the length of an EBML variable size integer from its first byte.
+     *
+     * @param buf buffer holding the integer
+     * @param offset offset of the integer
+     * @param end offset just past the readable bytes
+     * @return length in bytes, or -1 if invalid or truncated
+     */
+    private static int vintLength(byte[] buf, int offset, int end) {
+        if (offset >= end) return -1;
+        int first = buf[offset] & 0xFF;
+        if (first == 0) return -1;
+        int length = Integer.numberOfLeadingZeros(first) - 23;
+        return offset + length <= end ? length : -1;
+    }
+
+    /**
+     * Reads an EBML float (4 or 8 bytes).
+     *
+     * @param buf buffer holding the value
+     * @param offset offset of the value
+     * @param size size of the value
+     * @return the value
+     */
+    private static double ebmlFloat(byte[] buf, int offset, int size) {
+        if (size == 4) return Float.intBitsToFloat((int) uint(buf, offset, 4));
+        if (size == 8) return Double.longBitsToDouble(uint(buf, offset, 8));
+        return 0;
+    }
+
+    /**
+     * Reads a big-endian unsigned integer of arbitrary size.
+     *
+     * @param buf buffer holding the value
+     * @param offset offset of the value
+     * @param size size of the value in bytes
+     * @return the value
+     */
+    private static long uint(byte[] buf, int offset, int size) {
+        long value = 0;
+        for (int i = 0; i < size; i++) value = (value << 8) | (buf[offset + i] & 0xFF);
+        return value;
+    }
+
+    /**
+     * Reads a big-endian unsigned 16-bit value.
+     *
+     * @param buf buffer holding the value
+     * @param offset offset of the value
+     * @return the value
+     */
+    private static int u16(byte[] buf, int offset) {
+        return (int) uint(buf, offset, 2);
+    }
+
+    /**
+     * Reads a big-endian unsigned 32-bit value.
+     *
+     * @param buf buffer holding the value
+     * @param offset offset of the value
+     * @return the value
+     */
+    private static long u32(byte[] buf, int offset) {
+        return uint(buf, offset, 4);
+    }
+
+    /**
+     * Reads a big-endian 64-bit value.
+     *
+     * @param buf buffer holding the value
+     * @param offset offset of the value
+     * @return the value
+     */
+    private static long u64(byte[] buf, int offset) {
+        return uint(buf, offset, 8);
+    }
+
+    /**
+     * Reads a four character code.
+     *
+     * @param buf buffer holding the code
+     * @param offset offset of the code
+     * @return the code
+     */
+    private static String fourcc(byte[] buf, int offset) {
+        return new String(buf, offset, 4, StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,181 @@
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.security.MessageDigest;
+
+/**
+ * XxHash64.java
+ */
+
+/**
+ * The xxHash64 non-cryptographic hash (seed 0) as a MessageDigest, so it can
+ * be used wherever SHA-256 is. Much faster than a cryptographic digest and
+ * good enough to find duplicate content, but not to resist deliberate
+ * collisions. The digest is the 64-bit hash in big-endian order, matching
+ * the canonical form printed by xxhsum.
+ *
+ *
+ * @author Vy Thai
+ * @since 2020-10-23
+ */
+public class XxHash64 extends MessageDigest {
+    /** Algorithm name accepted by {@link ContentInfo#getDigest(String)} */
+    public static final String ALGORITHM = "XXH64";
+
+    private static final long PRIME1 = 0x9E3779B185EBCA87L;
+    private static final long PRIME2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long PRIME3 = 0x165667B19E3779F9L;
+    private static final long PRIME4 = 0x85EBCA77C2B2AE63L;
+    private static final long PRIME5 = 0x27D4EB2F165667C5L;
+
+    /** Bytes consumed by one round of the four accumulators */
+    private static final int STRIPE = 32;
+
+    private long v1;
+    private long v2;
+    private long v3;
+    private long v4;
+    private long total;
+    /** Input not yet making up a whole stripe */
+    private final ByteBuffer pending = ByteBuffer.allocate(STRIPE).order(ByteOrder.LITTLE_ENDIAN);
+
+    /**
+     * Create a digest.
+     */
+    public XxHash64() {
+        super(ALGORITHM);
+        engineReset();
+    }
+
+    @Override
+    protected int engineGetDigestLength() {
+        return 8;
+    }
+
+    @Override
+    protected void engineReset() {
+        v1 = PRIME1 + PRIME2;
+        v2 = PRIME2;
+        v3 = 0;
+        v4 = -PRIME1;
+        total = 0;
+        pending.clear();
+    }
+
+    @Override
+    protected void engineUpdate(byte input) {
+        total++;
+        pending.put(input);
+        if (!pending.hasRemaining()) stripe(pending, 0);
+    }
+
+    @Override
+    protected void engineUpdate(byte[] input, int offset, int len) {
+        engineUpdate(ByteBuffer.wrap(input, offset, len));
+    }
+
+    /**
+     * Hashes the remaining bytes of a buffer, reading whole stripes straight
+     * from it so direct buffers are never copied.
+     *
+     * @param input the bytes to hash
+     */
+    @Override
+    protected void engineUpdate(ByteBuffer input) {
+        total += input.remaining();
+        ByteOrder order = input.order();
+        input.order(ByteOrder.LITTLE_ENDIAN);
+        try {
+            // top up a partial stripe first
+            if (pending.position() > 0) {
+                while (pending.hasRemaining() && input.hasRemaining()) pending.put(input.get());
+                if (pending.hasRemaining()) return;
+                stripe(pending, 0);
+            }
+            int position = input.position();
+            int whole = position + (input.remaining() & -STRIPE);
+            for (; position < whole; position += STRIPE) stripe(input, position);
+            input.position(position);
+            while (input.hasRemaining()) pending.put(input.get());
+        } finally {
+            input.order(order);
+        }
+    }
+
+    @Override
+    protected byte[] engineDigest() {
+        long hash;
+        if (total >= STRIPE) {
+            hash = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7) + Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+            hash = merge(hash, v1);
+            hash = merge(hash, v2);
+            hash = merge(hash, v3);
+            hash = merge(hash, v4);
+        } else {
+            hash = PRIME5;
+        }
+        hash += total;
+
+        int i = 0;
+        int end = pending.position();
+        for (; i + 8 <= end; i += 8) {
+            hash ^= round(0, pending.getLong(i));
+            hash = Long.rotateLeft(hash, 27) * PRIME1 + PRIME4;
+        }
+        if (i + 4 <= end) {
+            hash ^= (pending.getInt(i) & 0xFFFFFFFFL) * PRIME1;
+            hash = Long.rotateLeft(hash, 23) * PRIME2 + PRIME3;
+            i += 4;
+        }
+        for (; i < end; i++) {
+            hash ^= (pending.get(i) & 0xFF) * PRIME5;
+            hash = Long.rotateLeft(hash, 11) * PRIME1;
+        }
+
+        // avalanche
+        hash ^= hash >>> 33;
+        hash *= PRIME2;
+        hash ^= hash >>> 29;
+        hash *= PRIME3;
+        hash ^= hash >>> 32;
+
+        engineReset();
+        return ByteBuffer.allocate(8).putLong(hash).array();
+    }
+
+    /**
+     * Mixes one 32-byte stripe into the accumulators. A stripe taken from the
+     * pending buffer empties it.
+     *
+     * @param buffer little-endian buffer holding the stripe
+     * @param position absolute offset of the stripe
+     */
+    private void stripe(ByteBuffer buffer, int position) {
+        v1 = round(v1, buffer.getLong(position));
+        v2 = round(v2, buffer.getLong(position + 8));
+        v3 = round(v3, buffer.getLong(position + 16));
+        v4 = round(v4, buffer.getLong(position + 24));
+        if (buffer == pending) pending.clear();
+    }
+
+    /**
+     * One accumulator round.
+     *
+     * @param acc the accumulator
+     * @param input the next 8 input bytes
+     * @return the new accumulator
+     */
+    private static long round(long acc, long input) {
+        return Long.rotateLeft(acc + input * PRIME2, 31) * PRIME1;
+    }
+
+    /**
+     * Folds an accumulator into the hash.
+     *
+     * @param hash the hash so far
+     * @param acc the accumulator
+     * @return the new hash
+     */
+    private static long merge(long hash, long acc) {
+        return (hash ^ round(0, acc)) * PRIME1 + PRIME4;
+    }
+}
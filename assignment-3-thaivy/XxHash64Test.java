@@ -0,0 +1,87 @@
+import static org.junit.Assert.*;
+import org.junit.Test;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * XxHash64Test.java
+ */
+
+/**
+ * JUnit tests for XxHash64 class
+ *
+ *
+ * @author Vy Thai
+ * @since 2020-10-23
+ */
+public class XxHash64Test {
+    /** Lengths covering the tail paths and the stripe boundaries */
+    private static final int[] LENGTHS = {1, 4, 8, 12, 31, 32, 33, 63, 64, 100, 1000};
+
+    /** Reference hashes of the first LENGTHS bytes of {@link #pattern()} */
+    private static final String[] HASHES = {
+        "e934a84adb052768", "3b4d7f7c6bd1ae90", "506834122cb7b4d0", "e02e21acf6be1370",
+        "f9c815c599cbb32d", "ba7bafd4734262dd", "791cbe857e7fa007", "cc8b2a542e4a451e",
+        "d14bf0119fd250a1", "2bddaad0ee8a2178", "b1280f6428126532"
+    };
+
+    /**
+     * Gets 1000 bytes of test input.
+     *
+     * @return the input
+     */
+    private static byte[] pattern() {
+        byte[] data = new byte[1000];
+        for (int i = 0; i < data.length; i++) data[i] = (byte) (i * 31);
+        return data;
+    }
+
+    /**
+     * Formats a digest as hex.
+     *
+     * @param digest the digest
+     * @return the hex string
+     */
+    private static String hex(byte[] digest) {
+        return String.format("%016x", ByteBuffer.wrap(digest).getLong());
+    }
+
+    /**
+     * Test method for {@link XxHash64#digest(byte[])}
+     */
+    @Test
+    public void testDigest() {
+        XxHash64 hash = new XxHash64();
+        assertEquals("digest - empty", "ef46db3751d8e999", hex(hash.digest()));
+        assertEquals("digest - abc", "44bc2cf5ad770999", hex(hash.digest("abc".getBytes(StandardCharsets.US_ASCII))));
+        byte[] data = pattern();
+        for (int i = 0; i < LENGTHS.length; i++) {
+            hash.update(data, 0, LENGTHS[i]);
+            assertEquals("digest - " + LENGTHS[i] + " bytes", HASHES[i], hex(hash.digest()));
+        }
+    }
+
+    /**
+     * Test method for {@link XxHash64#update(ByteBuffer)} with input split
+     * across calls and read from a direct buffer
+     */
+    @Test
+    public void testUpdate() {
+        byte[] data = pattern();
+        XxHash64 hash = new XxHash64();
+        for (int chunk = 1; chunk <= 70; chunk += 3) {
+            ByteBuffer direct = ByteBuffer.allocateDirect(chunk);
+            for (int offset = 0; offset < data.length; offset += chunk) {
+                direct.clear();
+                direct.put(data, offset, Math.min(chunk, data.length - offset));
+                direct.flip();
+                hash.update(direct);
+                assertEquals("update - consumed", 0, direct.remaining());
+            }
+            assertEquals("update - " + chunk + " byte chunks", "b1280f6428126532", hex(hash.digest()));
+        }
+
+        for (byte b : data) hash.update(b);
+        assertEquals("update - single bytes", "b1280f6428126532", hex(hash.digest()));
+    }
+}